@@ -0,0 +1,95 @@
+package com.file.storage.benchmark;
+
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+class InMemoryStorageBackend implements StorageBackend {
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-05-01T10:15:30Z");
+
+    private final NavigableMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public Iterable<StorageObject> list(String prefix, boolean recursive) {
+        List<StorageObject> result = new ArrayList<>();
+        String lastDirectory = null;
+        for (Map.Entry<String, byte[]> entry : objects.tailMap(prefix, true).entrySet()) {
+            String name = entry.getKey();
+            if (!name.startsWith(prefix)) {
+                break;
+            }
+
+            int slash = recursive ? -1 : name.indexOf('/', prefix.length());
+            if (slash < 0 || name.length() == prefix.length()) {
+                result.add(object(name, entry.getValue()));
+            } else {
+                String directory = name.substring(0, slash + 1);
+                if (!directory.equals(lastDirectory)) {
+                    result.add(StorageObject.directory(directory));
+                    lastDirectory = directory;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String object) {
+        byte[] content = objects.get(object);
+        return content == null ? Optional.empty() : Optional.of(object(object, content));
+    }
+
+    @Override
+    public InputStream get(String object, String etag, long offset, long length) {
+        byte[] content = objects.get(object);
+        if (content == null) {
+            throw new IllegalArgumentException("No such object " + object);
+        }
+        int from = (int) Math.min(offset, content.length);
+        int count = length < 0 ? content.length - from : (int) Math.min(length, content.length - from);
+        return new ByteArrayInputStream(content, from, count);
+    }
+
+    @Override
+    public void put(String object, InputStream inputStream, long size) {
+        try {
+            objects.put(object, inputStream.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void copy(String from, String to) {
+        objects.put(to, objects.get(from));
+    }
+
+    @Override
+    public void move(String from, String to) {
+        objects.put(to, objects.remove(from));
+    }
+
+    @Override
+    public void deleteBatch(List<String> names) {
+        names.forEach(objects::remove);
+    }
+
+    private static StorageObject object(String name, byte[] content) {
+        return new StorageObject(name, content.length, "etag-" + content.length, LAST_MODIFIED, false);
+    }
+}
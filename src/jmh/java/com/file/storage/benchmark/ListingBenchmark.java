@@ -0,0 +1,77 @@
+package com.file.storage.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.storage.dto.ResourceInfoResponse;
+import com.file.storage.model.User;
+import com.file.storage.repository.UserRepository;
+import com.file.storage.service.HomeFolderService;
+import com.file.storage.service.ResourceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingBenchmark {
+
+    @Param({"1000", "10000"})
+    private int entries;
+
+    private ResourceService resourceService;
+    private List<ResourceInfoResponse> listing;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("bench");
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername("bench")).thenReturn(Optional.of(user));
+
+        InMemoryStorageBackend storageBackend = new InMemoryStorageBackend();
+        String folder = HomeFolderService.folderOf(42) + "docs/";
+        storageBackend.put(folder, new ByteArrayInputStream(new byte[0]), 0);
+        for (int i = 0; i < entries; i++) {
+            // every tenth entry is a folder so both branches of the listing are exercised
+            String name = i % 10 == 0 ? "folder-" + i + "/" : "file-" + i + ".txt";
+            storageBackend.put(folder + name, new ByteArrayInputStream(new byte[i % 512]), i % 512);
+        }
+
+        HomeFolderService homeFolderService = new HomeFolderService(storageBackend, userRepository, Runnable::run,
+                false, 100, 1);
+        resourceService = new ResourceService(userRepository, storageBackend, null, null, null,
+                homeFolderService, null, null);
+        listing = resourceService.getDirectoryInfo("docs/", "bench").body().get();
+    }
+
+    @Benchmark
+    public List<ResourceInfoResponse> assemble() {
+        return resourceService.getDirectoryInfo("docs/", "bench").body().get();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(listing);
+    }
+}
@@ -0,0 +1,71 @@
+package com.file.storage.benchmark;
+
+import com.file.storage.service.StoragePath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark {
+    private static final String HOME = "user-42-files/";
+
+    private final String[] paths = {
+            "report.pdf",
+            "docs/2024/q1/report.pdf",
+            "//docs///2024//photos/IMG_0001.jpg  ",
+            "user-42-files/docs/2024/q1/",
+            "projects/storage/src/main/java/com/file/storage/service/ResourceService.java",
+    };
+
+    @Benchmark
+    public void resolve(Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(StoragePath.resolve(HOME, path, false).object());
+        }
+    }
+
+    @Benchmark
+    public void resolveAndSplit(Blackhole blackhole) {
+        for (String path : paths) {
+            StoragePath storagePath = StoragePath.resolve(HOME, path, false);
+            blackhole.consume(storagePath.parent());
+            blackhole.consume(storagePath.name());
+        }
+    }
+
+    // the regex based normalization ResourceService used before StoragePath, kept as a baseline
+    @Benchmark
+    public void legacyResolveAndSplit(Blackhole blackhole) {
+        for (String path : paths) {
+            String object = (HOME + path.replaceFirst("^user-\\d+-files/", "")).replaceAll("/+", "/").trim();
+            blackhole.consume(legacyParent(object));
+            blackhole.consume(legacyName(object));
+        }
+    }
+
+    private static String legacyName(String path) {
+        path = path.replaceFirst("^user-\\d+-files/", "");
+        int lastSlash = path.lastIndexOf("/", path.length() - 2);
+        return lastSlash <= 0 ? path : path.substring(lastSlash + 1);
+    }
+
+    private static String legacyParent(String path) {
+        path = path.replaceFirst("^user-\\d+-files/", "");
+        int slash = path.endsWith("/") ? path.lastIndexOf("/", path.length() - 2) : path.lastIndexOf("/");
+        return slash <= 0 ? "" : path.substring(0, slash + 1);
+    }
+}
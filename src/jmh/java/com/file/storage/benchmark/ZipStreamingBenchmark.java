@@ -0,0 +1,108 @@
+package com.file.storage.benchmark;
+
+import com.file.storage.repository.ZipCrcRepository;
+import com.file.storage.service.ObjectPrefetcher;
+import com.file.storage.service.ZipArchiveCache;
+import com.file.storage.service.ZipCompressionPolicy;
+import com.file.storage.service.ZipCrcCache;
+import com.file.storage.service.ZipStreamingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipStreamingBenchmark {
+    private static final String PREFIX = "user-42-files/photos/";
+
+    @Param({"100"})
+    private int files;
+
+    @Param({"65536"})
+    private int fileSize;
+
+    // text goes through the deflater, random data is detected as incompressible and stored
+    @Param({"text", "random"})
+    private String content;
+
+    private ExecutorService executor;
+    private ZipStreamingService zipStreamingService;
+
+    @Setup
+    public void setUp() {
+        InMemoryStorageBackend storageBackend = new InMemoryStorageBackend();
+        storageBackend.put(PREFIX, new ByteArrayInputStream(new byte[0]), 0);
+        Random random = new Random(42);
+        for (int i = 0; i < files; i++) {
+            byte[] data = content.equals("text") ? text(random, fileSize) : random(random, fileSize);
+            storageBackend.put(PREFIX + "file-" + i + ".dat", new ByteArrayInputStream(data), data.length);
+        }
+
+        // CRCs stay in the local map, the benchmark measures archiving rather than Redis round trips
+        ZipCrcRepository crcRepository = mock(ZipCrcRepository.class);
+        when(crcRepository.findAll(anyList())).thenAnswer(invocation ->
+                Collections.nCopies(invocation.<List<String>>getArgument(0).size(), null));
+
+        executor = Executors.newFixedThreadPool(4);
+        ZipCompressionPolicy compressionPolicy = new ZipCompressionPolicy(6);
+        zipStreamingService = new ZipStreamingService(storageBackend,
+                new ObjectPrefetcher(storageBackend, executor, 4, 16L << 20), compressionPolicy,
+                new ZipCrcCache(crcRepository, Runnable::run, 10_000),
+                new ZipArchiveCache(storageBackend, compressionPolicy, Runnable::run, 0, 0),
+                new SimpleMeterRegistry(), 1, 64 * 1024, 30_000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void streamFolder() throws IOException {
+        zipStreamingService.stream(PREFIX, "fingerprint").writeTo(OutputStream.nullOutputStream());
+    }
+
+    private static byte[] random(Random random, int size) {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        return data;
+    }
+
+    private static byte[] text(Random random, int size) {
+        String[] words = {"storage", "folder", "archive", "minio", "upload", "download", "listing", "user"};
+        StringBuilder builder = new StringBuilder(size + 16);
+        while (builder.length() < size) {
+            builder.append(words[random.nextInt(words.length)]).append(random.nextInt(4) == 0 ? '\n' : ' ');
+        }
+        return builder.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,143 @@
+package com.file.storage.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig implements WebMvcConfigurer {
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${storage.async.pool-size}")
+    private int poolSize;
+
+    @Value("${storage.async.request-timeout}")
+    private long requestTimeout;
+
+    @Value("${storage.zip.prefetch-threads}")
+    private int prefetchThreads;
+
+    @Value("${storage.preview.threads}")
+    private int previewThreads;
+
+    @Value("${storage.minio.read.threads}")
+    private int readThreads;
+
+    @Value("${storage.home-folders.reconcile-parallelism}")
+    private int homeFolderThreads;
+
+    public AsyncConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public AsyncTaskExecutor streamingTaskExecutor() {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = virtualExecutor("streamingTaskExecutor", "stream-");
+            executor.setTaskTerminationTimeout(30_000);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("stream-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean
+    public AsyncTaskExecutor prefetchTaskExecutor() {
+        if (virtualThreads) {
+            return virtualExecutor("prefetchTaskExecutor", "prefetch-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(prefetchThreads);
+        executor.setMaxPoolSize(prefetchThreads);
+        executor.setThreadNamePrefix("prefetch-");
+        return executor;
+    }
+
+    @Bean
+    public AsyncTaskExecutor storageReadExecutor() {
+        if (virtualThreads) {
+            return virtualExecutor("storageReadExecutor", "minio-read-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(readThreads);
+        executor.setMaxPoolSize(readThreads);
+        executor.setThreadNamePrefix("minio-read-");
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor archiveCacheTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setThreadNamePrefix("zip-cache-");
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor previewTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(previewThreads);
+        executor.setMaxPoolSize(previewThreads);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("preview-");
+        return executor;
+    }
+
+    @Bean
+    public AsyncTaskExecutor homeFolderTaskExecutor() {
+        if (virtualThreads) {
+            return virtualExecutor("homeFolderTaskExecutor", "home-folder-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(homeFolderThreads + 1);
+        executor.setMaxPoolSize(homeFolderThreads + 1);
+        executor.setThreadNamePrefix("home-folder-");
+        return executor;
+    }
+
+    private SimpleAsyncTaskExecutor virtualExecutor(String name, String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+
+        // thread pools are bound by the actuator, virtual executors have no pool to look at
+        AtomicInteger active = new AtomicInteger();
+        executor.setTaskDecorator(task -> () -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        Gauge.builder("executor.active", active, AtomicInteger::get)
+                .tag("name", name)
+                .register(meterRegistry);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingTaskExecutor());
+        configurer.setDefaultTimeout(requestTimeout);
+    }
+}
@@ -1,15 +1,17 @@
 package com.file.storage.config;
 
-import io.minio.BucketExistsArgs;
-import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
 public class MinioConfig {
 
     private static final Logger log = LoggerFactory.getLogger(MinioConfig.class);
@@ -27,39 +29,26 @@ public class MinioConfig {
     private String bucketName;
 
     @Bean
-    public MinioClient minioClient() {
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         log.info("--- MinIO Configuration ---");
         log.info("URL: {}", url);
         log.info("Access Key: {}", accessKey);
         log.info("Bucket Name: {}", bucketName);
         log.info("---------------------------");
 
-        try {
-            MinioClient minioClient = MinioClient.builder()
-                    .endpoint(url)
-                    .credentials(accessKey, secretKey)
-                    .build();
-
-            boolean isExist = minioClient.bucketExists(BucketExistsArgs.builder()
-                    .bucket(bucketName)
-                    .build()
-            );
-
-            if (!isExist) {
-                log.info("Bucket '{}' not found. Attempting to create it", bucketName);
-                minioClient.makeBucket(MakeBucketArgs.builder()
-                        .bucket(bucketName)
-                        .build()
-                );
-                log.info("Bucket '{}' created successfully", bucketName);
-            } else {
-                log.info("Bucket '{}' already exists", bucketName);
-            }
+        return MinioClient.builder()
+                .endpoint(url)
+                .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
+                .build();
+    }
 
-            return minioClient;
-        } catch (Exception e) {
-            log.error("Could not connect to MinIO", e);
-            throw new RuntimeException("Ошибка при подключении к MinIO: " + e.getMessage(), e);
-        }
+    @Bean
+    public MinioAsyncClient minioAsyncClient(OkHttpClient minioHttpClient) {
+        return MinioAsyncClient.builder()
+                .endpoint(url)
+                .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
+                .build();
     }
 }
@@ -0,0 +1,132 @@
+package com.file.storage.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MinioHttpClientConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${minio.http.max-idle-connections}")
+    private int maxIdleConnections;
+
+    @Value("${minio.http.keep-alive-ms}")
+    private long keepAliveMillis;
+
+    @Value("${minio.http.max-requests}")
+    private int maxRequests;
+
+    @Value("${minio.http.max-requests-per-host}")
+    private int maxRequestsPerHost;
+
+    @Value("${minio.http.connect-timeout-ms}")
+    private long connectTimeoutMillis;
+
+    @Value("${minio.http.read-timeout-ms}")
+    private long readTimeoutMillis;
+
+    @Value("${minio.http.write-timeout-ms}")
+    private long writeTimeoutMillis;
+
+    @Value("${minio.http.send-buffer-size}")
+    private int sendBufferSize;
+
+    @Value("${minio.http.receive-buffer-size}")
+    private int receiveBufferSize;
+
+    @Bean
+    public OkHttpClient minioHttpClient(MeterRegistry meterRegistry) {
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS);
+
+        Dispatcher dispatcher = virtualThreads
+                ? new Dispatcher(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("minio-http-", 0).factory()))
+                : new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        new OkHttpConnectionPoolMetrics(connectionPool, "minio.http", Tags.empty(), maxIdleConnections)
+                .bindTo(meterRegistry);
+        Gauge.builder("minio.http.requests.running", dispatcher, Dispatcher::runningCallsCount)
+                .description("MinIO calls currently executing")
+                .register(meterRegistry);
+        Gauge.builder("minio.http.requests.queued", dispatcher, Dispatcher::queuedCallsCount)
+                .description("MinIO calls waiting for a dispatcher slot")
+                .register(meterRegistry);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .socketFactory(new BufferedSocketFactory(SocketFactory.getDefault(), sendBufferSize, receiveBufferSize))
+                .protocols(List.of(Protocol.HTTP_1_1))
+                .build();
+    }
+
+    private static final class BufferedSocketFactory extends SocketFactory {
+        private final SocketFactory delegate;
+        private final int sendBufferSize;
+        private final int receiveBufferSize;
+
+        private BufferedSocketFactory(SocketFactory delegate, int sendBufferSize, int receiveBufferSize) {
+            this.delegate = delegate;
+            this.sendBufferSize = sendBufferSize;
+            this.receiveBufferSize = receiveBufferSize;
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return configure(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return configure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return configure(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return configure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return configure(delegate.createSocket(address, port, localAddress, localPort));
+        }
+
+        private Socket configure(Socket socket) throws IOException {
+            if (sendBufferSize > 0) {
+                socket.setSendBufferSize(sendBufferSize);
+            }
+            if (receiveBufferSize > 0) {
+                socket.setReceiveBufferSize(receiveBufferSize);
+            }
+            return socket;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.file.storage.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.storage.dto.ErrorResponse;
+import com.file.storage.service.RateLimitService;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+@Component
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+    private final RateLimitService rateLimitService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // the request was charged on its first dispatch, the async redispatch only writes the result
+        if (request.getDispatcherType() == DispatcherType.ASYNC
+                || authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return true;
+        }
+
+        long wait = rateLimitService.acquireRequest(authentication.getName());
+        if (wait == 0) {
+            return true;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value()); //429
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (wait + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse("Too many requests, try again later"));
+        return false;
+    }
+}
@@ -0,0 +1,103 @@
+package com.file.storage.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestCompletionFilter extends OncePerRequestFilter {
+    private static final String CALLBACKS = RequestCompletionFilter.class.getName() + ".callbacks";
+
+    // runs once the response is finished, including async timeouts and client aborts before the body ran;
+    // outside a request the caller has to clean up itself
+    public static void onCompletion(Runnable callback) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        callbacks(attributes).add(callback);
+    }
+
+    // for filters that run outside the request context, see RequestTimingFilter
+    public static void onCompletion(HttpServletRequest request, Runnable callback) {
+        callbacks(new ServletRequestAttributes(request)).add(callback);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Runnable> callbacks(RequestAttributes attributes) {
+        List<Runnable> callbacks = (List<Runnable>) attributes.getAttribute(CALLBACKS, RequestAttributes.SCOPE_REQUEST);
+        if (callbacks == null) {
+            callbacks = new CopyOnWriteArrayList<>();
+            attributes.setAttribute(CALLBACKS, callbacks, RequestAttributes.SCOPE_REQUEST);
+        }
+        return callbacks;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request));
+            } else {
+                complete(request);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void complete(HttpServletRequest request) {
+        List<Runnable> callbacks = (List<Runnable>) request.getAttribute(CALLBACKS);
+        if (callbacks == null) {
+            return;
+        }
+        request.removeAttribute(CALLBACKS);
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                log.warn("Request completion callback failed", e);
+            }
+        }
+    }
+
+    private record CompletionListener(HttpServletRequest request) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete(request);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
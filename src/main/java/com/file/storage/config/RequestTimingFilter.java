@@ -0,0 +1,120 @@
+package com.file.storage.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestTimingFilter extends OncePerRequestFilter {
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+
+    public RequestTimingFilter(@Value("${storage.request-timing.enabled}") boolean enabled,
+                               @Value("${storage.request-timing.slow-threshold-ms}") long slowThresholdMillis) {
+        this.enabled = enabled;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTimings timings = RequestTimings.start();
+        TimingResponse timingResponse = new TimingResponse(response, timings);
+        try {
+            filterChain.doFilter(request, timingResponse);
+        } finally {
+            RequestTimings.clear();
+            // an async handler is still running, the header goes out with the body of the async dispatch
+            // and the request is logged when it completes, async dispatches do not pass through this filter
+            if (request.isAsyncStarted()) {
+                RequestCompletionFilter.onCompletion(request, () -> logIfSlow(request, response, timings));
+            } else {
+                timingResponse.writeHeader();
+                logIfSlow(request, response, timings);
+            }
+        }
+    }
+
+    private void logIfSlow(HttpServletRequest request, HttpServletResponse response, RequestTimings timings) {
+        long elapsed = timings.elapsedNanos();
+        if (elapsed >= slowThresholdNanos) {
+            log.warn("Slow request method={} uri={} status={} ms={} {}", request.getMethod(),
+                    request.getRequestURI(), response.getStatus(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    timings.summary());
+        }
+    }
+
+    // headers are committed with the first byte of the body, so the header is added right before that
+    private static class TimingResponse extends HttpServletResponseWrapper {
+        private final RequestTimings timings;
+        private boolean written;
+
+        TimingResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        void writeHeader() {
+            if (!written && !isCommitted()) {
+                written = true;
+                setHeader("Server-Timing", timings.serverTiming());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
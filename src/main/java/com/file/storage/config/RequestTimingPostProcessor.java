@@ -0,0 +1,51 @@
+package com.file.storage.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.session.SessionRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+@Component
+public class RequestTimingPostProcessor implements BeanPostProcessor {
+    private final boolean enabled;
+
+    public RequestTimingPostProcessor(@Value("${storage.request-timing.enabled}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled) {
+            return bean;
+        }
+        if (bean instanceof Repository<?, ?>) {
+            return timed(bean, "postgres");
+        }
+        if (bean instanceof SessionRepository<?>) {
+            return timed(bean, "redis");
+        }
+        return bean;
+    }
+
+    static Object timed(Object bean, String backend) {
+        return Proxy.newProxyInstance(bean.getClass().getClassLoader(), ClassUtils.getAllInterfaces(bean),
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.getName().equals("equals") ? proxy == args[0] : method.invoke(bean, args);
+                    }
+                    long started = System.nanoTime();
+                    try {
+                        return method.invoke(bean, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    } finally {
+                        RequestTimings.record(backend, System.nanoTime() - started);
+                    }
+                });
+    }
+}
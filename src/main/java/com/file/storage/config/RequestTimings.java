@@ -0,0 +1,91 @@
+package com.file.storage.config;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+
+public class RequestTimings {
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long started = System.nanoTime();
+    private final Map<String, Backend> backends = new LinkedHashMap<>();
+
+    static RequestTimings start() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    // tasks run by the returned executor count towards the request that was current when it was bound
+    public static Executor bind(Executor executor) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            return executor;
+        }
+        return task -> executor.execute(() -> {
+            RequestTimings previous = CURRENT.get();
+            CURRENT.set(timings);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        });
+    }
+
+    // for calls that complete on a client callback thread
+    public static LongConsumer recorder(String backend) {
+        RequestTimings timings = CURRENT.get();
+        return timings == null ? nanos -> {
+        } : nanos -> timings.add(backend, nanos);
+    }
+
+    // calls made outside a request, or on a thread the request was not propagated to, are not attributed
+    public static void record(String backend, long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(backend, nanos);
+        }
+    }
+
+    private synchronized void add(String backend, long nanos) {
+        Backend total = backends.computeIfAbsent(backend, name -> new Backend());
+        total.calls++;
+        total.nanos += nanos;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - started;
+    }
+
+    public synchronized String serverTiming() {
+        StringJoiner header = new StringJoiner(", ");
+        backends.forEach((name, backend) -> header.add(String.format(Locale.ROOT, "%s;dur=%.1f;desc=\"%d calls\"",
+                name, backend.nanos / 1e6, backend.calls)));
+        header.add(String.format(Locale.ROOT, "total;dur=%.1f", elapsedNanos() / 1e6));
+        return header.toString();
+    }
+
+    public synchronized String summary() {
+        StringJoiner summary = new StringJoiner(" ");
+        backends.forEach((name, backend) -> summary.add(String.format(Locale.ROOT, "%s.calls=%d %s.ms=%.1f",
+                name, backend.calls, name, backend.nanos / 1e6)));
+        return summary.toString();
+    }
+
+    private static class Backend {
+        private long calls;
+        private long nanos;
+    }
+}
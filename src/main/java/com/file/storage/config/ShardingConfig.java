@@ -0,0 +1,63 @@
+package com.file.storage.config;
+
+import com.file.storage.repository.MeteredStorageBackend;
+import com.file.storage.repository.MinioRepository;
+import com.file.storage.repository.ReadHedger;
+import com.file.storage.repository.ShardRouter;
+import com.file.storage.repository.ShardedStorageBackend;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageLimiters;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@ConditionalOnProperty(name = "storage.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardedStorageBackend shardedStorageBackend(MinioRepository minioRepository,
+                                                       ReadHedger readHedger,
+                                                       StorageLimiters storageLimiters,
+                                                       OkHttpClient minioHttpClient,
+                                                       ShardRouter shardRouter,
+                                                       ShardingProperties properties,
+                                                       MeterRegistry meterRegistry) {
+        Map<String, StorageBackend> shards = new LinkedHashMap<>();
+        shards.put(properties.getDefaultShard(),
+                new MeteredStorageBackend(minioRepository, properties.getDefaultShard(), meterRegistry));
+
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            MinioClient client = MinioClient.builder()
+                    .endpoint(shard.getUrl())
+                    .credentials(shard.getAccessKey(), shard.getSecretKey())
+                    .httpClient(minioHttpClient)
+                    .build();
+            MinioRepository repository = new MinioRepository(client, readHedger,
+                    storageLimiters.forEndpoint(shard.getName()), shard.getBucket());
+            if (shards.put(shard.getName(), new MeteredStorageBackend(repository, shard.getName(), meterRegistry)) != null) {
+                throw new IllegalStateException("Duplicate shard name '" + shard.getName() + "'");
+            }
+        }
+
+        return new ShardedStorageBackend(shards, shardRouter);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor rebalanceTaskExecutor(ShardingProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getRebalanceThreads());
+        executor.setMaxPoolSize(properties.getRebalanceThreads());
+        executor.setThreadNamePrefix("rebalance-");
+        return executor;
+    }
+}
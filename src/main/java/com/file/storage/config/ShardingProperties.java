@@ -0,0 +1,33 @@
+package com.file.storage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "storage.sharding")
+public class ShardingProperties {
+    private boolean enabled;
+    private String defaultShard = "default";
+    private int defaultWeight = 1;
+    private int virtualNodes = 128;
+    private long assignmentTtlMs = 5000;
+    private int rebalanceThreads = 1;
+    private int maxCopyPasses = 5;
+    private List<Shard> shards = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Shard {
+        private String name;
+        private String url;
+        private String accessKey;
+        private String secretKey;
+        private String bucket;
+        private int weight = 1;
+    }
+}
@@ -0,0 +1,99 @@
+package com.file.storage.config;
+
+import com.file.storage.repository.CachingStorageBackend;
+import com.file.storage.repository.LocalStorageBackend;
+import com.file.storage.repository.MeteredStorageBackend;
+import com.file.storage.repository.MinioRepository;
+import com.file.storage.repository.ShardedStorageBackend;
+import com.file.storage.repository.StorageBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Configuration
+public class StorageBackendConfig {
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${storage.metadata-cache.enabled}")
+    private boolean cacheEnabled;
+
+    @Value("${storage.metadata-cache.ttl-ms}")
+    private long cacheTtlMillis;
+
+    @Value("${storage.metadata-cache.max-entries}")
+    private int cacheMaxEntries;
+
+    @Value("${storage.metadata-cache.max-listings}")
+    private int cacheMaxListings;
+
+    @Value("${storage.metadata-cache.max-listing-size}")
+    private int cacheMaxListingSize;
+
+    @Value("${storage.metadata-cache.channel}")
+    private String channel;
+
+    @Bean
+    @Primary
+    public StorageBackend storageBackend(ObjectProvider<ShardedStorageBackend> shardedStorageBackend,
+                                         ObjectProvider<MinioRepository> minioRepository,
+                                         ObjectProvider<LocalStorageBackend> localStorageBackend,
+                                         StringRedisTemplate redisTemplate,
+                                         MeterRegistry meterRegistry) {
+        StorageBackend backend = shardedStorageBackend.getIfAvailable();
+        if (backend == null) {
+            StorageBackend single = minioRepository.getIfAvailable();
+            backend = new MeteredStorageBackend(single != null ? single : localStorageBackend.getObject(),
+                    "default", meterRegistry);
+        }
+        if (!cacheEnabled) {
+            return backend;
+        }
+
+        return new CachingStorageBackend(backend, objects -> publish(redisTemplate, objects), meterRegistry,
+                System::currentTimeMillis, cacheTtlMillis, cacheMaxEntries, cacheMaxListings, cacheMaxListingSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.metadata-cache.enabled", havingValue = "true")
+    public RedisMessageListenerContainer metadataInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                      StorageBackend storageBackend) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (storageBackend instanceof CachingStorageBackend cache) {
+            container.addMessageListener((message, pattern) -> {
+                String[] lines = new String(message.getBody(), StandardCharsets.UTF_8).split("\n");
+                if (!lines[0].equals(nodeId)) {
+                    cache.invalidateRemote(Arrays.asList(lines).subList(1, lines.length));
+                }
+            }, new ChannelTopic(channel));
+        }
+        return container;
+    }
+
+    private void publish(StringRedisTemplate redisTemplate, List<String> objects) {
+        long started = System.nanoTime();
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + "\n" + String.join("\n", objects));
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish invalidation of {} objects, other nodes will see them after the ttl",
+                    objects.size(), e);
+        } finally {
+            RequestTimings.record("redis", System.nanoTime() - started);
+        }
+    }
+}
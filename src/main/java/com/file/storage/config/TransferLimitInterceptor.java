@@ -0,0 +1,51 @@
+package com.file.storage.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.storage.dto.ErrorResponse;
+import com.file.storage.service.RateLimitService;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+@Component
+@RequiredArgsConstructor
+public class TransferLimitInterceptor implements HandlerInterceptor {
+    private final RateLimitService rateLimitService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean transfer = HttpMethod.POST.matches(request.getMethod()) || request.getRequestURI().endsWith("/download");
+        // the async redispatch of a streamed download runs preHandle again
+        if (!transfer || request.getDispatcherType() == DispatcherType.ASYNC
+                || authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return true;
+        }
+
+        String username = authentication.getName();
+        if (rateLimitService.acquireTransfer(username)) {
+            RequestCompletionFilter.onCompletion(() -> rateLimitService.releaseTransfer(username));
+            return true;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value()); //429
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse("Too many transfers in progress, try again later"));
+        return false;
+    }
+}
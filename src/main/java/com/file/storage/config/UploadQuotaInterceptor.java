@@ -0,0 +1,50 @@
+package com.file.storage.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.file.storage.dto.ErrorResponse;
+import com.file.storage.repository.UserRepository;
+import com.file.storage.service.UsageService;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+@Component
+@RequiredArgsConstructor
+public class UploadQuotaInterceptor implements HandlerInterceptor {
+    private final UserRepository userRepository;
+    private final UsageService usageService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        long contentLength = request.getContentLengthLong();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // on the async redispatch the upload is already stored and counted, the quota was checked on the first dispatch
+        if (!HttpMethod.POST.matches(request.getMethod()) || request.getDispatcherType() == DispatcherType.ASYNC
+                || contentLength <= 0 || authentication == null) {
+            return true;
+        }
+
+        boolean exceeded = userRepository.findByUsername(authentication.getName())
+                .map(user -> contentLength > usageService.remaining(user.getId()))
+                .orElse(false);
+        if (!exceeded) {
+            return true;
+        }
+
+        response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value()); //413
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse("Storage quota exceeded"));
+        return false;
+    }
+}
@@ -0,0 +1,210 @@
+package com.file.storage.controller;
+
+import com.file.storage.dto.ErrorResponse;
+import com.file.storage.dto.ResourceInfoResponse;
+import com.file.storage.exceptions.QuotaExceededException;
+import com.file.storage.exceptions.ResourceAlreadyExistsException;
+import com.file.storage.exceptions.ResourceNotFoundException;
+import com.file.storage.exceptions.StorageBusyException;
+import com.file.storage.exceptions.UnauthorizedUserException;
+import com.file.storage.service.AsyncResourceService;
+import com.file.storage.service.RateLimitService;
+import com.file.storage.service.ResourceService;
+import com.file.storage.service.StoragePath;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.InvalidPathException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/async")
+@RequiredArgsConstructor
+@Tag(name = "Async Resource API", description = "Non-blocking variants of the resource endpoints")
+@ConditionalOnExpression("'${storage.backend:minio}' == 'minio' and !${storage.sharding.enabled:false}")
+public class AsyncResourceController {
+    private final AsyncResourceService asyncResourceService;
+    private final ResourceService resourceService;
+    private final RateLimitService rateLimitService;
+
+    @Operation(
+            summary = "Get resource info",
+            description = "Retrieves metadata about a file without holding a request thread while storage responds"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resource info retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = ResourceInfoResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid path format"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Resource not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/resource")
+    public CompletableFuture<ResponseEntity<ResourceInfoResponse>> getResource(
+            @Parameter(description = "Path to the resource", example = "docs/report.pdf")
+            @RequestParam String path,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        if (userDetails == null) {
+            throw new UnauthorizedUserException();
+        }
+
+        return asyncResourceService.getResourceInfo(path, userDetails.getUsername())
+                .thenApply(ResponseEntity::ok);
+    }
+
+    @Operation(
+            summary = "List directory contents",
+            description = "Gets contents of a directory (non-recursive) using sizes from the listing"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Directory contents retrieved",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = ResourceInfoResponse.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid path format"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Directory not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/directory")
+    public CompletableFuture<ResponseEntity<List<ResourceInfoResponse>>> getDirectory(
+            @Parameter(description = "Path to the directory", example = "projects/")
+            @RequestParam String path,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        if (userDetails == null) {
+            throw new UnauthorizedUserException();
+        }
+
+        return asyncResourceService.getDirectoryInfo(path, userDetails.getUsername())
+                .thenApply(ResponseEntity::ok);
+    }
+
+    @Operation(
+            summary = "Download resource",
+            description = "Downloads a file, or a directory as a ZIP archive; the request thread is released while storage responds"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "File downloaded successfully",
+                    content = @Content(schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "400", description = "Invalid path format"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Resource not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "Too many folder downloads in progress")
+    })
+    @GetMapping("/resource/download")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> downloadResource(
+            @Parameter(description = "Path to the resource", example = "projects/report.pdf")
+            @RequestParam String path,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        if (userDetails == null) {
+            throw new UnauthorizedUserException();
+        }
+
+        if (path.endsWith("/")) {
+            StreamingResponseBody body = rateLimitService.throttle(userDetails.getUsername(),
+                    resourceService.downloadResource(path, userDetails.getUsername()).body().get());
+            String fileName = StoragePath.lastSegment(path) + ".zip";
+
+            return CompletableFuture.completedFuture(ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .body(body));
+        }
+
+        String fileName = path.substring(path.lastIndexOf("/") + 1);
+        return asyncResourceService.downloadFile(path, userDetails.getUsername())
+                .thenApply(body -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(rateLimitService.throttle(userDetails.getUsername(), body)));
+    }
+
+    @Operation(
+            summary = "Upload files",
+            description = "Uploads files to the specified directory; all files are sent to storage concurrently"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Files uploaded successfully",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = ResourceInfoResponse.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid path format"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "409", description = "File already exists"),
+            @ApiResponse(responseCode = "413", description = "Storage quota exceeded"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping(value = "/resource", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CompletableFuture<ResponseEntity<List<ResourceInfoResponse>>> uploadResource(
+            @Parameter(description = "Target directory path", example = "uploads/")
+            @RequestParam String path,
+            @Parameter(description = "Files to upload",
+                    content = @Content(mediaType = "multipart/form-data",
+                            array = @ArraySchema(schema = @Schema(type = "string", format = "binary"))))
+            @RequestParam("object") List<MultipartFile> files,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        if (userDetails == null) {
+            throw new UnauthorizedUserException();
+        }
+
+        return asyncResourceService.uploadResource(path, files, userDetails.getUsername())
+                .thenApply(uploaded -> ResponseEntity.status(HttpStatus.CREATED).body(uploaded));
+    }
+
+    @ExceptionHandler(UnauthorizedUserException.class)
+    public ResponseEntity<ErrorResponse> handleUnauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponse("The user is not authorized")); //401
+    }
+
+    @ExceptionHandler(InvalidPathException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidPath() {
+        return ResponseEntity.badRequest().body(new ErrorResponse("Invalid or missing path")); //400
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleNotFound() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("The resource was not found")); //404
+    }
+
+    @ExceptionHandler(ResourceAlreadyExistsException.class)
+    public ResponseEntity<ErrorResponse> handleAlreadyExists() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse("The file already exists")); //409
+    }
+
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<ErrorResponse> handleQuotaExceeded() {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(new ErrorResponse("Storage quota exceeded")); //413
+    }
+
+    @ExceptionHandler(StorageBusyException.class)
+    public ResponseEntity<ErrorResponse> handleBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "5")
+                .body(new ErrorResponse("Storage is busy, try again later")); //503
+    }
+
+    @ExceptionHandler(RuntimeException.class)
+    public ResponseEntity<ErrorResponse> handleFailure(RuntimeException e) {
+        log.error("Async request failed", e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
+    }
+}
@@ -1,10 +1,20 @@
 package com.file.storage.controller;
 
+import com.file.storage.dto.DownloadRequest;
 import com.file.storage.dto.ErrorResponse;
 import com.file.storage.dto.ResourceInfoResponse;
+import com.file.storage.dto.ResourceVersion;
+import com.file.storage.exceptions.PreviewNotSupportedException;
+import com.file.storage.exceptions.QuotaExceededException;
 import com.file.storage.exceptions.ResourceAlreadyExistsException;
 import com.file.storage.exceptions.ResourceNotFoundException;
+import com.file.storage.exceptions.StorageBusyException;
+import com.file.storage.exceptions.UnauthorizedUserException;
+import com.file.storage.service.RateLimitService;
 import com.file.storage.service.ResourceService;
+import com.file.storage.service.StoragePath;
+import com.file.storage.service.Versioned;
+import com.file.storage.service.ZipLayout;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -13,19 +23,30 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
+import java.io.IOException;
 import java.nio.file.InvalidPathException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api")
@@ -33,6 +54,10 @@ import java.util.List;
 @Tag(name = "Resource API", description = "API for managing files and directories")
 public class ResourceController {
     private final ResourceService resourceService;
+    private final RateLimitService rateLimitService;
+
+    @Value("${storage.preview.max-age}")
+    private long previewMaxAge;
 
     @Operation(
             summary = "Get resource info",
@@ -41,6 +66,7 @@ public class ResourceController {
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Resource info retrieved successfully",
                     content = @Content(schema = @Schema(implementation = ResourceInfoResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Resource not modified"),
             @ApiResponse(responseCode = "400", description = "Invalid path format",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "401", description = "Unauthorized",
@@ -53,17 +79,78 @@ public class ResourceController {
     @GetMapping("/resource")
     public ResponseEntity<?> getResource(@Parameter(description = "Path to the resource", example = "docs/report.pdf")
                                          @RequestParam String path,
-                                         @AuthenticationPrincipal UserDetails userDetails) {
+                                         @AuthenticationPrincipal UserDetails userDetails,
+                                         WebRequest webRequest) {
         if (userDetails == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponse("The user is not authorized")); //401
         }
         try {
-            ResourceInfoResponse resourceInfoResponse = resourceService.getResourceInfo(path, userDetails.getUsername());
-            return ResponseEntity.ok(resourceInfoResponse);
+            Versioned<ResourceInfoResponse> resource = resourceService.getResourceInfo(path, userDetails.getUsername());
+            if (notModified(webRequest, resource.version())) {
+                return null; //304
+            }
+
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(resource.body().get());
+        } catch (InvalidPathException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid or missing path")); //400
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("The resource was not found")); //404
+        } catch (StorageBusyException e) {
+            return handleBusy(); //503
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
+        }
+    }
+
+    @Operation(
+            summary = "Get preview",
+            description = "Returns a resized JPEG thumbnail of an image file"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Preview generated or served from cache",
+                    content = @Content(mediaType = "image/jpeg", schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "304", description = "Preview not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid path format",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Resource not found",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "415", description = "No preview available for this file",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping("/resource/preview")
+    public ResponseEntity<?> getPreview(@Parameter(description = "Path to the image", example = "photos/cat.png")
+                                        @RequestParam String path,
+                                        @Parameter(description = "Longest side of the preview in pixels", example = "256")
+                                        @RequestParam(defaultValue = "256") int size,
+                                        @AuthenticationPrincipal UserDetails userDetails,
+                                        WebRequest webRequest) {
+        if (userDetails == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponse("The user is not authorized")); //401
+        }
+        try {
+            Versioned<byte[]> preview = resourceService.getPreview(path, size, userDetails.getUsername());
+            if (notModified(webRequest, preview.version())) {
+                return null; //304
+            }
+
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(previewMaxAge, TimeUnit.SECONDS).cachePrivate())
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .body(preview.body().get());
         } catch (InvalidPathException e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Invalid or missing path")); //400
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("The resource was not found")); //404
+        } catch (PreviewNotSupportedException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(new ErrorResponse("No preview available for this file")); //415
+        } catch (StorageBusyException e) {
+            return handleBusy(); //503
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
         }
@@ -94,6 +181,8 @@ public class ResourceController {
             return ResponseEntity.badRequest().body(new ErrorResponse("Invalid or missing path")); //400
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("The resource was not found")); //404
+        } catch (StorageBusyException e) {
+            return handleBusy(); //503
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
         }
@@ -106,41 +195,174 @@ public class ResourceController {
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "File downloaded successfully",
                     content = @Content(schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "206", description = "Requested range of a resumable folder archive",
+                    content = @Content(schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "304", description = "Resource not modified"),
             @ApiResponse(responseCode = "400", description = "Invalid path format"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "404", description = "Resource not found"),
-            @ApiResponse(responseCode = "500", description = "Internal server error")
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "Too many folder downloads in progress")
     })
     @GetMapping("/resource/download")
-    public ResponseEntity<?> downloadResource(
+    public ResponseEntity<StreamingResponseBody> downloadResource(
             @Parameter(description = "Path to the resource", example = "projects/report.pdf")
             @RequestParam String path,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @Parameter(description = "Serve folders as an uncompressed archive with a known length that supports Range requests")
+            @RequestParam(defaultValue = "false") boolean resumable,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @AuthenticationPrincipal UserDetails userDetails,
+            WebRequest webRequest,
+            HttpServletResponse response) throws IOException {
         if (userDetails == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponse("The user is not authorized")); //401
+            throw new UnauthorizedUserException();
+        }
+        if (resumable && path.endsWith("/")) {
+            return downloadResumable(path, range, ifRange, userDetails.getUsername(), webRequest);
+        }
+
+        Versioned<StreamingResponseBody> download = resourceService.downloadResource(path, userDetails.getUsername());
+        if (notModified(webRequest, download.version())) {
+            return null; //304
+        }
+
+        StreamingResponseBody body = rateLimitService.throttle(userDetails.getUsername(), download.body().get());
+
+        if (!path.endsWith("/")) {
+            // plain files are written on the request thread, the async pool is left to admitted zips
+            String fileName = path.substring(path.lastIndexOf("/") + 1);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            body.writeTo(response.getOutputStream());
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header("Content-Disposition", "attachment; filename=\"" + StoragePath.lastSegment(path) + ".zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Download selection",
+            description = "Downloads several files and directories as a single ZIP archive"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Archive streamed successfully",
+                    content = @Content(schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "400", description = "Invalid path format"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Resource not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "Too many folder downloads in progress")
+    })
+    @PostMapping("/resource/download")
+    public ResponseEntity<StreamingResponseBody> downloadSelection(@Valid @RequestBody DownloadRequest downloadRequest,
+                                                                   @AuthenticationPrincipal UserDetails userDetails) {
+        if (userDetails == null) {
+            throw new UnauthorizedUserException();
+        }
+
+        StreamingResponseBody body = rateLimitService.throttle(userDetails.getUsername(),
+                resourceService.downloadSelection(downloadRequest.paths(), userDetails.getUsername()));
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header("Content-Disposition", "attachment; filename=\"download.zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> downloadResumable(String path, String range, String ifRange,
+                                                                    String username, WebRequest webRequest) {
+        ZipLayout layout = resourceService.getZipLayout(path, username);
+        if (webRequest.checkNotModified(layout.eTag(), layout.lastModified())) {
+            return null; //304
         }
+
+        long length = layout.length();
+        List<HttpRange> ranges;
         try {
-            InputStream inputStream = resourceService.downloadResource(path, userDetails.getUsername());
+            ranges = range != null && ifRangeMatches(ifRange, layout) ? HttpRange.parseRanges(range) : List.of();
+        } catch (IllegalArgumentException e) {
+            ranges = List.of();
+        }
 
-            String fileName = path.endsWith("/")
-                    ? path.replaceAll("/+$", "").replaceAll("^.*/", "") + ".zip"
-                    : path.substring(path.lastIndexOf("/") + 1);
+        String fileName = StoragePath.lastSegment(path) + ".zip";
+        ResponseEntity.BodyBuilder builder;
+        long start = 0;
+        long end = length - 1;
 
-            MediaType contentType = path.endsWith("/")
-                    ? MediaType.parseMediaType("application/zip")
-                    : MediaType.APPLICATION_OCTET_STREAM;
+        if (ranges.size() == 1) {
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build(); //416
+            }
+            builder = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        } else {
+            builder = ResponseEntity.ok();
+        }
 
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
-                    .contentType(contentType)
-                    .body(new InputStreamResource(inputStream));
-        } catch (InvalidPathException e) {
-            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid or missing path")); //400
-        } catch (ResourceNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("The resource was not found")); //404
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
+        return builder
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .contentLength(end - start + 1)
+                .body(rateLimitService.throttle(username, resourceService.downloadZipRange(layout, start, end)));
+    }
+
+    // a negative lastModified leaves Last-Modified off, so only the ETag is compared
+    private static boolean notModified(WebRequest webRequest, ResourceVersion version) {
+        return version.lastModified() < 0
+                ? webRequest.checkNotModified(version.eTag())
+                : webRequest.checkNotModified(version.eTag(), version.lastModified());
+    }
+
+    private static boolean ifRangeMatches(String ifRange, ZipLayout layout) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals("\"" + layout.eTag() + "\"");
         }
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond()
+                    == layout.lastModified() / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    @ExceptionHandler(UnauthorizedUserException.class)
+    public ResponseEntity<ErrorResponse> handleUnauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponse("The user is not authorized")); //401
+    }
+
+    @ExceptionHandler(InvalidPathException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidPath() {
+        return ResponseEntity.badRequest().body(new ErrorResponse("Invalid or missing path")); //400
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleNotFound() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("The resource was not found")); //404
+    }
+
+    @ExceptionHandler(StorageBusyException.class)
+    public ResponseEntity<ErrorResponse> handleBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "5")
+                .body(new ErrorResponse("Storage is busy, try again later")); //503
     }
 
     @Operation(
@@ -174,6 +396,8 @@ public class ResourceController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("The resource was not found")); //404
         } catch (ResourceAlreadyExistsException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse("The file already exists")); //409
+        } catch (StorageBusyException e) {
+            return handleBusy(); //503
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
         }
@@ -202,6 +426,8 @@ public class ResourceController {
             return ResponseEntity.ok(resourceInfoResponse);
         } catch (InvalidPathException e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Invalid or missing path")); //400
+        } catch (StorageBusyException e) {
+            return handleBusy(); //503
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
         }
@@ -217,6 +443,7 @@ public class ResourceController {
             @ApiResponse(responseCode = "400", description = "Invalid path"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "409", description = "File already exists"),
+            @ApiResponse(responseCode = "413", description = "Storage quota exceeded"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping(value = "/resource", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -237,6 +464,10 @@ public class ResourceController {
             return ResponseEntity.badRequest().body(new ErrorResponse("Invalid or missing path")); //400
         } catch (ResourceAlreadyExistsException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse("The file already exists")); //409
+        } catch (QuotaExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(new ErrorResponse("Storage quota exceeded")); //413
+        } catch (StorageBusyException e) {
+            return handleBusy(); //503
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
         }
@@ -249,6 +480,7 @@ public class ResourceController {
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Directory contents retrieved",
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = ResourceInfoResponse.class)))),
+            @ApiResponse(responseCode = "304", description = "Directory not modified"),
             @ApiResponse(responseCode = "400", description = "Invalid path"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "404", description = "Directory not found"),
@@ -257,17 +489,26 @@ public class ResourceController {
     @GetMapping("/directory")
     public ResponseEntity<?> getDirectory(@Parameter(description = "Directory path", example = "projects/")
                                               @RequestParam String path,
-                                          @AuthenticationPrincipal UserDetails userDetails) {
+                                          @AuthenticationPrincipal UserDetails userDetails,
+                                          WebRequest webRequest) {
         if (userDetails == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponse("The user is not authorized")); //401
         }
         try {
-            List<ResourceInfoResponse> resourceInfoResponse = resourceService.getDirectoryInfo(path, userDetails.getUsername());
-            return ResponseEntity.ok(resourceInfoResponse);
+            Versioned<List<ResourceInfoResponse>> directory = resourceService.getDirectoryInfo(path, userDetails.getUsername());
+            if (notModified(webRequest, directory.version())) {
+                return null; //304
+            }
+
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(directory.body().get());
         } catch (InvalidPathException e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Invalid or missing path")); //400
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("The directory was not found")); //404
+        } catch (StorageBusyException e) {
+            return handleBusy(); //503
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
         }
@@ -302,6 +543,8 @@ public class ResourceController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("The parent folder does not exist")); //404
         } catch (ResourceAlreadyExistsException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse("The directory already exists")); //409
+        } catch (StorageBusyException e) {
+            return handleBusy(); //503
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Internal server error")); //500
         }
@@ -0,0 +1,50 @@
+package com.file.storage.controller;
+
+import com.file.storage.repository.ShardedStorageBackend;
+import com.file.storage.repository.UserShardRepository;
+import com.file.storage.service.ShardRebalancer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "shards")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.sharding.enabled", havingValue = "true")
+public class ShardEndpoint {
+    private final ShardedStorageBackend storageBackend;
+    private final UserShardRepository userShardRepository;
+    private final ShardRebalancer shardRebalancer;
+
+    @ReadOperation
+    public ShardsResponse shards() {
+        Map<String, Long> users = new LinkedHashMap<>();
+        storageBackend.shardNames().forEach(shard -> users.put(shard, 0L));
+        for (Object[] row : userShardRepository.countUsersByShard()) {
+            users.put((String) row[0], (Long) row[1]);
+        }
+        return new ShardsResponse(users, shardRebalancer.migrations());
+    }
+
+    @WriteOperation
+    public ShardRebalancer.Migration migrate(@Selector long userId, String target) {
+        return shardRebalancer.migrate(userId, target);
+    }
+
+    @DeleteOperation
+    public void abort(@Selector long userId) {
+        shardRebalancer.abort(userId);
+    }
+
+    public record ShardsResponse(Map<String, Long> users, List<ShardRebalancer.Migration> migrations) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.file.storage.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record DownloadRequest(@NotEmpty List<@NotBlank String> paths) {
+}
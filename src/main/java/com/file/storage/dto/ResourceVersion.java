@@ -0,0 +1,5 @@
+package com.file.storage.dto;
+
+public record ResourceVersion(String eTag,
+                              long lastModified) {
+}
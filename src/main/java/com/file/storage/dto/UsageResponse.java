@@ -0,0 +1,12 @@
+package com.file.storage.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Storage usage of the user")
+public record UsageResponse(@Schema(description = "Bytes stored", example = "1048576")
+                            long usedBytes,
+                            @Schema(description = "Number of stored files", example = "12")
+                            long objectCount,
+                            @Schema(description = "Maximum number of bytes the user may store", example = "10737418240")
+                            long quotaBytes) {
+}
@@ -1,7 +1,13 @@
 package com.file.storage.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.Size;
 
 public record UserResponse(
-        @Size(min = 3, max = 50, message = "Name must be between 3 and 50 characters") String username) {
+        @Size(min = 3, max = 50, message = "Name must be between 3 and 50 characters") String username,
+        @JsonInclude(JsonInclude.Include.NON_NULL) UsageResponse usage) {
+
+    public UserResponse(String username) {
+        this(username, null);
+    }
 }
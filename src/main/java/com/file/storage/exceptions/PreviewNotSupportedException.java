@@ -0,0 +1,4 @@
+package com.file.storage.exceptions;
+
+public class PreviewNotSupportedException extends RuntimeException {
+}
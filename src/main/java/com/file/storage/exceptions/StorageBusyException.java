@@ -0,0 +1,4 @@
+package com.file.storage.exceptions;
+
+public class StorageBusyException extends RuntimeException {
+}
@@ -0,0 +1,34 @@
+package com.file.storage.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "user_shards")
+public class UserShard {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false, length = 64)
+    private String shard;
+
+    @Column(name = "target_shard", length = 64)
+    private String targetShard;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public UserShard(Long userId, String shard) {
+        this.userId = userId;
+        this.shard = shard;
+        this.updatedAt = Instant.now();
+    }
+}
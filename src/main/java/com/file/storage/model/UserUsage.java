@@ -0,0 +1,43 @@
+package com.file.storage.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "user_usage")
+public class UserUsage {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "used_bytes", nullable = false)
+    private long usedBytes;
+
+    @Column(name = "object_count", nullable = false)
+    private long objectCount;
+
+    @Column(name = "reserved_bytes", nullable = false)
+    private long reservedBytes;
+
+    @Column(name = "reserved_objects", nullable = false)
+    private long reservedObjects;
+
+    @Column(name = "reserved_at")
+    private Instant reservedAt;
+
+    @Column(name = "quota_bytes")
+    private Long quotaBytes;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "reconciled_at")
+    private Instant reconciledAt;
+}
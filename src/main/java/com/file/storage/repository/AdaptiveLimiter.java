@@ -0,0 +1,202 @@
+package com.file.storage.repository;
+
+import com.file.storage.exceptions.StorageBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AdaptiveLimiter {
+    private static final double SHORT_WEIGHT = 0.2;
+    private static final double BASELINE_WEIGHT = 0.01;
+    private static final ThreadLocal<Long> QUEUE_TIMEOUT = new ThreadLocal<>();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final long queueTimeoutMillis;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejections;
+
+    private double limit;
+    private double shortLatency;
+    private double baselineLatency;
+    private long lastDecrease;
+
+    public AdaptiveLimiter(String endpoint, String type, MeterRegistry meterRegistry,
+                           int initialLimit, int minLimit, int maxLimit, double tolerance, double backoffRatio,
+                           long queueTimeoutMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.limit = initialLimit;
+
+        this.rejections = Counter.builder("storage.minio.limiter.rejections")
+                .tag("endpoint", endpoint)
+                .tag("type", type)
+                .register(meterRegistry);
+        Gauge.builder("storage.minio.limiter.limit", this, AdaptiveLimiter::limit)
+                .tag("endpoint", endpoint)
+                .tag("type", type)
+                .register(meterRegistry);
+        Gauge.builder("storage.minio.limiter.inflight", inflight, AtomicInteger::get)
+                .tag("endpoint", endpoint)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    public <T> T call(Callable<T> call) throws Exception {
+        Permit permit = acquire();
+        long started = System.nanoTime();
+        try {
+            T result = call.call();
+            permit.success(System.nanoTime() - started);
+            return result;
+        } catch (Exception e) {
+            permit.failure(e);
+            throw e;
+        }
+    }
+
+    // inside a download that was already admitted, failing fast would cut the response after its 200,
+    // so permits taken on this thread are waited for up to timeoutMillis instead
+    public static Queueing queueFor(long timeoutMillis) {
+        Long previous = QUEUE_TIMEOUT.get();
+        QUEUE_TIMEOUT.set(timeoutMillis);
+        return () -> {
+            if (previous == null) {
+                QUEUE_TIMEOUT.remove();
+            } else {
+                QUEUE_TIMEOUT.set(previous);
+            }
+        };
+    }
+
+    public static long queueTimeout() {
+        Long timeout = QUEUE_TIMEOUT.get();
+        return timeout != null ? timeout : 0;
+    }
+
+    public Permit acquire() {
+        if (tryAcquire()) {
+            return new Permit();
+        }
+
+        long timeout = Math.max(queueTimeout(), queueTimeoutMillis);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        synchronized (waiting) {
+            waiting.incrementAndGet();
+            try {
+                while (!tryAcquire()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        rejections.increment();
+                        throw new StorageBusyException();
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(waiting, remaining);
+                }
+                return new Permit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StorageBusyException();
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+    }
+
+    private boolean tryAcquire() {
+        int current = limit();
+        if (inflight.incrementAndGet() > current) {
+            inflight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void signalWaiters() {
+        if (waiting.get() > 0) {
+            synchronized (waiting) {
+                waiting.notifyAll();
+            }
+        }
+    }
+
+    private synchronized void onSuccess(long latencyNanos, int inflightAtRelease) {
+        if (latencyNanos >= 0) {
+            shortLatency = shortLatency == 0 ? latencyNanos : shortLatency + SHORT_WEIGHT * (latencyNanos - shortLatency);
+            baselineLatency = baselineLatency == 0
+                    ? latencyNanos
+                    : baselineLatency + BASELINE_WEIGHT * (latencyNanos - baselineLatency);
+            if (shortLatency > baselineLatency * tolerance) {
+                decrease();
+                return;
+            }
+        }
+        if (inflightAtRelease * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private synchronized void decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecrease < shortLatency) {
+            return;
+        }
+        lastDecrease = now;
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    public final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        public void success(long latencyNanos) {
+            if (released.compareAndSet(false, true)) {
+                onSuccess(latencyNanos, inflight.getAndDecrement());
+                signalWaiters();
+            }
+        }
+
+        public void failure(Exception e) {
+            if (!ReadHedger.isRetryable(e)) {
+                ignore();
+            } else if (released.compareAndSet(false, true)) {
+                inflight.decrementAndGet();
+                decrease();
+                signalWaiters();
+            }
+        }
+
+        public void ignore() {
+            if (released.compareAndSet(false, true)) {
+                inflight.decrementAndGet();
+                signalWaiters();
+            }
+        }
+    }
+
+    public interface Queueing extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
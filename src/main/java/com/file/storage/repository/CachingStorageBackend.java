@@ -0,0 +1,245 @@
+package com.file.storage.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class CachingStorageBackend implements StorageBackend {
+    private final StorageBackend delegate;
+    private final Consumer<List<String>> publisher;
+    private final LongSupplier clock;
+    private final long ttlMillis;
+    private final int maxListingSize;
+    private final Map<String, Cached<Optional<StorageObject>>> stats;
+    private final Map<ListingKey, Cached<List<StorageObject>>> listings;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter statHits;
+    private final Counter statMisses;
+    private final Counter listHits;
+    private final Counter listMisses;
+    private final Counter localInvalidations;
+    private final Counter remoteInvalidations;
+
+    public CachingStorageBackend(StorageBackend delegate,
+                                 Consumer<List<String>> publisher,
+                                 MeterRegistry meterRegistry,
+                                 LongSupplier clock,
+                                 long ttlMillis,
+                                 int maxEntries,
+                                 int maxListings,
+                                 int maxListingSize) {
+        this.delegate = delegate;
+        this.publisher = publisher;
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+        this.maxListingSize = maxListingSize;
+        this.stats = lru(maxEntries);
+        this.listings = lru(maxListings);
+
+        this.statHits = requests(meterRegistry, "stat", "hit");
+        this.statMisses = requests(meterRegistry, "stat", "miss");
+        this.listHits = requests(meterRegistry, "list", "hit");
+        this.listMisses = requests(meterRegistry, "list", "miss");
+        this.localInvalidations = invalidations(meterRegistry, "local");
+        this.remoteInvalidations = invalidations(meterRegistry, "remote");
+        Gauge.builder("storage.metadata.cache.size", stats, Map::size)
+                .tag("type", "stat")
+                .register(meterRegistry);
+        Gauge.builder("storage.metadata.cache.size", listings, Map::size)
+                .tag("type", "list")
+                .register(meterRegistry);
+    }
+
+    private static <K, V> Map<K, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String type, String result) {
+        return Counter.builder("storage.metadata.cache.requests")
+                .tag("type", type)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter invalidations(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("storage.metadata.cache.invalidations")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void initialize() {
+        delegate.initialize();
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String object) {
+        long now = clock.getAsLong();
+        Cached<Optional<StorageObject>> cached;
+        synchronized (stats) {
+            cached = stats.get(object);
+        }
+        if (cached != null && cached.expiresAt() > now) {
+            statHits.increment();
+            return cached.value();
+        }
+
+        statMisses.increment();
+        long observed = generation.get();
+        Optional<StorageObject> stat = delegate.stat(object);
+        synchronized (stats) {
+            if (generation.get() == observed) {
+                stats.put(object, new Cached<>(stat, now + ttlMillis));
+            }
+        }
+        return stat;
+    }
+
+    @Override
+    public Iterable<StorageObject> list(String prefix, boolean recursive) {
+        ListingKey key = new ListingKey(prefix, recursive);
+        long now = clock.getAsLong();
+        Cached<List<StorageObject>> cached;
+        synchronized (listings) {
+            cached = listings.get(key);
+        }
+        if (cached != null && cached.expiresAt() > now) {
+            listHits.increment();
+            return cached.value();
+        }
+
+        listMisses.increment();
+        long observed = generation.get();
+        Iterator<StorageObject> iterator = delegate.list(prefix, recursive).iterator();
+        List<StorageObject> head = new ArrayList<>();
+        while (head.size() <= maxListingSize && iterator.hasNext()) {
+            head.add(iterator.next());
+        }
+        if (iterator.hasNext() || head.size() > maxListingSize) {
+            Stream<StorageObject> rest = StreamSupport.stream(
+                    ((Iterable<StorageObject>) () -> iterator).spliterator(), false);
+            return Stream.concat(head.stream(), rest)::iterator;
+        }
+
+        List<StorageObject> listing = List.copyOf(head);
+        synchronized (listings) {
+            if (generation.get() == observed) {
+                listings.put(key, new Cached<>(listing, now + ttlMillis));
+            }
+        }
+        return listing;
+    }
+
+    @Override
+    public boolean exists(String path) {
+        if (path.endsWith("/")) {
+            return stat(path).isPresent() || list(path, false).iterator().hasNext();
+        }
+        return stat(path).isPresent();
+    }
+
+    @Override
+    public InputStream get(String object, String etag, long offset, long length) {
+        return delegate.get(object, etag, offset, length);
+    }
+
+    @Override
+    public void put(String object, InputStream inputStream, long size) {
+        try {
+            delegate.put(object, inputStream, size);
+        } finally {
+            changed(List.of(object));
+        }
+    }
+
+    @Override
+    public void copy(String from, String to) {
+        try {
+            delegate.copy(from, to);
+        } finally {
+            changed(List.of(to));
+        }
+    }
+
+    @Override
+    public void move(String from, String to) {
+        try {
+            delegate.move(from, to);
+        } finally {
+            changed(List.of(from, to));
+        }
+    }
+
+    @Override
+    public void deleteBatch(List<String> objects) {
+        try {
+            delegate.deleteBatch(objects);
+        } finally {
+            changed(objects);
+        }
+    }
+
+    public void invalidateRemote(Collection<String> objects) {
+        remoteInvalidations.increment(objects.size());
+        invalidate(objects);
+    }
+
+    @Override
+    public void changed(List<String> objects) {
+        localInvalidations.increment(objects.size());
+        invalidate(objects);
+        publisher.accept(objects);
+    }
+
+    private void invalidate(Collection<String> objects) {
+        synchronized (stats) {
+            generation.incrementAndGet();
+            for (String object : objects) {
+                if (object.endsWith("/")) {
+                    stats.keySet().removeIf(key -> key.startsWith(object));
+                } else {
+                    stats.remove(object);
+                }
+            }
+        }
+        synchronized (listings) {
+            for (String object : objects) {
+                if (object.endsWith("/")) {
+                    listings.keySet().removeIf(key -> object.startsWith(key.prefix()) || key.prefix().startsWith(object));
+                    continue;
+                }
+                for (int end = 0; end <= object.length(); end++) {
+                    String prefix = object.substring(0, end);
+                    listings.remove(new ListingKey(prefix, true));
+                    listings.remove(new ListingKey(prefix, false));
+                }
+            }
+        }
+    }
+
+    private record ListingKey(String prefix, boolean recursive) {
+    }
+
+    private record Cached<T>(T value, long expiresAt) {
+    }
+}
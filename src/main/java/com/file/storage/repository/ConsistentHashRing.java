@@ -0,0 +1,38 @@
+package com.file.storage.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+public class ConsistentHashRing {
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Map<String, Integer> weights, int virtualNodes) {
+        weights.forEach((shard, weight) -> {
+            for (int i = 0; i < weight * virtualNodes; i++) {
+                ring.put(hash(shard + "#" + i), shard);
+            }
+        });
+        if (ring.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard must have a positive weight");
+        }
+    }
+
+    public String locate(String key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
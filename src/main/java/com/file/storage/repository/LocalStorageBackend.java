@@ -0,0 +1,355 @@
+package com.file.storage.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+    private static final String EMPTY_ETAG = "d41d8cd98f00b204e9800998ecf8427e";
+
+    private final Path objects;
+    private final Path staging;
+
+    public LocalStorageBackend(@Value("${storage.local.root}") Path root) {
+        this.objects = root.resolve("objects").toAbsolutePath().normalize();
+        this.staging = root.resolve("staging").toAbsolutePath().normalize();
+        initialize();
+    }
+
+    @Override
+    public void initialize() {
+        try {
+            Files.createDirectories(objects);
+            Files.createDirectories(staging);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create storage directories under " + objects.getParent(), e);
+        }
+    }
+
+    @Override
+    public Iterable<StorageObject> list(String prefix, boolean recursive) {
+        String base = prefix.substring(0, prefix.lastIndexOf('/') + 1);
+        Path directory = resolve(base);
+
+        return () -> Files.isDirectory(directory)
+                ? new Listing(directory, base, prefix, recursive)
+                : List.<StorageObject>of().iterator();
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String object) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(resolve(object), BasicFileAttributes.class);
+            if (attributes.isDirectory() != object.endsWith("/")) {
+                return Optional.empty();
+            }
+            return Optional.of(toStorageObject(object, attributes));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream get(String object, String etag, long offset, long length) {
+        Path file = resolve(object);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            if (etag != null) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!etag.equals(etag(attributes))) {
+                    throw new IllegalStateException("Object '" + object + "' no longer has etag " + etag);
+                }
+            }
+            long end = length < 0 ? channel.size() : Math.min(channel.size(), offset + length);
+            return new RangeInputStream(channel, offset, end);
+        } catch (IOException e) {
+            close(channel);
+            throw new UncheckedIOException("Failed to open " + object, e);
+        } catch (RuntimeException e) {
+            close(channel);
+            throw e;
+        }
+    }
+
+    @Override
+    public void put(String object, InputStream inputStream, long size) {
+        Path target = resolve(object);
+        try {
+            if (object.endsWith("/")) {
+                Files.createDirectories(target);
+                return;
+            }
+
+            Path temp = Files.createTempFile(staging, "put-", ".tmp");
+            try {
+                Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.createDirectories(target.getParent());
+                install(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store " + object, e);
+        }
+    }
+
+    @Override
+    public void copy(String from, String to) {
+        Path source = resolve(from);
+        Path target = resolve(to);
+        try {
+            if (from.endsWith("/")) {
+                Files.createDirectories(target);
+                return;
+            }
+
+            Path temp = Files.createTempFile(staging, "copy-", ".tmp");
+            try {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.createDirectories(target.getParent());
+                install(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy " + from + " to " + to, e);
+        }
+    }
+
+    @Override
+    public void move(String from, String to) {
+        Path source = resolve(from);
+        Path target = resolve(to);
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to move " + from + " to " + to, e);
+        }
+    }
+
+    @Override
+    public void deleteBatch(List<String> objects) {
+        for (String object : objects) {
+            Path path = resolve(object);
+            try {
+                if (object.endsWith("/")) {
+                    deleteTree(path);
+                } else {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete " + object, e);
+            }
+        }
+    }
+
+    // keys are used verbatim, so one with relative segments is refused rather than normalized into another key
+    private Path resolve(String object) {
+        for (String segment : object.split("/")) {
+            if (segment.equals(".") || segment.equals("..")) {
+                throw new IllegalArgumentException("Object name has relative segments: " + object);
+            }
+        }
+        Path path = objects.resolve(object);
+        if (!path.startsWith(objects)) {
+            throw new IllegalArgumentException("Object name escapes the storage root: " + object);
+        }
+        return path;
+    }
+
+    private static void install(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteTree(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static StorageObject toStorageObject(String name, BasicFileAttributes attributes) {
+        return new StorageObject(name, attributes.isDirectory() ? 0 : attributes.size(), etag(attributes),
+                attributes.lastModifiedTime().toInstant(), false);
+    }
+
+    private static String etag(BasicFileAttributes attributes) {
+        if (attributes.isDirectory()) {
+            return EMPTY_ETAG;
+        }
+        return Long.toHexString(attributes.size()) + "-"
+                + Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS));
+    }
+
+    private static void close(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static final class Listing implements Iterator<StorageObject> {
+        private final String prefix;
+        private final boolean recursive;
+        private final Deque<Iterator<Entry>> stack = new ArrayDeque<>();
+        private StorageObject next;
+
+        private Listing(Path directory, String base, String prefix, boolean recursive) {
+            this.prefix = prefix;
+            this.recursive = recursive;
+
+            if (!base.isEmpty() && base.equals(prefix)) {
+                try {
+                    next = toStorageObject(base, Files.readAttributes(directory, BasicFileAttributes.class));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            stack.push(children(directory, base));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !stack.isEmpty()) {
+                Iterator<Entry> children = stack.peek();
+                if (!children.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+
+                Entry entry = children.next();
+                if (!entry.name().startsWith(prefix)) {
+                    continue;
+                }
+                if (entry.attributes().isDirectory() && !recursive) {
+                    next = StorageObject.directory(entry.name());
+                } else {
+                    next = toStorageObject(entry.name(), entry.attributes());
+                }
+                if (entry.attributes().isDirectory() && recursive) {
+                    stack.push(children(entry.path(), entry.name()));
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public StorageObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            StorageObject current = next;
+            next = null;
+            return current;
+        }
+
+        private static Iterator<Entry> children(Path directory, String base) {
+            try (Stream<Path> paths = Files.list(directory)) {
+                return paths.map(path -> Entry.of(path, base))
+                        .filter(Objects::nonNull)
+                        .sorted(Comparator.comparing(Entry::name))
+                        .toList()
+                        .iterator();
+            } catch (NoSuchFileException e) {
+                return List.<Entry>of().iterator();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private record Entry(Path path, String name, BasicFileAttributes attributes) {
+
+        static Entry of(Path path, String base) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                String name = base + path.getFileName() + (attributes.isDirectory() ? "/" : "");
+                return new Entry(path, name, attributes);
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        private RangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
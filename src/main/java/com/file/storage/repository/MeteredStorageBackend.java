@@ -0,0 +1,203 @@
+package com.file.storage.repository;
+
+import com.file.storage.config.RequestTimings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class MeteredStorageBackend implements StorageBackend {
+    // S3 returns listings in pages of up to 1000 keys, the call after the last key of a page fetches the next one
+    private static final int LIST_PAGE_SIZE = 1000;
+
+    private final StorageBackend delegate;
+    private final MeterRegistry meterRegistry;
+    private final String endpoint;
+    private final Counter bytesRead;
+    private final Counter bytesWritten;
+
+    public MeteredStorageBackend(StorageBackend delegate, String endpoint, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.endpoint = endpoint;
+        this.bytesRead = bytes("get");
+        this.bytesWritten = bytes("put");
+    }
+
+    private Counter bytes(String operation) {
+        return Counter.builder("storage.operation.bytes")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void initialize() {
+        delegate.initialize();
+    }
+
+    @Override
+    public Iterable<StorageObject> list(String prefix, boolean recursive) {
+        Iterable<StorageObject> objects = delegate.list(prefix, recursive);
+        return () -> new Iterator<>() {
+            private Iterator<StorageObject> iterator;
+            private int returned;
+            private int nextPage;
+
+            @Override
+            public boolean hasNext() {
+                return timed(() -> iterator.hasNext());
+            }
+
+            @Override
+            public StorageObject next() {
+                StorageObject object = timed(() -> iterator.next());
+                returned++;
+                return object;
+            }
+
+            // only the call that fetches a page is timed, the rest are served from memory
+            private <T> T timed(Supplier<T> call) {
+                if (returned < nextPage) {
+                    return call.get();
+                }
+                nextPage = returned + LIST_PAGE_SIZE;
+                return record("list", () -> {
+                    if (iterator == null) {
+                        iterator = objects.iterator();
+                    }
+                    return call.get();
+                });
+            }
+        };
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String object) {
+        return record("stat", () -> delegate.stat(object));
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return record("stat", () -> delegate.exists(path));
+    }
+
+    @Override
+    public InputStream get(String object, String etag, long offset, long length) {
+        InputStream inputStream = record("get", () -> delegate.get(object, etag, offset, length));
+        return new CountingInputStream(inputStream, bytesRead);
+    }
+
+    @Override
+    public void put(String object, InputStream inputStream, long size) {
+        record("put", () -> {
+            delegate.put(object, new CountingInputStream(inputStream, bytesWritten), size);
+            return null;
+        });
+    }
+
+    @Override
+    public void copy(String from, String to) {
+        record("copy", () -> {
+            delegate.copy(from, to);
+            return null;
+        });
+    }
+
+    @Override
+    public void move(String from, String to) {
+        record("move", () -> {
+            delegate.move(from, to);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteBatch(List<String> objects) {
+        record("remove", () -> {
+            delegate.deleteBatch(objects);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(String object) {
+        record("remove", () -> {
+            delegate.delete(object);
+            return null;
+        });
+    }
+
+    private <T> T record(String operation, Supplier<T> call) {
+        long started = System.nanoTime();
+        try {
+            T result = call.get();
+            long elapsed = System.nanoTime() - started;
+            timer(operation, "success").record(elapsed, TimeUnit.NANOSECONDS);
+            RequestTimings.record("storage", elapsed);
+            return result;
+        } catch (RuntimeException e) {
+            long elapsed = System.nanoTime() - started;
+            timer(operation, "error").record(elapsed, TimeUnit.NANOSECONDS);
+            RequestTimings.record("storage", elapsed);
+            Counter.builder("storage.operation.errors")
+                    .tag("operation", operation)
+                    .tag("endpoint", endpoint)
+                    .tag("exception", rootCause(e).getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        }
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("storage.operation")
+                .tag("operation", operation)
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    static Throwable rootCause(Throwable e) {
+        while (e.getCause() != null && e.getCause() != e) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    static class CountingInputStream extends FilterInputStream {
+        private final Counter counter;
+
+        CountingInputStream(InputStream in, Counter counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                counter.increment(read);
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.file.storage.repository;
+
+import com.file.storage.config.RequestTimings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Repository;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+// reads go through StorageBackend, which already carries the metadata cache, the hedger and the disk cache;
+// only uploads, whose request thread would otherwise wait for the whole body, use the async client
+@Repository
+@ConditionalOnExpression("'${storage.backend:minio}' == 'minio' and !${storage.sharding.enabled:false}")
+public class MinioAsyncRepository {
+    private final MinioAsyncClient minioAsyncClient;
+    private final AdaptiveLimiter transferLimiter;
+    private final MeterRegistry meterRegistry;
+    private final Counter bytesWritten;
+    private final String bucketName;
+
+    public MinioAsyncRepository(MinioAsyncClient minioAsyncClient,
+                                StorageLimiters storageLimiters,
+                                MeterRegistry meterRegistry,
+                                @Value("${minio.bucket-name}") String bucketName) {
+        this.minioAsyncClient = minioAsyncClient;
+        this.transferLimiter = storageLimiters.forEndpoint("default").transfer();
+        this.meterRegistry = meterRegistry;
+        this.bytesWritten = Counter.builder("storage.operation.bytes")
+                .baseUnit("bytes")
+                .tag("operation", "put")
+                .tag("endpoint", "default")
+                .register(meterRegistry);
+        this.bucketName = bucketName;
+    }
+
+    // waits for a transfer permit on the calling thread, so it must not be called from a client callback;
+    // metered under the same names as MeteredStorageBackend, the completion lands on a client thread
+    // so the request's Server-Timing recorder is taken here
+    public CompletableFuture<ObjectWriteResponse> putObject(String object, InputStream inputStream, long objectSize, int partSize) {
+        LongConsumer requestTimings = RequestTimings.recorder("storage");
+        AdaptiveLimiter.Permit permit = transferLimiter.acquire();
+        long started = System.nanoTime();
+        CompletableFuture<ObjectWriteResponse> response;
+        try {
+            response = minioAsyncClient.putObject(PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(object)
+                    .stream(new MeteredStorageBackend.CountingInputStream(inputStream, bytesWritten), objectSize, partSize)
+                    .build()
+            );
+        } catch (Exception e) {
+            permit.failure(e);
+            record(System.nanoTime() - started, e, requestTimings);
+            return CompletableFuture.failedFuture(new RuntimeException(e));
+        }
+
+        return response.whenComplete((written, error) -> {
+            long elapsed = System.nanoTime() - started;
+            if (error == null) {
+                permit.success(elapsed);
+            } else {
+                permit.failure(error.getCause() instanceof Exception cause ? cause : new RuntimeException(error));
+            }
+            record(elapsed, error, requestTimings);
+        });
+    }
+
+    private void record(long elapsed, Throwable error, LongConsumer requestTimings) {
+        Timer.builder("storage.operation")
+                .tag("operation", "put")
+                .tag("endpoint", "default")
+                .tag("outcome", error == null ? "success" : "error")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        requestTimings.accept(elapsed);
+        if (error != null) {
+            Counter.builder("storage.operation.errors")
+                    .tag("operation", "put")
+                    .tag("endpoint", "default")
+                    .tag("exception", MeteredStorageBackend.rootCause(error).getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
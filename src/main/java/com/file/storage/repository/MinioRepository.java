@@ -1,144 +1,301 @@
 package com.file.storage.repository;
 
+import com.file.storage.exceptions.StorageBusyException;
 import io.minio.*;
 import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.client.ResourceAccessException;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
 
 @Repository
-public class MinioRepository {
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
+public class MinioRepository implements StorageBackend {
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final long UNKNOWN_SIZE_PART_SIZE = 10 * 1024 * 1024;
+
     private final MinioClient minioClient;
+    private final ReadHedger readHedger;
+    private final AdaptiveLimiter metadataLimiter;
+    private final AdaptiveLimiter transferLimiter;
     private final String bucketName;
 
+    @Autowired
     public MinioRepository(MinioClient minioClient,
+                           ReadHedger readHedger,
+                           StorageLimiters storageLimiters,
                            @Value("${minio.bucket-name}") String bucketName) {
+        this(minioClient, readHedger, storageLimiters.forEndpoint("default"), bucketName);
+    }
+
+    public MinioRepository(MinioClient minioClient,
+                           ReadHedger readHedger,
+                           StorageLimiters.Limits limits,
+                           String bucketName) {
         this.minioClient = minioClient;
+        this.readHedger = readHedger;
+        this.metadataLimiter = limits.metadata();
+        this.transferLimiter = limits.transfer();
         this.bucketName = bucketName;
     }
 
-    public Iterable<Result<Item>> listObjects(String prefix, String delimiter, Boolean recursive) {
-        ListObjectsArgs.Builder builder = ListObjectsArgs.builder()
+    @Override
+    public void initialize() {
+        try {
+            boolean exists = minioClient.bucketExists(BucketExistsArgs.builder()
+                    .bucket(bucketName)
+                    .build()
+            );
+            if (!exists) {
+                minioClient.makeBucket(MakeBucketArgs.builder()
+                        .bucket(bucketName)
+                        .build()
+                );
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Не удалось проверить или создать бакет", e);
+        }
+    }
+
+    @Override
+    public Iterable<StorageObject> list(String prefix, boolean recursive) {
+        Iterable<Result<Item>> results = minioClient.listObjects(ListObjectsArgs.builder()
                 .bucket(bucketName)
-                .prefix(prefix);
+                .prefix(prefix)
+                .recursive(recursive)
+                .build());
 
-        if (delimiter != null) {
-            builder.delimiter(delimiter);
-        }
-        if (recursive != null) {
-            builder.recursive(recursive);
-        }
+        return () -> new Iterator<>() {
+            private final Iterator<Result<Item>> iterator = results.iterator();
+
+            @Override
+            public boolean hasNext() {
+                AdaptiveLimiter.Permit permit = metadataLimiter.acquire();
+                try {
+                    return iterator.hasNext();
+                } finally {
+                    permit.ignore();
+                }
+            }
 
-        return minioClient.listObjects(builder.build());
+            @Override
+            public StorageObject next() {
+                try {
+                    return toStorageObject(iterator.next().get());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
     }
 
-    public InputStream getObject(String object) {
+    @Override
+    public Optional<StorageObject> stat(String object) {
         try {
-            return minioClient.getObject(GetObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(object)
-                    .build()
-            );
+            StatObjectResponse stat = statObject(object);
+            return Optional.of(new StorageObject(object, stat.size(), stat.etag(),
+                    stat.lastModified().toInstant(), false));
+        } catch (ErrorResponseException e) {
+            if (e.errorResponse().code().equals("NoSuchKey")) {
+                return Optional.empty();
+            }
+            throw new RuntimeException(e);
+        } catch (StorageBusyException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    public void copyObject(String objectFrom, String objectTo) {
+    @Override
+    public InputStream get(String object, String etag, long offset, long length) {
         try {
-            minioClient.copyObject(CopyObjectArgs.builder()
+            GetObjectArgs.Builder builder = GetObjectArgs.builder()
                     .bucket(bucketName)
-                    .object(objectTo)
-                    .source(CopySource.builder()
-                            .bucket(bucketName)
-                            .object(objectFrom)
-                            .build())
-                    .build()
-            );
+                    .object(object);
+            if (offset > 0 || length >= 0) {
+                builder.offset(offset);
+            }
+            if (length >= 0) {
+                builder.length(length);
+            }
+            if (etag != null) {
+                builder.matchETag(etag);
+            }
+            GetObjectArgs args = builder.build();
+            return transfer(() -> readHedger.read("getObject", () -> minioClient.getObject(args)));
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    public void removeObject(String object) {
+    // the permit covers the request up to its response headers, the body is read at the client's pace
+    // and must not hold the limit or count as storage latency
+    private InputStream transfer(Callable<InputStream> open) throws Exception {
+        return transferLimiter.call(open);
+    }
+
+    @Override
+    public void put(String object, InputStream inputStream, long size) {
+        AdaptiveLimiter.Permit permit = transferLimiter.acquire();
+        TimedInputStream source = new TimedInputStream(inputStream);
+        long started = System.nanoTime();
         try {
-            minioClient.removeObject(RemoveObjectArgs.builder()
+            minioClient.putObject(PutObjectArgs.builder()
                     .bucket(bucketName)
                     .object(object)
+                    .stream(source, size, size < 0 ? UNKNOWN_SIZE_PART_SIZE : -1)
                     .build()
             );
+            permit.success(System.nanoTime() - started - source.readNanos);
         } catch (Exception e) {
+            permit.failure(e);
             throw new RuntimeException(e);
         }
     }
 
-    public StatObjectResponse statObject(String object) {
+    // time spent waiting for the uploading client or its throttle is not storage latency
+    private static final class TimedInputStream extends FilterInputStream {
+        private long readNanos;
+
+        private TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long started = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                readNanos += System.nanoTime() - started;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long started = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                readNanos += System.nanoTime() - started;
+            }
+        }
+    }
+
+    @Override
+    public void copy(String from, String to) {
         try {
-            return minioClient.statObject(StatObjectArgs.builder()
+            metadataLimiter.call(() -> minioClient.copyObject(CopyObjectArgs.builder()
                     .bucket(bucketName)
-                    .object(object)
+                    .object(to)
+                    .source(CopySource.builder()
+                            .bucket(bucketName)
+                            .object(from)
+                            .build())
                     .build()
-            );
+            ));
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    public void putObject(String object, InputStream inputStream, long objectSize, int partSize) {
+    @Override
+    public void move(String from, String to) {
+        if (!from.endsWith("/")) {
+            copy(from, to);
+            delete(from);
+            return;
+        }
+
+        List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+        for (StorageObject object : list(from, true)) {
+            copy(object.name(), to + object.name().substring(from.length()));
+            batch.add(object.name());
+            if (batch.size() == DELETE_BATCH_SIZE) {
+                deleteBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleteBatch(batch);
+        }
+    }
+
+    @Override
+    public void deleteBatch(List<String> objects) {
         try {
-            minioClient.putObject(PutObjectArgs.builder()
+            Iterable<Result<DeleteError>> errors = minioClient.removeObjects(RemoveObjectsArgs.builder()
                     .bucket(bucketName)
-                    .object(object)
-                    .stream(inputStream, objectSize, partSize)
+                    .objects(objects.stream().map(DeleteObject::new).toList())
                     .build()
             );
+            List<Result<DeleteError>> failed = metadataLimiter.call(() -> {
+                List<Result<DeleteError>> results = new ArrayList<>();
+                errors.forEach(results::add);
+                return results;
+            });
+            for (Result<DeleteError> error : failed) {
+                DeleteError deleteError = error.get();
+                throw new RuntimeException("Failed to delete " + deleteError.objectName() + ": " + deleteError.message());
+            }
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    public void ensureBucketExists() {
+    @Override
+    public void delete(String object) {
         try {
-            boolean exists = minioClient.bucketExists(BucketExistsArgs.builder()
-                    .bucket(bucketName)
-                    .build()
-            );
-            if (!exists) {
-                minioClient.makeBucket(MakeBucketArgs.builder()
+            metadataLimiter.call(() -> {
+                minioClient.removeObject(RemoveObjectArgs.builder()
                         .bucket(bucketName)
+                        .object(object)
                         .build()
                 );
-            }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
-            throw new RuntimeException("Не удалось проверить или создать бакет", e);
+            throw new RuntimeException(e);
         }
     }
 
-    public boolean resourceOrDirectoryExists(String fullPath) {
+    @Override
+    public boolean exists(String fullPath) {
         try {
             if (fullPath.endsWith("/")) {
-                boolean hasObjectsFolder = minioClient.listObjects(ListObjectsArgs.builder()
+                boolean hasObjectsFolder = metadataLimiter.call(() -> minioClient.listObjects(ListObjectsArgs.builder()
                         .bucket(bucketName)
                         .prefix(fullPath)
                         .maxKeys(1)
                         .build()
-                ).iterator().hasNext();
+                ).iterator().hasNext());
 
-                boolean isEmptyFolder = minioClient.statObject(StatObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(fullPath)
-                        .build()
-                ) != null;
+                boolean isEmptyFolder = statObject(fullPath) != null;
                 return hasObjectsFolder || isEmptyFolder;
             } else {
-                minioClient.statObject(StatObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(fullPath)
-                        .build()
-                );
+                statObject(fullPath);
                 return true;
             }
         } catch (ErrorResponseException e) {
@@ -146,8 +303,30 @@ public class MinioRepository {
                 return false;
             }
             throw new ResourceAccessException("Ошибка проверки существования ресурса");
+        } catch (StorageBusyException e) {
+            throw e;
         } catch (Exception e) {
             throw new ResourceAccessException("Failed to check resource existence");
         }
     }
-}
\ No newline at end of file
+
+    private StatObjectResponse statObject(String object) throws Exception {
+        StatObjectArgs args = StatObjectArgs.builder()
+                .bucket(bucketName)
+                .object(object)
+                .build();
+        return metadataLimiter.call(() -> readHedger.read("statObject", () -> minioClient.statObject(args)));
+    }
+
+    private static StorageObject toStorageObject(Item item) {
+        if (item.isDir()) {
+            return StorageObject.directory(item.objectName());
+        }
+        return new StorageObject(item.objectName(), item.size(), unquote(item.etag()),
+                item.lastModified().toInstant(), false);
+    }
+
+    private static String unquote(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
+    }
+}
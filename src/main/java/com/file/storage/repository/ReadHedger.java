@@ -0,0 +1,264 @@
+package com.file.storage.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.errors.ErrorResponseException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+public class ReadHedger {
+    private static final Set<String> RETRYABLE_CODES = Set.of(
+            "InternalError", "ServiceUnavailable", "SlowDown", "RequestTimeout", "XMinioServerNotInitialized");
+
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final long timeoutMillis;
+    private final boolean hedgingEnabled;
+    private final long minHedgeDelayMillis;
+    private final double hedgePercentile;
+    private final int hedgeBudgetPercent;
+
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final AtomicInteger readsInFlight = new AtomicInteger();
+    private final AtomicInteger hedgesInFlight = new AtomicInteger();
+
+    public ReadHedger(@Qualifier("storageReadExecutor") Executor executor,
+                      MeterRegistry meterRegistry,
+                      @Value("${storage.minio.read.max-attempts}") int maxAttempts,
+                      @Value("${storage.minio.read.backoff-ms}") long backoffMillis,
+                      @Value("${storage.minio.read.max-backoff-ms}") long maxBackoffMillis,
+                      @Value("${storage.minio.read.timeout-ms}") long timeoutMillis,
+                      @Value("${storage.minio.hedge.enabled}") boolean hedgingEnabled,
+                      @Value("${storage.minio.hedge.min-delay-ms}") long minHedgeDelayMillis,
+                      @Value("${storage.minio.hedge.percentile}") double hedgePercentile,
+                      @Value("${storage.minio.hedge.budget-percent}") int hedgeBudgetPercent) {
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeBudgetPercent = hedgeBudgetPercent;
+    }
+
+    public <T> T read(String operation, Callable<T> call) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return attempt(operation, call);
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                counter("storage.minio.read.retries", operation).increment();
+
+                long ceiling = Math.min(maxBackoffMillis, backoffMillis << (attempt - 1));
+                Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            }
+        }
+    }
+
+    private <T> T attempt(String operation, Callable<T> call) throws Exception {
+        LatencyWindow window = latencies.computeIfAbsent(operation, ignored -> new LatencyWindow());
+        long started = System.nanoTime();
+
+        CompletableFuture<Long> running = new CompletableFuture<>();
+        CompletableFuture<T> primary = submit(call, running);
+        readsInFlight.incrementAndGet();
+        CompletableFuture<T> hedge = null;
+        T result = null;
+        try {
+            // time spent queued in the read executor is not storage latency, so both the hedge delay
+            // and the latency window start when the primary actually runs
+            long runningSince = running.get(remaining(started), TimeUnit.MILLISECONDS);
+            if (hedgingEnabled) {
+                long hedgeDelay = Math.max(minHedgeDelayMillis, window.percentile(hedgePercentile));
+                long hedgeAt = runningSince + TimeUnit.MILLISECONDS.toNanos(Math.min(hedgeDelay, timeoutMillis));
+                try {
+                    result = primary.get(Math.min(TimeUnit.NANOSECONDS.toMillis(hedgeAt - System.nanoTime()),
+                            remaining(started)), TimeUnit.MILLISECONDS);
+                    window.record(System.nanoTime() - runningSince);
+                    return result;
+                } catch (TimeoutException e) {
+                    if (hedgeDelay < timeoutMillis && remaining(started) > 0) {
+                        hedge = hedge(operation, call);
+                    }
+                }
+            }
+
+            result = hedge == null
+                    ? primary.get(remaining(started), TimeUnit.MILLISECONDS)
+                    : firstSuccess(primary, hedge).get(remaining(started), TimeUnit.MILLISECONDS);
+            window.record(System.nanoTime() - runningSince);
+
+            if (hedge != null) {
+                boolean hedgeWon = hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.getNow(null) == result;
+                Counter.builder("storage.minio.hedge.wins")
+                        .tag("operation", operation)
+                        .tag("winner", hedgeWon ? "hedge" : "primary")
+                        .register(meterRegistry)
+                        .increment();
+            }
+            return result;
+        } catch (TimeoutException e) {
+            counter("storage.minio.read.timeouts", operation).increment();
+            throw new InterruptedIOException("MinIO " + operation + " timed out after " + timeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            readsInFlight.decrementAndGet();
+            discardOthers(result, primary, hedge);
+        }
+    }
+
+    // a hedge is extra load on a store that is already slow, so at most hedgeBudgetPercent of the reads
+    // in flight may have one, counted until the hedge itself finishes rather than until the read returns
+    private <T> CompletableFuture<T> hedge(String operation, Callable<T> call) {
+        int budget = Math.max(1, readsInFlight.get() * hedgeBudgetPercent / 100);
+        if (hedgesInFlight.incrementAndGet() > budget) {
+            hedgesInFlight.decrementAndGet();
+            counter("storage.minio.hedge.skipped", operation).increment();
+            return null;
+        }
+        counter("storage.minio.hedge.requests", operation).increment();
+        CompletableFuture<T> hedge = submit(call, new CompletableFuture<>());
+        hedge.whenComplete((result, error) -> hedgesInFlight.decrementAndGet());
+        return hedge;
+    }
+
+    private long remaining(long started) {
+        return Math.max(0, timeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> call, CompletableFuture<Long> running) {
+        return CompletableFuture.supplyAsync(() -> {
+            running.complete(System.nanoTime());
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private static <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> primary, CompletableFuture<T> hedge) {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        primary.whenComplete((result, error) -> {
+            if (error == null) {
+                winner.complete(result);
+            } else {
+                hedge.whenComplete((ignored, hedgeError) -> {
+                    if (hedgeError != null) {
+                        winner.completeExceptionally(error);
+                    }
+                });
+            }
+        });
+        hedge.whenComplete((result, error) -> {
+            if (error == null) {
+                winner.complete(result);
+            } else {
+                primary.whenComplete((ignored, primaryError) -> {
+                    if (primaryError != null) {
+                        winner.completeExceptionally(primaryError);
+                    }
+                });
+            }
+        });
+        return winner;
+    }
+
+    private static <T> void discardOthers(T kept, CompletableFuture<T> primary, CompletableFuture<T> hedge) {
+        for (CompletableFuture<T> future : hedge == null ? List.of(primary) : List.of(primary, hedge)) {
+            future.thenAccept(result -> {
+                if (result != kept && result instanceof Closeable closeable) {
+                    try {
+                        closeable.close();
+                    } catch (IOException e) {
+                        log.debug("Failed to close discarded response", e);
+                    }
+                }
+            });
+        }
+    }
+
+    static boolean isRetryable(Exception e) {
+        if (e instanceof ErrorResponseException errorResponse) {
+            return RETRYABLE_CODES.contains(errorResponse.errorResponse().code());
+        }
+        return e instanceof IOException;
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                ? e.getCause().getCause()
+                : e.getCause();
+        if (cause instanceof Exception exception) {
+            return exception;
+        }
+        throw (Error) cause;
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    static final class LatencyWindow {
+        private static final int SIZE = 512;
+
+        private final long[] samples = new long[SIZE];
+        private int count;
+        private int next;
+        private long cachedMillis;
+        private int sinceRefresh = Integer.MAX_VALUE;
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % SIZE;
+            count = Math.min(count + 1, SIZE);
+            sinceRefresh++;
+        }
+
+        synchronized long percentile(double percentile) {
+            if (count < 20) {
+                return Long.MAX_VALUE;
+            }
+            if (sinceRefresh >= 32) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                cachedMillis = TimeUnit.NANOSECONDS.toMillis(sorted[(int) Math.ceil(percentile * count) - 1]);
+                sinceRefresh = 0;
+            }
+            return cachedMillis;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.file.storage.repository;
+
+import com.file.storage.config.ShardingProperties;
+import com.file.storage.model.UserShard;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.sharding.enabled", havingValue = "true")
+public class ShardRouter {
+    private static final Pattern USER_FOLDER = Pattern.compile("user-(\\d+)-files/");
+
+    private final UserShardRepository userShardRepository;
+    private final ConsistentHashRing ring;
+    private final String defaultShard;
+    private final long assignmentTtlMillis;
+    private final Map<Long, CachedRoute> routes = new ConcurrentHashMap<>();
+
+    public ShardRouter(UserShardRepository userShardRepository, ShardingProperties properties) {
+        this.userShardRepository = userShardRepository;
+        this.defaultShard = properties.getDefaultShard();
+        this.assignmentTtlMillis = properties.getAssignmentTtlMs();
+
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put(properties.getDefaultShard(), properties.getDefaultWeight());
+        properties.getShards().forEach(shard -> weights.put(shard.getName(), shard.getWeight()));
+        this.ring = new ConsistentHashRing(weights, properties.getVirtualNodes());
+    }
+
+    public Route route(String object) {
+        Matcher matcher = USER_FOLDER.matcher(object);
+        if (!matcher.find()) {
+            return new Route(defaultShard, null);
+        }
+        return route(Long.parseLong(matcher.group(1)));
+    }
+
+    public Route route(long userId) {
+        CachedRoute cached = routes.get(userId);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.route();
+        }
+
+        Route route = userShardRepository.findById(userId)
+                .map(ShardRouter::toRoute)
+                .orElseGet(() -> assign(userId));
+        routes.put(userId, new CachedRoute(route, System.currentTimeMillis() + assignmentTtlMillis));
+        return route;
+    }
+
+    public void beginMigration(long userId, String target) {
+        UserShard assignment = userShardRepository.findById(userId)
+                .orElseGet(() -> new UserShard(userId, route(userId).shard()));
+        if (assignment.getTargetShard() != null) {
+            throw new IllegalStateException("User " + userId + " is already moving to " + assignment.getTargetShard());
+        }
+        assignment.setTargetShard(target);
+        assignment.setUpdatedAt(Instant.now());
+        userShardRepository.save(assignment);
+        routes.remove(userId);
+    }
+
+    public void completeMigration(long userId) {
+        UserShard assignment = userShardRepository.findById(userId).orElseThrow();
+        assignment.setShard(assignment.getTargetShard());
+        assignment.setTargetShard(null);
+        assignment.setUpdatedAt(Instant.now());
+        userShardRepository.save(assignment);
+        routes.remove(userId);
+    }
+
+    public void abortMigration(long userId) {
+        userShardRepository.findById(userId).ifPresent(assignment -> {
+            assignment.setTargetShard(null);
+            assignment.setUpdatedAt(Instant.now());
+            userShardRepository.save(assignment);
+        });
+        routes.remove(userId);
+    }
+
+    public List<UserShard> migrating() {
+        return userShardRepository.findByTargetShardIsNotNull();
+    }
+
+    public long assignmentTtlMillis() {
+        return assignmentTtlMillis;
+    }
+
+    private Route assign(long userId) {
+        String shard = ring.locate("user-" + userId);
+        try {
+            userShardRepository.saveAndFlush(new UserShard(userId, shard));
+            log.info("Placed user {} on shard '{}'", userId, shard);
+            return new Route(shard, null);
+        } catch (DataIntegrityViolationException e) {
+            return userShardRepository.findById(userId)
+                    .map(ShardRouter::toRoute)
+                    .orElse(new Route(defaultShard, null));
+        }
+    }
+
+    private static Route toRoute(UserShard assignment) {
+        return new Route(assignment.getShard(), assignment.getTargetShard());
+    }
+
+    public record Route(String shard, String target) {
+
+        public boolean migrating() {
+            return target != null;
+        }
+    }
+
+    private record CachedRoute(Route route, long expiresAt) {
+    }
+}
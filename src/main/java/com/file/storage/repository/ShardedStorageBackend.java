@@ -0,0 +1,150 @@
+package com.file.storage.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class ShardedStorageBackend implements StorageBackend {
+    private final Map<String, StorageBackend> shards;
+    private final ShardRouter router;
+
+    public ShardedStorageBackend(Map<String, StorageBackend> shards, ShardRouter router) {
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        this.router = router;
+    }
+
+    public Set<String> shardNames() {
+        return shards.keySet();
+    }
+
+    public StorageBackend shard(String name) {
+        StorageBackend shard = shards.get(name);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown shard '" + name + "'");
+        }
+        return shard;
+    }
+
+    @Override
+    public void initialize() {
+        shards.values().forEach(StorageBackend::initialize);
+    }
+
+    @Override
+    public Iterable<StorageObject> list(String prefix, boolean recursive) {
+        return reader(prefix).list(prefix, recursive);
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String object) {
+        return reader(object).stat(object);
+    }
+
+    @Override
+    public InputStream get(String object, String etag, long offset, long length) {
+        return reader(object).get(object, etag, offset, length);
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return reader(path).exists(path);
+    }
+
+    @Override
+    public void put(String object, InputStream inputStream, long size) {
+        ShardRouter.Route route = router.route(object);
+        if (!route.migrating()) {
+            shard(route.shard()).put(object, inputStream, size);
+            return;
+        }
+
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("shard-put-", ".tmp");
+            Files.copy(inputStream, spool, StandardCopyOption.REPLACE_EXISTING);
+            for (String name : List.of(route.shard(), route.target())) {
+                try (InputStream spooled = Files.newInputStream(spool)) {
+                    shard(name).put(object, spooled, Files.size(spool));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store " + object, e);
+        } finally {
+            deleteQuietly(spool);
+        }
+    }
+
+    @Override
+    public void copy(String from, String to) {
+        ShardRouter.Route source = router.route(from);
+        ShardRouter.Route route = router.route(to);
+        if (!source.equals(route)) {
+            StorageObject stat = stat(from).orElseThrow(() -> new IllegalStateException("No such object " + from));
+            try (InputStream inputStream = get(from)) {
+                put(to, inputStream, stat.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+
+        shard(route.shard()).copy(from, to);
+        if (route.migrating() && shard(route.target()).exists(from)) {
+            shard(route.target()).copy(from, to);
+        }
+    }
+
+    @Override
+    public void move(String from, String to) {
+        ShardRouter.Route route = router.route(from);
+        if (!route.equals(router.route(to))) {
+            copy(from, to);
+            delete(from);
+            return;
+        }
+
+        shard(route.shard()).move(from, to);
+        if (route.migrating() && shard(route.target()).exists(from)) {
+            shard(route.target()).move(from, to);
+        }
+    }
+
+    @Override
+    public void deleteBatch(List<String> objects) {
+        Map<ShardRouter.Route, List<String>> byRoute = new LinkedHashMap<>();
+        for (String object : objects) {
+            byRoute.computeIfAbsent(router.route(object), route -> new ArrayList<>()).add(object);
+        }
+
+        byRoute.forEach((route, batch) -> {
+            shard(route.shard()).deleteBatch(batch);
+            if (route.migrating()) {
+                shard(route.target()).deleteBatch(batch);
+            }
+        });
+    }
+
+    private StorageBackend reader(String object) {
+        return shard(router.route(object).shard());
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+}
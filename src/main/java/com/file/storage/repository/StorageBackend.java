@@ -0,0 +1,47 @@
+package com.file.storage.repository;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+public interface StorageBackend {
+
+    void initialize();
+
+    Iterable<StorageObject> list(String prefix, boolean recursive);
+
+    Optional<StorageObject> stat(String object);
+
+    InputStream get(String object, String etag, long offset, long length);
+
+    default InputStream get(String object) {
+        return get(object, null, 0, -1);
+    }
+
+    default InputStream get(String object, String etag) {
+        return get(object, etag, 0, -1);
+    }
+
+    void put(String object, InputStream inputStream, long size);
+
+    void copy(String from, String to);
+
+    void move(String from, String to);
+
+    void deleteBatch(List<String> objects);
+
+    default void delete(String object) {
+        deleteBatch(List.of(object));
+    }
+
+    // objects written around this backend, e.g. through MinioAsyncClient
+    default void changed(List<String> objects) {
+    }
+
+    default boolean exists(String path) {
+        if (path.endsWith("/")) {
+            return stat(path).isPresent() || list(path, false).iterator().hasNext();
+        }
+        return stat(path).isPresent();
+    }
+}
@@ -0,0 +1,62 @@
+package com.file.storage.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class StorageLimiters {
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int metadataInitial;
+    private final int metadataMax;
+    private final int transferInitial;
+    private final int transferMax;
+    private final long transferQueueTimeout;
+    private final int minLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final Map<String, Limits> limits = new ConcurrentHashMap<>();
+
+    public StorageLimiters(MeterRegistry meterRegistry,
+                           @Value("${storage.minio.limiter.enabled}") boolean enabled,
+                           @Value("${storage.minio.limiter.metadata.initial}") int metadataInitial,
+                           @Value("${storage.minio.limiter.metadata.max}") int metadataMax,
+                           @Value("${storage.minio.limiter.transfer.initial}") int transferInitial,
+                           @Value("${storage.minio.limiter.transfer.max}") int transferMax,
+                           @Value("${storage.minio.limiter.transfer.queue-timeout-ms}") long transferQueueTimeout,
+                           @Value("${storage.minio.limiter.min}") int minLimit,
+                           @Value("${storage.minio.limiter.latency-tolerance}") double tolerance,
+                           @Value("${storage.minio.limiter.backoff-ratio}") double backoffRatio) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.metadataInitial = metadataInitial;
+        this.metadataMax = metadataMax;
+        this.transferInitial = transferInitial;
+        this.transferMax = transferMax;
+        this.transferQueueTimeout = transferQueueTimeout;
+        this.minLimit = minLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+    }
+
+    public Limits forEndpoint(String endpoint) {
+        return limits.computeIfAbsent(endpoint, name -> enabled
+                ? new Limits(limiter(name, "metadata", metadataInitial, metadataMax, 0),
+                        limiter(name, "transfer", transferInitial, transferMax, transferQueueTimeout))
+                : new Limits(limiter(name, "metadata", Integer.MAX_VALUE, Integer.MAX_VALUE, 0),
+                        limiter(name, "transfer", Integer.MAX_VALUE, Integer.MAX_VALUE, 0)));
+    }
+
+    // a transfer is a user-visible download or upload, so a burst over the limit waits briefly instead of failing
+    private AdaptiveLimiter limiter(String endpoint, String type, int initial, int max, long queueTimeout) {
+        return new AdaptiveLimiter(endpoint, type, meterRegistry, initial, Math.min(minLimit, initial), max,
+                enabled ? tolerance : Double.MAX_VALUE, enabled ? backoffRatio : 1, queueTimeout);
+    }
+
+    public record Limits(AdaptiveLimiter metadata, AdaptiveLimiter transfer) {
+    }
+}
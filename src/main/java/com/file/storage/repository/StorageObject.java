@@ -0,0 +1,10 @@
+package com.file.storage.repository;
+
+import java.time.Instant;
+
+public record StorageObject(String name, long size, String etag, Instant lastModified, boolean directory) {
+
+    public static StorageObject directory(String name) {
+        return new StorageObject(name, 0, null, null, true);
+    }
+}
@@ -0,0 +1,32 @@
+package com.file.storage.repository;
+
+import com.file.storage.config.RequestTimings;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class TokenBucketRepository {
+    private static final RedisScript<Long> TAKE =
+            RedisScript.of(new ClassPathResource("scripts/token_bucket.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public TokenBucketRepository(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public long take(String bucket, long capacity, long ratePerSecond, long tokens, boolean debt) {
+        long started = System.nanoTime();
+        try {
+            Long wait = redisTemplate.execute(TAKE, List.of(bucket),
+                    Long.toString(capacity), Long.toString(ratePerSecond), Long.toString(tokens), debt ? "1" : "0");
+            return wait == null ? 0 : wait;
+        } finally {
+            RequestTimings.record("redis", System.nanoTime() - started);
+        }
+    }
+}
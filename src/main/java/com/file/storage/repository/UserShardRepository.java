@@ -0,0 +1,15 @@
+package com.file.storage.repository;
+
+import com.file.storage.model.UserShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface UserShardRepository extends JpaRepository<UserShard, Long> {
+
+    @Query("select s.shard, count(s) from UserShard s group by s.shard")
+    List<Object[]> countUsersByShard();
+
+    List<UserShard> findByTargetShardIsNotNull();
+}
@@ -0,0 +1,77 @@
+package com.file.storage.repository;
+
+import com.file.storage.model.UserUsage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface UserUsageRepository extends JpaRepository<UserUsage, Long> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "insert into user_usage (user_id) values (:userId) on conflict do nothing", nativeQuery = true)
+    void createIfAbsent(@Param("userId") long userId);
+
+    // rows that were never reconciled are refused, UsageService counts their files first
+    @Modifying
+    @Transactional
+    @Query(value = """
+            update user_usage
+            set reserved_bytes = reserved_bytes + :bytes, reserved_objects = reserved_objects + :objects,
+                reserved_at = now(), version = version + 1
+            where user_id = :userId and reconciled_at is not null
+              and used_bytes + reserved_bytes + :bytes <= coalesce(quota_bytes, :defaultQuota)
+            """, nativeQuery = true)
+    int reserve(@Param("userId") long userId, @Param("bytes") long bytes, @Param("objects") long objects,
+                @Param("defaultQuota") long defaultQuota);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            update user_usage
+            set reserved_bytes = greatest(0, reserved_bytes - :reservedBytes),
+                reserved_objects = greatest(0, reserved_objects - :reservedObjects),
+                used_bytes = used_bytes + :storedBytes, object_count = object_count + :storedObjects,
+                version = version + 1
+            where user_id = :userId
+            """, nativeQuery = true)
+    int complete(@Param("userId") long userId, @Param("reservedBytes") long reservedBytes,
+                 @Param("reservedObjects") long reservedObjects, @Param("storedBytes") long storedBytes,
+                 @Param("storedObjects") long storedObjects);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            update user_usage
+            set used_bytes = greatest(0, used_bytes - :bytes), object_count = greatest(0, object_count - :objects),
+                version = version + 1
+            where user_id = :userId
+            """, nativeQuery = true)
+    int release(@Param("userId") long userId, @Param("bytes") long bytes, @Param("objects") long objects);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            update user_usage
+            set used_bytes = :bytes, object_count = :objects, reserved_bytes = 0, reserved_objects = 0,
+                reconciled_at = now()
+            where user_id = :userId and version = :version
+              and (reserved_objects = 0 or reserved_at < :abandonedBefore)
+            """, nativeQuery = true)
+    int reconcile(@Param("userId") long userId, @Param("version") long version, @Param("bytes") long bytes,
+                  @Param("objects") long objects, @Param("abandonedBefore") Instant abandonedBefore);
+
+    // users with uploads in flight are skipped, their files may already be listed but not counted yet
+    @Query("""
+            select u from UserUsage u
+            where u.reservedObjects = 0 or u.reservedAt < :abandonedBefore
+            order by u.reconciledAt asc nulls first
+            """)
+    List<UserUsage> findReconcilable(@Param("abandonedBefore") Instant abandonedBefore, Pageable pageable);
+}
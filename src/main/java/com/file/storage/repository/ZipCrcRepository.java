@@ -0,0 +1,51 @@
+package com.file.storage.repository;
+
+import com.file.storage.config.RequestTimings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class ZipCrcRepository {
+    private static final String PREFIX = "zip-crc:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public ZipCrcRepository(StringRedisTemplate redisTemplate,
+                            @Value("${storage.zip.crc-ttl-hours}") long ttlHours) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = Duration.ofHours(ttlHours);
+    }
+
+    // one MGET for the whole batch, the result lists null for keys that are not stored
+    public List<Long> findAll(List<String> keys) {
+        long started = System.nanoTime();
+        try {
+            List<String> crcs = redisTemplate.opsForValue().multiGet(keys.stream().map(key -> PREFIX + key).toList());
+            List<Long> result = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                String crc = crcs == null ? null : crcs.get(i);
+                result.add(crc == null ? null : Long.parseLong(crc));
+            }
+            return result;
+        } finally {
+            RequestTimings.record("redis", System.nanoTime() - started);
+        }
+    }
+
+    public void saveAll(Map<String, Long> crcs) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection strings = (StringRedisConnection) connection;
+            crcs.forEach((key, crc) -> strings.setEx(PREFIX + key, ttl.toSeconds(), Long.toString(crc)));
+            return null;
+        });
+    }
+}
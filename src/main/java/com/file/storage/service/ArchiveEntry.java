@@ -0,0 +1,10 @@
+package com.file.storage.service;
+
+import java.time.Instant;
+
+public record ArchiveEntry(String objectName,
+                           String entryName,
+                           long size,
+                           String etag,
+                           Instant lastModified) {
+}
@@ -0,0 +1,171 @@
+package com.file.storage.service;
+
+import com.file.storage.config.RequestTimings;
+import com.file.storage.dto.ResourceInfoResponse;
+import com.file.storage.dto.ResourceType;
+import com.file.storage.exceptions.ResourceAlreadyExistsException;
+import com.file.storage.repository.MinioAsyncRepository;
+import com.file.storage.repository.StorageBackend;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Service
+@ConditionalOnExpression("'${storage.backend:minio}' == 'minio' and !${storage.sharding.enabled:false}")
+public class AsyncResourceService {
+    private final ResourceService resourceService;
+    private final MinioAsyncRepository minioAsyncRepository;
+    private final StorageBackend storageBackend;
+    private final RateLimitService rateLimitService;
+    private final UsageService usageService;
+    private final Executor executor;
+    private final int uploadParallelism;
+
+    public AsyncResourceService(ResourceService resourceService,
+                                MinioAsyncRepository minioAsyncRepository,
+                                StorageBackend storageBackend,
+                                RateLimitService rateLimitService,
+                                UsageService usageService,
+                                @Qualifier("streamingTaskExecutor") Executor executor,
+                                @Value("${storage.async.upload-parallelism}") int uploadParallelism) {
+        this.resourceService = resourceService;
+        this.minioAsyncRepository = minioAsyncRepository;
+        this.storageBackend = storageBackend;
+        this.rateLimitService = rateLimitService;
+        this.usageService = usageService;
+        this.executor = executor;
+        this.uploadParallelism = uploadParallelism;
+    }
+
+    // reads take the same path as the blocking endpoints, limiter, hedger, metrics and caches included,
+    // on the streaming executor so the request thread is free while storage responds
+    public CompletableFuture<ResourceInfoResponse> getResourceInfo(String path, String username) {
+        return call(() -> resourceService.getResourceInfo(path, username).body().get());
+    }
+
+    public CompletableFuture<List<ResourceInfoResponse>> getDirectoryInfo(String path, String username) {
+        return call(() -> resourceService.getDirectoryInfo(path, username).body().get());
+    }
+
+    public CompletableFuture<StreamingResponseBody> downloadFile(String path, String username) {
+        if (path.endsWith("/")) {
+            throw new InvalidPathException(path, "Its cannot be a directory");
+        }
+
+        return call(() -> resourceService.downloadResource(path, username).body().get());
+    }
+
+    public CompletableFuture<List<ResourceInfoResponse>> uploadResource(String path, List<MultipartFile> files, String username) {
+        String prefix = resourceService.validateDirectoryPath(path, username);
+        List<String> fullPaths = files.stream().map(file -> ResourceService.uploadPath(prefix, file)).toList();
+        long userId = HomeFolderService.ownerOf(prefix);
+        usageService.reserve(userId, files.stream().mapToLong(MultipartFile::getSize).sum(), files.size());
+        Executor executor = RequestTimings.bind(this.executor);
+
+        // a file starts once the parent markers exist and the upload uploadParallelism places ahead of it has settled
+        CompletableFuture<Void> directories = createParentDirectories(prefix, executor);
+        List<CompletableFuture<ResourceInfoResponse>> uploads = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String fullPath = fullPaths.get(i);
+            CompletableFuture<?> turn = uploads.size() < uploadParallelism
+                    ? directories
+                    : uploads.get(uploads.size() - uploadParallelism).handle((written, error) -> null);
+
+            uploads.add(turn.thenCompose(ignored -> directories)
+                    .thenCompose(ignored -> upload(fullPath, file, username, executor))
+                    .whenCompleteAsync((written, error) -> usageService.complete(userId, file.getSize(), 1,
+                            error == null ? file.getSize() : 0, error == null ? 1 : 0), executor));
+        }
+
+        return CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> uploads.stream().map(CompletableFuture::join).toList());
+    }
+
+    // everything that blocks, the existence check, the rate limit bucket, the permit and the cache updates,
+    // runs on the executor; client callback threads only complete the futures
+    private CompletableFuture<ResourceInfoResponse> upload(String fullPath, MultipartFile file, String username,
+                                                           Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+                    if (storageBackend.exists(fullPath)) {
+                        throw new ResourceAlreadyExistsException();
+                    }
+                    return rateLimitService.chargeTransfer(username, file.getSize());
+                }, executor)
+                .thenCompose(wait -> after(wait, executor))
+                .thenComposeAsync(ignored -> {
+                    InputStream inputStream = open(file);
+                    return minioAsyncRepository.putObject(fullPath, inputStream, file.getSize(), -1)
+                            .whenComplete((written, error) -> close(inputStream));
+                }, executor)
+                .whenCompleteAsync((written, error) -> storageBackend.changed(List.of(fullPath)), executor)
+                .thenApplyAsync(written -> {
+                    resourceService.afterUpload(fullPath);
+                    return new ResourceInfoResponse(
+                            resourceService.getParentPath(fullPath),
+                            resourceService.getName(fullPath),
+                            file.getSize(),
+                            ResourceType.FILE
+                    );
+                }, executor);
+    }
+
+    private CompletableFuture<Void> createParentDirectories(String prefix, Executor executor) {
+        List<CompletableFuture<?>> markers = new ArrayList<>();
+
+        int slash = prefix.indexOf('/');
+        while (slash >= 0) {
+            String directory = prefix.substring(0, slash + 1);
+            markers.add(CompletableFuture.supplyAsync(() -> storageBackend.exists(directory), executor)
+                    .thenComposeAsync(existing -> existing
+                            ? CompletableFuture.completedFuture(null)
+                            : minioAsyncRepository.putObject(directory, new ByteArrayInputStream(new byte[0]), 0, -1)
+                                    .whenCompleteAsync((written, error) -> storageBackend.changed(List.of(directory)),
+                                            executor), executor));
+            slash = prefix.indexOf('/', slash + 1);
+        }
+
+        return CompletableFuture.allOf(markers.toArray(CompletableFuture[]::new));
+    }
+
+    private <T> CompletableFuture<T> call(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, RequestTimings.bind(executor));
+    }
+
+    private static CompletableFuture<Void> after(long waitMillis, Executor executor) {
+        return waitMillis <= 0
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> {
+                }, CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS, executor));
+    }
+
+    private static void close(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static InputStream open(MultipartFile file) {
+        try {
+            return file.getInputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
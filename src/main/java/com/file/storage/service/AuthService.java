@@ -28,6 +28,7 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final HomeFolderService homeFolderService;
 
     @Transactional
     public UserResponse signUp(SignUpRequest request, HttpServletRequest httpRequest) {
@@ -40,6 +41,12 @@ public class AuthService {
         user.setPassword(passwordEncoder.encode(request.password()));
         userRepository.save(user);
 
+        try {
+            homeFolderService.ensure(user.getId());
+        } catch (RuntimeException e) {
+            log.warn("Home folder for user {} will be created on first access", user.getId(), e);
+        }
+
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.username(),
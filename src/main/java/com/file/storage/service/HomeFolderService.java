@@ -0,0 +1,120 @@
+package com.file.storage.service;
+
+import com.file.storage.model.User;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.InvalidPathException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Service
+public class HomeFolderService {
+    private static final Pattern HOME_FOLDER = Pattern.compile("user-(\\d+)-files/");
+
+    private final StorageBackend storageBackend;
+    private final UserRepository userRepository;
+    private final Executor executor;
+    private final boolean reconcileOnStartup;
+    private final int pageSize;
+    private final int parallelism;
+    private final Set<String> ready = ConcurrentHashMap.newKeySet();
+
+    public HomeFolderService(StorageBackend storageBackend,
+                             UserRepository userRepository,
+                             @Qualifier("homeFolderTaskExecutor") Executor executor,
+                             @Value("${storage.home-folders.reconcile-on-startup}") boolean reconcileOnStartup,
+                             @Value("${storage.home-folders.reconcile-page-size}") int pageSize,
+                             @Value("${storage.home-folders.reconcile-parallelism}") int parallelism) {
+        this.storageBackend = storageBackend;
+        this.userRepository = userRepository;
+        this.executor = executor;
+        this.reconcileOnStartup = reconcileOnStartup;
+        this.pageSize = pageSize;
+        this.parallelism = parallelism;
+    }
+
+    public static String folderOf(long userId) {
+        return "user-" + userId + "-files/";
+    }
+
+    public static long ownerOf(String object) {
+        Matcher matcher = HOME_FOLDER.matcher(object);
+        if (!matcher.lookingAt()) {
+            throw new InvalidPathException(object, "Not inside a home folder");
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    public String ensure(long userId) {
+        String folder = folderOf(userId);
+        if (ready.contains(folder)) {
+            return folder;
+        }
+
+        if (!storageBackend.exists(folder)) {
+            storageBackend.put(folder, new ByteArrayInputStream(new byte[0]), 0);
+        }
+        ready.add(folder);
+        return folder;
+    }
+
+    public void forget(String folder) {
+        ready.remove(folder);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (reconcileOnStartup) {
+            executor.execute(this::reconcile);
+        }
+    }
+
+    void reconcile() {
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicLong failed = new AtomicLong();
+        long checked = 0;
+        long started = System.currentTimeMillis();
+
+        PageRequest pageRequest = PageRequest.of(0, pageSize, Sort.by("id"));
+        Page<User> page;
+        do {
+            page = userRepository.findAll(pageRequest);
+            for (User user : page) {
+                permits.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        ensure(user.getId());
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.warn("Failed to create home folder for user {}", user.getId(), e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            checked += page.getNumberOfElements();
+            pageRequest = pageRequest.next();
+        } while (page.hasNext());
+        permits.acquireUninterruptibly(parallelism);
+
+        log.info("Reconciled home folders of {} users in {} ms ({} failed)",
+                checked, System.currentTimeMillis() - started, failed.get());
+    }
+}
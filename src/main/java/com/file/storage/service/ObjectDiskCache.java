@@ -0,0 +1,271 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.StorageBackend;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+public class ObjectDiskCache {
+    private static final int DOORKEEPER_SIZE = 10_000;
+    private static final String SUBDIRECTORY = "objects";
+    private static final Pattern OWN_FILE = Pattern.compile("[0-9a-f]{64}|fill-.*\\.tmp");
+
+    private final StorageBackend storageBackend;
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+    private final int bufferSize;
+
+    private final LinkedHashMap<String, CachedObject> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> doorkeeper = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > DOORKEEPER_SIZE;
+        }
+    };
+    private final Set<String> filling = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ObjectDiskCache(StorageBackend storageBackend,
+                           MeterRegistry meterRegistry,
+                           @Value("${storage.cache.directory}") String directory,
+                           @Value("${storage.cache.max-bytes}") long maxBytes,
+                           @Value("${storage.cache.max-object-bytes}") long maxObjectBytes,
+                           @Value("${storage.zip.buffer-size}") int bufferSize) {
+        this.storageBackend = storageBackend;
+        this.directory = Path.of(directory).resolve(SUBDIRECTORY);
+        this.maxBytes = maxBytes;
+        this.maxObjectBytes = Math.min(maxObjectBytes, maxBytes);
+        this.bufferSize = bufferSize;
+        if (maxBytes > 0) {
+            clearDirectory();
+        }
+
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        Gauge.builder("storage.cache.size", this, ObjectDiskCache::size)
+                .description("Bytes held by the local object cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.cache.requests")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public void transfer(String object, String etag, OutputStream outputStream) throws IOException {
+        String key = object + '\0' + etag;
+
+        CachedObject cached = lookup(key);
+        if (cached != null) {
+            try (FileChannel channel = FileChannel.open(cached.file(), StandardOpenOption.READ)) {
+                hits.increment();
+                transferTo(channel, outputStream);
+                return;
+            } catch (NoSuchFileException e) {
+                log.debug("Cached copy of '{}' was evicted before it could be opened", object);
+            }
+        }
+        misses.increment();
+
+        if (!admit(key) || !filling.add(key)) {
+            try (InputStream inputStream = storageBackend.get(object, etag)) {
+                inputStream.transferTo(outputStream);
+            }
+            return;
+        }
+        try {
+            fill(object, etag, key, outputStream);
+        } finally {
+            filling.remove(key);
+        }
+    }
+
+    public void evict(String path) {
+        lock.lock();
+        try {
+            Iterator<CachedObject> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                CachedObject cached = iterator.next();
+                if (path.endsWith("/") ? cached.object().startsWith(path) : cached.object().equals(path)) {
+                    iterator.remove();
+                    delete(cached);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fill(String object, String etag, String key, OutputStream outputStream) throws IOException {
+        Path temp = Files.createTempFile(directory, "fill-", ".tmp");
+        boolean installed = false;
+
+        try (InputStream inputStream = storageBackend.get(object, etag);
+             FileChannel file = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[bufferSize];
+            long written = 0;
+            boolean caching = true;
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                if (caching) {
+                    written += read;
+                    caching = written <= maxObjectBytes;
+                    if (caching) {
+                        file.write(ByteBuffer.wrap(buffer, 0, read));
+                    }
+                }
+                outputStream.write(buffer, 0, read);
+            }
+
+            if (caching) {
+                install(key, object, temp, written);
+                installed = true;
+            }
+        } finally {
+            if (!installed) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private CachedObject lookup(String key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean admit(String key) {
+        if (maxBytes <= 0) {
+            return false;
+        }
+        lock.lock();
+        try {
+            return doorkeeper.put(key, Boolean.TRUE) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void install(String key, String object, Path temp, long size) throws IOException {
+        Path file = directory.resolve(fileName(key));
+
+        lock.lock();
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            CachedObject previous = entries.put(key, new CachedObject(object, file, size));
+            if (previous != null) {
+                totalBytes -= previous.size();
+            }
+            totalBytes += size;
+            doorkeeper.remove(key);
+
+            Iterator<CachedObject> iterator = entries.values().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                CachedObject eldest = iterator.next();
+                iterator.remove();
+                delete(eldest);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long size() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void delete(CachedObject cached) {
+        totalBytes -= cached.size();
+        try {
+            Files.deleteIfExists(cached.file());
+        } catch (IOException e) {
+            log.warn("Failed to delete cached file {}", cached.file(), e);
+        }
+    }
+
+    // only files this cache could have written are removed, in case the directory is shared or misconfigured
+    private void clearDirectory() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)
+                            && OWN_FILE.matcher(file.getFileName().toString()).matches()) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void transferTo(FileChannel channel, OutputStream outputStream) throws IOException {
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            position += channel.transferTo(position, size - position, target);
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CachedObject(String object, Path file, long size) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.AdaptiveLimiter;
+import com.file.storage.repository.StorageBackend;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+@Component
+public class ObjectPrefetcher {
+    private final StorageBackend storageBackend;
+    private final Executor executor;
+    private final int depth;
+    private final long bufferLimit;
+
+    public ObjectPrefetcher(StorageBackend storageBackend,
+                            @Qualifier("prefetchTaskExecutor") Executor executor,
+                            @Value("${storage.zip.prefetch-depth}") int depth,
+                            @Value("${storage.zip.prefetch-buffer-limit}") long bufferLimit) {
+        this.storageBackend = storageBackend;
+        this.executor = executor;
+        this.depth = Math.max(1, depth);
+        this.bufferLimit = bufferLimit;
+    }
+
+    public Pipeline open(Iterator<ArchiveEntry> entries) {
+        return new Pipeline(entries);
+    }
+
+    private FetchedObject fetch(ArchiveEntry entry) {
+        InputStream inputStream = storageBackend.get(entry.objectName());
+        if (entry.size() > bufferLimit) {
+            return new FetchedObject(entry, null, inputStream);
+        }
+
+        try (inputStream) {
+            byte[] data = inputStream.readAllBytes();
+            return new FetchedObject(entry, data, new ByteArrayInputStream(data));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read object: " + entry.objectName(), e);
+        }
+    }
+
+    public record FetchedObject(ArchiveEntry entry, byte[] data, InputStream inputStream) implements Closeable {
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+
+    public class Pipeline implements Closeable {
+        private final Iterator<ArchiveEntry> entries;
+        private final Deque<CompletableFuture<FetchedObject>> window = new ArrayDeque<>();
+        // fetches run on the prefetch pool, but belong to the download that opened the pipeline
+        private final long queueTimeout = AdaptiveLimiter.queueTimeout();
+        private volatile boolean closed;
+
+        private Pipeline(Iterator<ArchiveEntry> entries) {
+            this.entries = entries;
+        }
+
+        public FetchedObject next() throws IOException {
+            fill();
+            CompletableFuture<FetchedObject> head = window.poll();
+            if (head == null) {
+                return null;
+            }
+            fill();
+
+            try {
+                return head.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a prefetched object");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        private void fill() {
+            while (!closed && window.size() < depth && entries.hasNext()) {
+                ArchiveEntry entry = entries.next();
+                window.add(CompletableFuture.supplyAsync(() -> {
+                    if (closed) {
+                        return null;
+                    }
+                    try (AdaptiveLimiter.Queueing ignored = AdaptiveLimiter.queueFor(queueTimeout)) {
+                        return fetch(entry);
+                    }
+                }, executor));
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            for (CompletableFuture<FetchedObject> future : window) {
+                future.whenComplete((fetched, e) -> closeQuietly(fetched));
+            }
+            window.clear();
+        }
+
+        private void closeQuietly(FetchedObject fetched) {
+            if (fetched == null) {
+                return;
+            }
+            try {
+                fetched.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
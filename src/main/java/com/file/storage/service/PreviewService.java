@@ -0,0 +1,226 @@
+package com.file.storage.service;
+
+import com.file.storage.exceptions.PreviewNotSupportedException;
+import com.file.storage.exceptions.StorageBusyException;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class PreviewService {
+    static final String PREVIEW_PREFIX = ".previews/";
+
+    private static final Set<String> IMAGE_EXTENSIONS = Arrays.stream(ImageIO.getReaderFileSuffixes())
+            .map(suffix -> suffix.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toUnmodifiableSet());
+
+    private final StorageBackend storageBackend;
+    private final Executor executor;
+    private final List<Integer> sizes;
+    private final long maxSourceBytes;
+    private final long maxSourcePixels;
+    private final boolean generateOnUpload;
+    private final Semaphore generating;
+    private final long waitMillis;
+
+    public PreviewService(StorageBackend storageBackend,
+                          @Qualifier("previewTaskExecutor") Executor executor,
+                          @Value("${storage.preview.sizes}") List<Integer> sizes,
+                          @Value("${storage.preview.max-source-bytes}") long maxSourceBytes,
+                          @Value("${storage.preview.max-source-pixels}") long maxSourcePixels,
+                          @Value("${storage.preview.generate-on-upload}") boolean generateOnUpload,
+                          @Value("${storage.preview.threads}") int maxConcurrent,
+                          @Value("${storage.preview.wait-ms}") long waitMillis) {
+        this.storageBackend = storageBackend;
+        this.executor = executor;
+        this.sizes = sizes.stream().sorted().toList();
+        this.maxSourceBytes = maxSourceBytes;
+        this.maxSourcePixels = maxSourcePixels;
+        this.generateOnUpload = generateOnUpload;
+        this.generating = new Semaphore(maxConcurrent);
+        this.waitMillis = waitMillis;
+    }
+
+    public int normalizeSize(int requested) {
+        return sizes.stream()
+                .filter(size -> size >= requested)
+                .findFirst()
+                .orElse(sizes.get(sizes.size() - 1));
+    }
+
+    public byte[] getPreview(String object, String etag, long objectSize, int size) {
+        String key = previewKey(object, etag, size);
+
+        Optional<StorageObject> cached = storageBackend.stat(key);
+        if (cached.isPresent()) {
+            try (InputStream inputStream = storageBackend.get(key)) {
+                return inputStream.readAllBytes();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        byte[] preview = generateLimited(object, etag, objectSize, size);
+        storageBackend.put(key, new ByteArrayInputStream(preview), preview.length);
+        return preview;
+    }
+
+    // decoding is CPU and memory heavy, so views and uploads together decode no more images at once
+    // than the preview executor has threads
+    private byte[] generateLimited(String object, String etag, long objectSize, int size) {
+        try {
+            if (!generating.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new StorageBusyException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageBusyException();
+        }
+        try {
+            return generate(object, etag, objectSize, size);
+        } finally {
+            generating.release();
+        }
+    }
+
+    public void generateAfterUpload(String object) {
+        if (!generateOnUpload || !isImage(object)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    StorageObject stat = storageBackend.stat(object).orElseThrow(PreviewNotSupportedException::new);
+                    getPreview(object, stat.etag(), stat.size(), sizes.get(0));
+                } catch (PreviewNotSupportedException e) {
+                    log.debug("No preview for '{}'", object);
+                } catch (StorageBusyException e) {
+                    log.debug("Previews are busy, skipping '{}'", object);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to generate preview for '{}'", object, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the upload itself already succeeded, the preview is generated on first view instead
+            log.debug("Preview queue is full, skipping '{}'", object);
+        }
+    }
+
+    // previews are keyed by etag, so a new upload never reads a stale one;
+    // this only reclaims the previews of deleted and moved objects
+    public void evict(String path) {
+        String prefix = PREVIEW_PREFIX + (path.endsWith("/") ? path : path + "/");
+
+        List<String> previews = new ArrayList<>();
+        for (StorageObject object : storageBackend.list(prefix, true)) {
+            previews.add(object.name());
+        }
+        if (!previews.isEmpty()) {
+            storageBackend.deleteBatch(previews);
+        }
+    }
+
+    private byte[] generate(String object, String etag, long objectSize, int size) {
+        if (objectSize > maxSourceBytes || !isImage(object)) {
+            throw new PreviewNotSupportedException();
+        }
+
+        BufferedImage source;
+        try (InputStream inputStream = storageBackend.get(object, etag);
+             ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            source = decode(imageInputStream, size);
+        } catch (IOException e) {
+            throw new PreviewNotSupportedException();
+        }
+
+        double scale = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage preview = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = preview.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(preview, "jpg", out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // the header is read first: a few bytes can declare a picture that would need gigabytes once decoded
+    private BufferedImage decode(ImageInputStream imageInputStream, int size) throws IOException {
+        if (imageInputStream == null) {
+            throw new PreviewNotSupportedException();
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+        if (!readers.hasNext()) {
+            throw new PreviewNotSupportedException();
+        }
+
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(imageInputStream, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            if ((long) width * height > maxSourcePixels) {
+                throw new PreviewNotSupportedException();
+            }
+
+            // decode at no less than twice the preview size so the final scaling can still smooth
+            int step = Math.max(1, Math.max(width, height) / (size * 2));
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(step, step, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static boolean isImage(String object) {
+        int dot = object.lastIndexOf('.');
+        return dot >= 0 && IMAGE_EXTENSIONS.contains(object.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String previewKey(String object, String etag, int size) {
+        return PREVIEW_PREFIX + object + "/" + size + "-" + etag + ".jpg";
+    }
+}
@@ -0,0 +1,239 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.TokenBucketRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+public class RateLimitService {
+    private final TokenBucketRepository tokenBucketRepository;
+    private final boolean enabled;
+    private final long requestsPerSecond;
+    private final long requestBurst;
+    private final long bytesPerSecond;
+    private final long byteBurst;
+    private final long chunkBytes;
+    private final int transfersPerUser;
+    private final Map<String, Integer> transfers = new ConcurrentHashMap<>();
+    private final Counter rejections;
+    private final Counter delay;
+    private final Counter errors;
+
+    public RateLimitService(TokenBucketRepository tokenBucketRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${storage.rate-limit.enabled}") boolean enabled,
+                            @Value("${storage.rate-limit.requests-per-second}") long requestsPerSecond,
+                            @Value("${storage.rate-limit.request-burst}") long requestBurst,
+                            @Value("${storage.rate-limit.bytes-per-second}") long bytesPerSecond,
+                            @Value("${storage.rate-limit.byte-burst}") long byteBurst,
+                            @Value("${storage.rate-limit.chunk-bytes}") long chunkBytes,
+                            @Value("${storage.rate-limit.transfers-per-user}") int transfersPerUser) {
+        this.tokenBucketRepository = tokenBucketRepository;
+        this.enabled = enabled;
+        this.requestsPerSecond = requestsPerSecond;
+        this.requestBurst = requestBurst;
+        this.bytesPerSecond = bytesPerSecond;
+        this.byteBurst = byteBurst;
+        this.chunkBytes = chunkBytes;
+        this.transfersPerUser = transfersPerUser;
+        this.rejections = Counter.builder("storage.rate-limit.rejections").register(meterRegistry);
+        this.delay = Counter.builder("storage.rate-limit.delay").baseUnit("milliseconds").register(meterRegistry);
+        this.errors = Counter.builder("storage.rate-limit.errors").register(meterRegistry);
+    }
+
+    public long acquireRequest(String username) {
+        if (!enabled) {
+            return 0;
+        }
+        long wait = take("rate:{" + username + "}:requests", requestBurst, requestsPerSecond, 1, false);
+        if (wait > 0) {
+            rejections.increment();
+        }
+        return wait;
+    }
+
+    // throttled transfers sleep while holding zip and storage permits, so one user only gets a few of them per node
+    public boolean acquireTransfer(String username) {
+        if (!enabled) {
+            return true;
+        }
+        if (transfers.merge(username, 1, Integer::sum) > transfersPerUser) {
+            releaseTransfer(username);
+            rejections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void releaseTransfer(String username) {
+        if (enabled) {
+            transfers.computeIfPresent(username, (user, running) -> running > 1 ? running - 1 : null);
+        }
+    }
+
+    // charges a transfer whose size is known up front and returns how long to hold it back,
+    // for callers that schedule the start instead of sleeping on their thread
+    public long chargeTransfer(String username, long bytes) {
+        if (!enabled || bytes <= 0) {
+            return 0;
+        }
+        long wait = take("rate:{" + username + "}:bytes", byteBurst, bytesPerSecond, bytes, true);
+        if (wait > 0) {
+            delay.increment(wait);
+        }
+        return wait;
+    }
+
+    public InputStream throttle(String username, InputStream inputStream) {
+        if (!enabled) {
+            return inputStream;
+        }
+        ByteMeter meter = new ByteMeter(username);
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    meter.record(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    meter.record(read);
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                meter.record(skipped);
+                return skipped;
+            }
+
+            @Override
+            public void close() throws IOException {
+                meter.settle();
+                super.close();
+            }
+        };
+    }
+
+    public OutputStream throttle(String username, OutputStream outputStream) {
+        if (!enabled) {
+            return outputStream;
+        }
+        return new ThrottledOutputStream(outputStream, new ByteMeter(username));
+    }
+
+    public StreamingResponseBody throttle(String username, StreamingResponseBody body) {
+        if (!enabled) {
+            return body;
+        }
+        return outputStream -> {
+            ThrottledOutputStream throttled = new ThrottledOutputStream(outputStream, new ByteMeter(username));
+            try {
+                body.writeTo(throttled);
+            } finally {
+                throttled.meter.settle();
+            }
+        };
+    }
+
+    private long take(String bucket, long capacity, long ratePerSecond, long tokens, boolean debt) {
+        try {
+            return tokenBucketRepository.take(bucket, capacity, ratePerSecond, tokens, debt);
+        } catch (RuntimeException e) {
+            errors.increment();
+            log.debug("Rate limit bucket {} is unavailable, letting the request through", bucket, e);
+            return 0;
+        }
+    }
+
+    private static class ThrottledOutputStream extends FilterOutputStream {
+        private final ByteMeter meter;
+
+        ThrottledOutputStream(OutputStream out, ByteMeter meter) {
+            super(out);
+            this.meter = meter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            meter.record(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            meter.record(len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            meter.settle();
+            super.close();
+        }
+    }
+
+    private class ByteMeter {
+        private final String bucket;
+        private long pending;
+
+        ByteMeter(String username) {
+            this.bucket = "rate:{" + username + "}:bytes";
+        }
+
+        void record(long bytes) throws InterruptedIOException {
+            pending += bytes;
+            if (pending >= chunkBytes) {
+                pause(pay());
+            }
+        }
+
+        void settle() {
+            pay();
+        }
+
+        private long pay() {
+            if (pending == 0) {
+                return 0;
+            }
+            long wait = take(bucket, byteBurst, bytesPerSecond, pending, true);
+            pending = 0;
+            return wait;
+        }
+
+        private void pause(long millis) throws InterruptedIOException {
+            if (millis <= 0) {
+                return;
+            }
+            delay.increment(millis);
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling " + bucket);
+            }
+        }
+    }
+}
@@ -2,160 +2,244 @@ package com.file.storage.service;
 
 import com.file.storage.dto.ResourceType;
 import com.file.storage.dto.ResourceInfoResponse;
+import com.file.storage.dto.ResourceVersion;
 import com.file.storage.exceptions.ResourceAlreadyExistsException;
 import com.file.storage.exceptions.ResourceNotFoundException;
 import com.file.storage.model.User;
-import com.file.storage.repository.MinioRepository;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageObject;
 import com.file.storage.repository.UserRepository;
 import jakarta.annotation.PostConstruct;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.InvalidPathException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 @Service
 public class ResourceService {
+    private static final int DELETE_BATCH_SIZE = 1000;
+
     private final UserRepository userRepository;
-    private final MinioRepository minioRepository;
+    private final StorageBackend storageBackend;
+    private final ZipStreamingService zipStreamingService;
+    private final ObjectDiskCache objectDiskCache;
+    private final PreviewService previewService;
+    private final HomeFolderService homeFolderService;
+    private final RateLimitService rateLimitService;
+    private final UsageService usageService;
 
     public ResourceService(
             UserRepository userRepository,
-            MinioRepository minioRepository) {
+            StorageBackend storageBackend,
+            ZipStreamingService zipStreamingService,
+            ObjectDiskCache objectDiskCache,
+            PreviewService previewService,
+            HomeFolderService homeFolderService,
+            RateLimitService rateLimitService,
+            UsageService usageService) {
         this.userRepository = userRepository;
-        this.minioRepository = minioRepository;
+        this.storageBackend = storageBackend;
+        this.zipStreamingService = zipStreamingService;
+        this.objectDiskCache = objectDiskCache;
+        this.previewService = previewService;
+        this.homeFolderService = homeFolderService;
+        this.rateLimitService = rateLimitService;
+        this.usageService = usageService;
     }
 
     @PostConstruct
-    public void initUserFolders() {
-        minioRepository.ensureBucketExists();
+    public void initStorage() {
+        storageBackend.initialize();
+    }
 
-        userRepository.findAll().forEach(user -> {
-            String userFolder = "user-" + user.getId() + "-files/";
+    public Versioned<ResourceInfoResponse> getResourceInfo(String path, String username) {
+        String object = validatePath(path, username);
 
-            if (!minioRepository.resourceOrDirectoryExists(userFolder)) {
-                createEmptyDirectory(userFolder);
-            }
-        });
+        if (object.endsWith("/")) {
+            throw new InvalidPathException("", "Its cannot be a directory");
+        }
+        StorageObject stat = storageBackend.stat(object).orElseThrow(ResourceNotFoundException::new);
+
+        return new Versioned<>(new ResourceVersion(stat.etag(), stat.lastModified().toEpochMilli()),
+                () -> new ResourceInfoResponse(
+                        getParentPath(object),
+                        getName(object),
+                        stat.size(),
+                        ResourceType.FILE
+                ));
     }
 
-    public ResourceInfoResponse getResourceInfo(String path, String username) {
-        path = validatePath(path, username);
+    // directories only get an ETag: the newest child mtime does not move when a child is deleted
+    static ResourceVersion versionOf(List<StorageObject> objects) {
+        MessageDigest digest = sha256();
 
-        if (path.endsWith("/")) {
-            throw new InvalidPathException("", "Its cannot be a directory");
+        for (StorageObject object : objects) {
+            digest.update(object.name().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+
+            if (!object.directory()) {
+                digest.update(String.valueOf(object.etag()).getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
         }
-        if (!minioRepository.resourceOrDirectoryExists(path)) {
+
+        return new ResourceVersion(HexFormat.of().formatHex(digest.digest()), -1);
+    }
+
+    private List<StorageObject> listDirectory(String prefix, boolean recursive) {
+        List<StorageObject> objects = new ArrayList<>();
+        storageBackend.list(prefix, recursive).forEach(objects::add);
+
+        if (objects.isEmpty() && !storageBackend.exists(prefix)) {
             throw new ResourceNotFoundException();
         }
+        return objects;
+    }
 
-        return new ResourceInfoResponse(
-                getParentPath(path),
-                getName(path),
-                minioRepository.statObject(path).size(),
-                ResourceType.FILE
-        );
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public void deleteResource(String path, String username) {
         path = validatePath(path, username);
 
-        if (!minioRepository.resourceOrDirectoryExists(path)) {
+        if (!storageBackend.exists(path)) {
             throw new ResourceNotFoundException();
         }
 
+        long userId = HomeFolderService.ownerOf(path);
         if (path.endsWith("/")) {
-            deleteDirectory(path);
+            deleteDirectory(userId, path);
+            homeFolderService.forget(path);
         } else {
-            minioRepository.removeObject(path);
+            long size = storageBackend.stat(path).map(StorageObject::size).orElse(0L);
+            storageBackend.delete(path);
+            usageService.release(userId, size, 1);
         }
+        objectDiskCache.evict(path);
+        previewService.evict(path);
     }
 
-    private void deleteDirectory(String fullPath) {
-        var objects = minioRepository.listObjects(fullPath, null, true);
-
-        for (var object : objects) {
-            try {
-                minioRepository.removeObject(object.get().objectName());
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+    private void deleteDirectory(long userId, String fullPath) {
+        List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+        long bytes = 0;
+        long files = 0;
+        for (StorageObject object : storageBackend.list(fullPath, true)) {
+            batch.add(object.name());
+            if (!object.name().endsWith("/")) {
+                bytes += object.size();
+                files++;
+            }
+            if (batch.size() == DELETE_BATCH_SIZE) {
+                storageBackend.deleteBatch(batch);
+                usageService.release(userId, bytes, files);
+                batch.clear();
+                bytes = 0;
+                files = 0;
             }
         }
+        if (!batch.isEmpty()) {
+            storageBackend.deleteBatch(batch);
+            usageService.release(userId, bytes, files);
+        }
     }
 
-    public InputStream downloadResource(String path, String username) throws IOException {
-        path = validatePath(path, username);
+    public Versioned<StreamingResponseBody> downloadResource(String path, String username) {
+        String object = validatePath(path, username);
 
-        if (!minioRepository.resourceOrDirectoryExists(path)) {
-            throw new ResourceNotFoundException();
+        if (object.endsWith("/")) {
+            List<StorageObject> objects = listDirectory(object, true);
+            ResourceVersion version = versionOf(objects);
+            return new Versioned<>(version, () -> zipStreamingService.stream(object, objects, version.eTag()));
         }
 
-        if (path.endsWith("/")) {
-            return downloadAsZip(path);
-        } else {
-            return minioRepository.getObject(path);
+        StorageObject stat = storageBackend.stat(object).orElseThrow(ResourceNotFoundException::new);
+        return new Versioned<>(new ResourceVersion(stat.etag(), stat.lastModified().toEpochMilli()),
+                () -> outputStream -> objectDiskCache.transfer(object, stat.etag(), outputStream));
+    }
+
+    public Versioned<byte[]> getPreview(String path, int size, String username) {
+        String object = validatePath(path, username);
+
+        if (object.endsWith("/")) {
+            throw new InvalidPathException("", "Its cannot be a directory");
         }
+        StorageObject stat = storageBackend.stat(object).orElseThrow(ResourceNotFoundException::new);
+        int previewSize = previewService.normalizeSize(size);
+
+        return new Versioned<>(new ResourceVersion(previewSize + "-" + stat.etag(), stat.lastModified().toEpochMilli()),
+                () -> previewService.getPreview(object, stat.etag(), stat.size(), previewSize));
     }
 
-    private InputStream downloadAsZip(String path) throws IOException {
-        PipedInputStream in = new PipedInputStream();
-        PipedOutputStream out = new PipedOutputStream(in);
-
-        new Thread(() -> {
-            try (ZipOutputStream zipOut = new ZipOutputStream(out)) {
-                addFilesToZip(zipOut, path);
-            } catch (Exception e) {
-                try {
-                    out.close();
-                } catch (IOException ignored) {
-                }
+    public StreamingResponseBody downloadSelection(List<String> paths, String username) {
+        String userFolder = getUserFolder(username);
+
+        List<String> resolved = new ArrayList<>();
+        for (String path : paths) {
+            if (path == null || path.isEmpty()) {
+                throw new InvalidPathException("", "Invalid path");
+            }
+            String fullPath = resolvePath(userFolder, path);
+            if (!storageBackend.exists(fullPath)) {
+                throw new ResourceNotFoundException();
+            }
+            if (!resolved.contains(fullPath)) {
+                resolved.add(fullPath);
             }
-        }).start();
+        }
 
-        return in;
+        return zipStreamingService.stream(resolved);
     }
 
-    private void addFilesToZip(ZipOutputStream zipOutputStream, String fullPath) {
-        var objects = minioRepository.listObjects(fullPath, null, true);
-
-        for (var object : objects) {
-            try {
-                if (!object.get().isDir()) {
-                    String fileName = object.get().objectName().substring(fullPath.length());
-                    zipOutputStream.putNextEntry(new ZipEntry(fileName));
+    public ZipLayout getZipLayout(String path, String username) {
+        path = validateDirectoryPath(path, username);
 
-                    minioRepository.getObject(object.get().objectName()).transferTo(zipOutputStream);
-                    zipOutputStream.closeEntry();
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+        if (!storageBackend.exists(path)) {
+            throw new ResourceNotFoundException();
         }
+
+        return zipStreamingService.layout(path);
+    }
+
+    public StreamingResponseBody downloadZipRange(ZipLayout layout, long start, long end) {
+        return zipStreamingService.streamRange(layout, start, end);
     }
 
     public ResourceInfoResponse moveResource(String from, String to, String username) {
         from = validatePath(from, username);
         to = validatePath(to, username);
 
-        if (!minioRepository.resourceOrDirectoryExists(from)) {
+        if (from.endsWith("/") && to.startsWith(from)) {
+            throw new InvalidPathException(to, "Cannot move a directory into itself");
+        }
+        if (!storageBackend.exists(from)) {
             throw new ResourceNotFoundException();
         }
-        if (minioRepository.resourceOrDirectoryExists(to)) {
+        if (storageBackend.exists(to)) {
             throw new ResourceAlreadyExistsException();
         }
 
-        minioRepository.copyObject(from, to);
-        minioRepository.removeObject(from);
+        storageBackend.move(from, to);
+        objectDiskCache.evict(from);
+        previewService.evict(from);
 
         return new ResourceInfoResponse(
                 getParentPath(to),
                 getName(to),
-                minioRepository.statObject(to).size(),
+                storageBackend.stat(to).map(StorageObject::size).orElse(0L),
                 ResourceType.FILE
         );
     }
@@ -163,22 +247,16 @@ public class ResourceService {
     public List<ResourceInfoResponse> searchResource(String query, String username) {
         query = validatePath(query, username);
 
-        var objects = minioRepository.listObjects(query, null, true);
-
         List<ResourceInfoResponse> resourceList = new ArrayList<>();
-        for (var object : objects) {
-            try {
-                String filePath = object.get().objectName();
-                if (filePath.toLowerCase().contains(query.toLowerCase())) {
-                    resourceList.add(new ResourceInfoResponse(
-                            getParentPath(filePath),
-                            getName(filePath),
-                            minioRepository.statObject(filePath).size(),
-                            ResourceType.FILE
-                    ));
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+        for (StorageObject object : storageBackend.list(query, true)) {
+            String filePath = object.name();
+            if (filePath.toLowerCase().contains(query.toLowerCase())) {
+                resourceList.add(new ResourceInfoResponse(
+                        getParentPath(filePath),
+                        getName(filePath),
+                        object.size(),
+                        ResourceType.FILE
+                ));
             }
         }
 
@@ -187,35 +265,55 @@ public class ResourceService {
 
     public List<ResourceInfoResponse> uploadResource(String path, List<MultipartFile> files, String username) {
         path = validateDirectoryPath(path, username);
+        String directory = path;
+        List<String> fullPaths = files.stream().map(file -> uploadPath(directory, file)).toList();
+        long userId = HomeFolderService.ownerOf(path);
+        long reservedBytes = files.stream().mapToLong(MultipartFile::getSize).sum();
+        usageService.reserve(userId, reservedBytes, files.size());
 
         List<ResourceInfoResponse> resourceList = new ArrayList<>();
+        long storedBytes = 0;
+        int storedFiles = 0;
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                String fullPath = fullPaths.get(i);
+
+                if (storageBackend.exists(fullPath)) {
+                    throw new ResourceAlreadyExistsException();
+                }
 
-        for (MultipartFile file : files) {
-            String fullPath = path + file.getOriginalFilename();
-
-            if (minioRepository.resourceOrDirectoryExists(fullPath)) {
-                throw new ResourceAlreadyExistsException();
-            }
-
-            createParentDirectories(path);
+                createParentDirectories(path);
 
-            try (InputStream inputStream = file.getInputStream()) {
-                minioRepository.putObject(fullPath, inputStream, file.getSize(), -1);
+                try (InputStream inputStream = rateLimitService.throttle(username, file.getInputStream())) {
+                    storageBackend.put(fullPath, inputStream, file.getSize());
+                    storedBytes += file.getSize();
+                    storedFiles++;
+                    afterUpload(fullPath);
 
-                resourceList.add(new ResourceInfoResponse(
-                        getParentPath(fullPath),
-                        getName(fullPath),
-                        file.getSize(),
-                        ResourceType.FILE
-                ));
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to upload file: " + file.getOriginalFilename(), e);
+                    resourceList.add(new ResourceInfoResponse(
+                            getParentPath(fullPath),
+                            getName(fullPath),
+                            file.getSize(),
+                            ResourceType.FILE
+                    ));
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to upload file: " + file.getOriginalFilename(), e);
+                }
             }
+        } finally {
+            usageService.complete(userId, reservedBytes, files.size(), storedBytes, storedFiles);
         }
 
         return resourceList;
     }
 
+    // previews are not evicted here: uploads never overwrite, and delete and move already evicted this name
+    void afterUpload(String object) {
+        objectDiskCache.evict(object);
+        previewService.generateAfterUpload(object);
+    }
+
     private void createParentDirectories(String path) {
         String[] parts = path.split("/");
         StringBuilder currentPath = new StringBuilder();
@@ -228,64 +326,57 @@ public class ResourceService {
             currentPath.append(part).append("/");
             String dirPath = currentPath.toString();
 
-            if (!minioRepository.resourceOrDirectoryExists(dirPath)) {
+            if (!storageBackend.exists(dirPath)) {
                 createEmptyDirectory(dirPath);
             }
         }
     }
 
-    public List<ResourceInfoResponse> getDirectoryInfo(String path, String username) {
-        path = validateDirectoryPath(path, username);
+    public Versioned<List<ResourceInfoResponse>> getDirectoryInfo(String path, String username) {
+        String directory = validateDirectoryPath(path, username);
+        List<StorageObject> objects = listDirectory(directory, false);
 
-        if (!minioRepository.resourceOrDirectoryExists(path)) {
-            throw new ResourceNotFoundException();
-        }
+        return new Versioned<>(versionOf(objects), () -> {
+            List<ResourceInfoResponse> resourceList = new ArrayList<>();
+            String parentPath = StoragePath.of(directory).relative();
 
-        var objects = minioRepository.listObjects(path, "/", false);
-
-        List<ResourceInfoResponse> resourceList = new ArrayList<>();
-
-        for (var object : objects) {
-            try {
+            for (StorageObject object : objects) {
                 ResourceInfoResponse resource;
-                String objectName = object.get().objectName();
+                String objectName = object.name();
 
-                if (objectName.equals(path) || (objectName + "/").equals(path)) {
+                if (objectName.equals(directory) || (objectName + "/").equals(directory)) {
                     continue;
                 }
 
-                if (object.get().isDir()) {
+                if (object.directory()) {
                     resource = new ResourceInfoResponse(
-                            path.replaceFirst("^user-\\d+-files/", ""),
-                            objectName.substring(path.length()),
+                            parentPath,
+                            objectName.substring(directory.length()),
                             null,
                             ResourceType.DIRECTORY
                     );
                 } else {
                     resource = new ResourceInfoResponse(
-                            path.replaceFirst("^user-\\d+-files/", ""),
-                            objectName.substring(path.length()),
-                            minioRepository.statObject(objectName).size(),
+                            parentPath,
+                            objectName.substring(directory.length()),
+                            object.size(),
                             ResourceType.FILE
                     );
                 }
                 resourceList.add(resource);
-
-            } catch (Exception e) {
-                throw new RuntimeException(e);
             }
-        }
 
-        return resourceList;
+            return resourceList;
+        });
     }
 
     public ResourceInfoResponse createDirectory(String path, String username) {
         path = validateDirectoryPath(path, username);
 
-        if (!getParentPath(path).isEmpty() && !minioRepository.resourceOrDirectoryExists(getParentPath(path))) {
+        if (!getParentPath(path).isEmpty() && !storageBackend.exists(getParentPath(path))) {
             throw new ResourceNotFoundException();
         }
-        if (minioRepository.resourceOrDirectoryExists(path)) {
+        if (storageBackend.exists(path)) {
             throw new ResourceAlreadyExistsException();
         }
 
@@ -298,60 +389,55 @@ public class ResourceService {
                 ResourceType.DIRECTORY);
     }
 
-    private String validatePath(String path, String username) {
+    String validatePath(String path, String username) {
         if (path == null || path.isEmpty()) {
             throw new InvalidPathException("", "Invalid path");
         }
-        path = path.replaceFirst("^user-\\d+-files/", "");
-
-        User user = userRepository.findByUsername(username).orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-        return ("user-" + user.getId() + "-files/" + path)
-                .replaceAll("/+", "/")
-                .trim();
+        return resolvePath(getUserFolder(username), path);
     }
 
-    private String validateDirectoryPath(String path, String username) {
-        path = path.replaceFirst("^user-\\d+-files/", "");
+    String validateDirectoryPath(String path, String username) {
+        return StoragePath.resolve(getUserFolder(username), path, true).object();
+    }
 
-        User user = userRepository.findByUsername(username).orElseThrow(() -> new UsernameNotFoundException("User not found"));
+    // the client names the file, so it goes through the same resolution as any other path and stays inside the folder
+    static String uploadPath(String directory, MultipartFile file) {
+        String filename = file.getOriginalFilename();
+        if (filename == null || filename.isBlank()) {
+            throw new InvalidPathException("", "Empty file name");
+        }
+        String object = StoragePath.resolve(directory, filename, false).object();
+        if (object.endsWith("/")) {
+            throw new InvalidPathException(filename, "Its cannot be a directory");
+        }
 
-        return ("user-" + user.getId() + "-files/" + path + "/")
-                .replaceAll("/+", "/")
-                .trim();
+        return object;
     }
 
-    private String getName(String path) {
-        path = path.replaceFirst("^user-\\d+-files/", "");
+    private String getUserFolder(String username) {
+        User user = userRepository.findByUsername(username).orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-        if (path.isEmpty() || path.equals("/")) {
-            throw new InvalidPathException("", "Empty path");
-        }
+        return homeFolderService.ensure(user.getId());
+    }
 
-        int lastSlash = path.lastIndexOf("/", path.length() - 2);
+    private static String resolvePath(String userFolder, String path) {
+        return StoragePath.resolve(userFolder, path, false).object();
+    }
 
-        return lastSlash <= 0 ? path : path.substring(lastSlash + 1);
+    String getName(String path) {
+        return StoragePath.of(path).name();
     }
 
-    private String getParentPath(String path) {
-        if (path == null || path.isEmpty() || path.equals("/")) {
+    String getParentPath(String path) {
+        if (path == null || path.isEmpty()) {
             return "";
         }
 
-        path = path.replaceFirst("^user-\\d+-files/", "");
-
-        if (path.endsWith("/")) {
-            int penultimateSlash = path.lastIndexOf("/", path.length() - 2);
-
-            return penultimateSlash <= 0 ? "" : path.substring(0, penultimateSlash + 1);
-        } else {
-            int lastSlash = path.lastIndexOf("/");
-
-            return lastSlash <= 0 ? "" : path.substring(0, lastSlash + 1);
-        }
+        return StoragePath.of(path).parent();
     }
 
     private void createEmptyDirectory(String path) {
-        minioRepository.putObject(path, new ByteArrayInputStream(new byte[0]), 0, -1);
+        storageBackend.put(path, new ByteArrayInputStream(new byte[0]), 0);
     }
 }
\ No newline at end of file
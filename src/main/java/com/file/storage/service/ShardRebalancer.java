@@ -0,0 +1,244 @@
+package com.file.storage.service;
+
+import com.file.storage.config.ShardingProperties;
+import com.file.storage.model.UserShard;
+import com.file.storage.repository.ShardRouter;
+import com.file.storage.repository.ShardedStorageBackend;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "storage.sharding.enabled", havingValue = "true")
+public class ShardRebalancer {
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final ShardedStorageBackend storageBackend;
+    private final ShardRouter shardRouter;
+    private final Executor executor;
+    private final int maxCopyPasses;
+    private final Map<Long, Migration> migrations = new ConcurrentHashMap<>();
+
+    public ShardRebalancer(ShardedStorageBackend storageBackend,
+                           ShardRouter shardRouter,
+                           @Qualifier("rebalanceTaskExecutor") Executor executor,
+                           ShardingProperties properties) {
+        this.storageBackend = storageBackend;
+        this.shardRouter = shardRouter;
+        this.executor = executor;
+        this.maxCopyPasses = properties.getMaxCopyPasses();
+    }
+
+    public List<Migration> migrations() {
+        List<Migration> result = new ArrayList<>(migrations.values());
+        for (UserShard assignment : shardRouter.migrating()) {
+            if (!migrations.containsKey(assignment.getUserId())) {
+                result.add(interrupted(assignment));
+            }
+        }
+        return result;
+    }
+
+    // target_shard outlives the node that ran the move; those users keep dual-writing until resumed or aborted
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportInterrupted() {
+        for (UserShard assignment : shardRouter.migrating()) {
+            log.warn("User {} was left moving from shard '{}' to '{}'; resume or abort it through /actuator/shards/{}",
+                    assignment.getUserId(), assignment.getShard(), assignment.getTargetShard(), assignment.getUserId());
+        }
+    }
+
+    public Migration migrate(long userId, String target) {
+        storageBackend.shard(target);
+        UserShard interrupted = persisted(userId);
+        String source = interrupted != null ? interrupted.getShard() : shardRouter.route(userId).shard();
+        if (source.equals(target)) {
+            throw new IllegalArgumentException("User " + userId + " is already on shard '" + target + "'");
+        }
+
+        Migration migration = new Migration(userId, source, target, State.PENDING, 0, Instant.now(), null);
+        Migration previous = migrations.compute(userId, (id, current) ->
+                current == null || current.state() == State.FAILED ? migration : current);
+        if (previous != migration) {
+            throw new IllegalStateException("User " + userId + " is already being moved to " + previous.target());
+        }
+
+        try {
+            if (interrupted == null) {
+                shardRouter.beginMigration(userId, target);
+            } else if (!interrupted.getTargetShard().equals(target)) {
+                throw new IllegalStateException("User " + userId + " was left moving to "
+                        + interrupted.getTargetShard() + "; abort that move first");
+            }
+            executor.execute(() -> run(migration));
+        } catch (RuntimeException e) {
+            migrations.remove(userId);
+            throw e;
+        }
+        return migration;
+    }
+
+    // objects already copied to the target are dropped by the next move there
+    public void abort(long userId) {
+        Migration current = migrations.get(userId);
+        if (current != null && current.state() != State.FAILED) {
+            throw new IllegalStateException("User " + userId + " is being moved by this node");
+        }
+        if (persisted(userId) != null) {
+            shardRouter.abortMigration(userId);
+        } else if (current == null) {
+            throw new IllegalArgumentException("User " + userId + " is not being moved");
+        }
+        migrations.remove(userId);
+    }
+
+    private UserShard persisted(long userId) {
+        return shardRouter.migrating().stream()
+                .filter(assignment -> assignment.getUserId() == userId)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static Migration interrupted(UserShard assignment) {
+        return new Migration(assignment.getUserId(), assignment.getShard(), assignment.getTargetShard(),
+                State.INTERRUPTED, 0, assignment.getUpdatedAt(), null);
+    }
+
+    private void run(Migration migration) {
+        long userId = migration.userId();
+        StorageBackend source = storageBackend.shard(migration.source());
+        StorageBackend target = storageBackend.shard(migration.target());
+        List<String> prefixes = prefixes(userId);
+
+        try {
+            settle();
+            update(userId, State.COPYING, 0, null);
+            long copied = copy(userId, source, target, prefixes);
+            removeStale(source, target, prefixes);
+
+            shardRouter.completeMigration(userId);
+            update(userId, State.CLEANING, copied, null);
+            settle();
+            for (String prefix : prefixes) {
+                deleteAll(source, prefix);
+            }
+
+            migrations.remove(userId);
+            log.info("Moved user {} from shard '{}' to '{}' ({} objects)",
+                    userId, migration.source(), migration.target(), copied);
+        } catch (Exception e) {
+            log.error("Moving user {} to shard '{}' failed", userId, migration.target(), e);
+            if (migrations.get(userId).state() != State.CLEANING) {
+                shardRouter.abortMigration(userId);
+            }
+            update(userId, State.FAILED, migrations.get(userId).copiedObjects(), e.getMessage());
+        }
+    }
+
+    private long copy(long userId, StorageBackend source, StorageBackend target, List<String> prefixes) {
+        Map<String, String> copiedEtags = new HashMap<>();
+        long copied = 0;
+
+        for (int pass = 1; pass <= maxCopyPasses; pass++) {
+            long copiedThisPass = 0;
+            for (String prefix : prefixes) {
+                for (StorageObject object : source.list(prefix, true)) {
+                    if (object.etag() != null && object.etag().equals(copiedEtags.get(object.name()))) {
+                        continue;
+                    }
+                    if (pass == 1 && target.stat(object.name())
+                            .map(existing -> Objects.equals(existing.etag(), object.etag()))
+                            .orElse(false)) {
+                        copiedEtags.put(object.name(), object.etag());
+                        continue;
+                    }
+
+                    transfer(source, target, object);
+                    copiedEtags.put(object.name(), object.etag());
+                    copiedThisPass++;
+                    update(userId, State.COPYING, ++copied, null);
+                }
+            }
+            if (copiedThisPass == 0) {
+                return copied;
+            }
+        }
+        throw new IllegalStateException("Objects kept changing after " + maxCopyPasses + " copy passes");
+    }
+
+    private static void transfer(StorageBackend source, StorageBackend target, StorageObject object) {
+        try (InputStream inputStream = source.get(object.name())) {
+            target.put(object.name(), inputStream, object.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy " + object.name(), e);
+        }
+    }
+
+    private static void removeStale(StorageBackend source, StorageBackend target, List<String> prefixes) {
+        List<String> stale = new ArrayList<>();
+        for (String prefix : prefixes) {
+            for (StorageObject object : target.list(prefix, true)) {
+                if (source.stat(object.name()).isEmpty()) {
+                    stale.add(object.name());
+                }
+            }
+        }
+        if (!stale.isEmpty()) {
+            target.deleteBatch(stale);
+        }
+    }
+
+    private static void deleteAll(StorageBackend shard, String prefix) {
+        List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+        for (StorageObject object : shard.list(prefix, true)) {
+            batch.add(object.name());
+            if (batch.size() == DELETE_BATCH_SIZE) {
+                shard.deleteBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            shard.deleteBatch(batch);
+        }
+    }
+
+    private void settle() throws InterruptedException {
+        Thread.sleep(2 * shardRouter.assignmentTtlMillis());
+    }
+
+    private void update(long userId, State state, long copiedObjects, String error) {
+        migrations.computeIfPresent(userId, (id, migration) -> new Migration(userId, migration.source(),
+                migration.target(), state, copiedObjects, migration.startedAt(), error));
+    }
+
+    private static List<String> prefixes(long userId) {
+        String userFolder = "user-" + userId + "-files/";
+        return List.of(userFolder, PreviewService.PREVIEW_PREFIX + userFolder);
+    }
+
+    public enum State {
+        PENDING, COPYING, CLEANING, FAILED, INTERRUPTED
+    }
+
+    public record Migration(long userId, String source, String target, State state, long copiedObjects,
+                            Instant startedAt, String error) {
+    }
+}
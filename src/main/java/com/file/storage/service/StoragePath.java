@@ -0,0 +1,117 @@
+package com.file.storage.service;
+
+import java.nio.file.InvalidPathException;
+
+public final class StoragePath {
+    private static final String HOME_PREFIX = "user-";
+    private static final String HOME_SUFFIX = "-files/";
+
+    private final String object;
+    private final int homeLength;
+
+    private StoragePath(String object, int homeLength) {
+        this.object = object;
+        this.homeLength = homeLength;
+    }
+
+    public static StoragePath of(String object) {
+        return new StoragePath(object, homeLength(object));
+    }
+
+    // one pass over the user input: drops a leading home folder, collapses repeated slashes
+    // and rejects "." and ".." segments, so the key can never leave the home folder
+    public static StoragePath resolve(String homeFolder, String path, boolean directory) {
+        int start = homeLength(path);
+        int end = path.length();
+        if (!directory) {
+            while (end > start && path.charAt(end - 1) <= ' ') {
+                end--;
+            }
+        }
+
+        StringBuilder builder = new StringBuilder(homeFolder.length() + end - start + 1).append(homeFolder);
+        int segment = builder.length();
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c != '/') {
+                builder.append(c);
+            } else if (builder.length() > segment) {
+                checkSegment(builder, segment, path);
+                builder.append('/');
+                segment = builder.length();
+            }
+        }
+        checkSegment(builder, segment, path);
+        if (directory && builder.length() > segment) {
+            builder.append('/');
+        }
+
+        return new StoragePath(builder.toString(), homeFolder.length());
+    }
+
+    public static String lastSegment(String path) {
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(path.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    private static void checkSegment(CharSequence builder, int segment, String path) {
+        int length = builder.length() - segment;
+        if ((length == 1 || length == 2) && builder.charAt(segment) == '.'
+                && builder.charAt(builder.length() - 1) == '.') {
+            throw new InvalidPathException(path, "Relative segments are not allowed");
+        }
+    }
+
+    private static int homeLength(String path) {
+        if (!path.startsWith(HOME_PREFIX)) {
+            return 0;
+        }
+        int i = HOME_PREFIX.length();
+        while (i < path.length() && Character.isDigit(path.charAt(i))) {
+            i++;
+        }
+        if (i == HOME_PREFIX.length() || !path.startsWith(HOME_SUFFIX, i)) {
+            return 0;
+        }
+        return i + HOME_SUFFIX.length();
+    }
+
+    public String object() {
+        return object;
+    }
+
+    public boolean isDirectory() {
+        return object.endsWith("/");
+    }
+
+    public String relative() {
+        return object.substring(homeLength);
+    }
+
+    public String name() {
+        int length = object.length();
+        if (length == homeLength || (length == homeLength + 1 && object.charAt(homeLength) == '/')) {
+            throw new InvalidPathException("", "Empty path");
+        }
+
+        int lastSlash = object.lastIndexOf('/', length - 2);
+
+        return lastSlash <= homeLength ? relative() : object.substring(lastSlash + 1);
+    }
+
+    public String parent() {
+        int slash = isDirectory()
+                ? object.lastIndexOf('/', object.length() - 2)
+                : object.lastIndexOf('/');
+
+        return slash <= homeLength ? "" : object.substring(homeLength, slash + 1);
+    }
+
+    @Override
+    public String toString() {
+        return object;
+    }
+}
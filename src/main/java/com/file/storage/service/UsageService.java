@@ -0,0 +1,130 @@
+package com.file.storage.service;
+
+import com.file.storage.dto.UsageResponse;
+import com.file.storage.exceptions.QuotaExceededException;
+import com.file.storage.model.UserUsage;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageObject;
+import com.file.storage.repository.UserUsageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+@Slf4j
+@Service
+public class UsageService {
+    private final UserUsageRepository userUsageRepository;
+    private final StorageBackend storageBackend;
+    private final long defaultQuota;
+    private final long reconcileIntervalMillis;
+    private final long reconcilePeriodMillis;
+    private final long reservationTimeoutMillis;
+
+    public UsageService(UserUsageRepository userUsageRepository,
+                        StorageBackend storageBackend,
+                        @Value("${storage.usage.default-quota-bytes}") long defaultQuota,
+                        @Value("${storage.usage.reconcile-interval-ms}") long reconcileIntervalMillis,
+                        @Value("${storage.usage.reconcile-period-ms}") long reconcilePeriodMillis,
+                        @Value("${storage.usage.reservation-timeout-ms}") long reservationTimeoutMillis) {
+        this.userUsageRepository = userUsageRepository;
+        this.storageBackend = storageBackend;
+        this.defaultQuota = defaultQuota;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+        this.reconcilePeriodMillis = reconcilePeriodMillis;
+        this.reservationTimeoutMillis = reservationTimeoutMillis;
+    }
+
+    public void reserve(long userId, long bytes, long objects) {
+        if (userUsageRepository.reserve(userId, bytes, objects, defaultQuota) == 1) {
+            return;
+        }
+
+        UserUsage usage = userUsageRepository.findById(userId).orElse(null);
+        if (usage == null) {
+            userUsageRepository.createIfAbsent(userId);
+            usage = userUsageRepository.findById(userId).orElseThrow();
+        }
+        if (usage.getReconciledAt() != null) {
+            throw new QuotaExceededException();
+        }
+
+        // a row that was never reconciled counts nothing yet, the files already stored are counted before the first upload
+        reconcile(usage);
+        if (userUsageRepository.reserve(userId, bytes, objects, defaultQuota) == 0) {
+            throw new QuotaExceededException();
+        }
+    }
+
+    // moves a finished upload from the reservation into the used counters
+    public void complete(long userId, long reservedBytes, long reservedObjects, long storedBytes, long storedObjects) {
+        if (reservedObjects != 0 || storedObjects != 0) {
+            userUsageRepository.complete(userId, reservedBytes, reservedObjects, storedBytes, storedObjects);
+        }
+    }
+
+    public void release(long userId, long bytes, long objects) {
+        if (bytes != 0 || objects != 0) {
+            userUsageRepository.release(userId, bytes, objects);
+        }
+    }
+
+    public long remaining(long userId) {
+        return userUsageRepository.findById(userId)
+                .map(usage -> quotaOf(usage) - usage.getUsedBytes() - usage.getReservedBytes())
+                .orElse(defaultQuota);
+    }
+
+    public UsageResponse getUsage(long userId) {
+        return userUsageRepository.findById(userId)
+                .map(usage -> new UsageResponse(usage.getUsedBytes(), usage.getObjectCount(), quotaOf(usage)))
+                .orElseGet(() -> new UsageResponse(0, 0, defaultQuota));
+    }
+
+    private long quotaOf(UserUsage usage) {
+        return usage.getQuotaBytes() != null ? usage.getQuotaBytes() : defaultQuota;
+    }
+
+    @Scheduled(fixedDelayString = "${storage.usage.reconcile-interval-ms}",
+            initialDelayString = "${storage.usage.reconcile-interval-ms}")
+    public void reconcile() {
+        // each run takes its share of the users, so a full pass takes about reconcilePeriodMillis
+        long users = userUsageRepository.count();
+        int batchSize = (int) Math.max(1, Math.ceilDiv(users * reconcileIntervalMillis, reconcilePeriodMillis));
+
+        Instant abandonedBefore = abandonedBefore();
+        for (UserUsage usage : userUsageRepository.findReconcilable(abandonedBefore, PageRequest.of(0, batchSize))) {
+            try {
+                reconcile(usage);
+            } catch (RuntimeException e) {
+                log.warn("Failed to reconcile storage usage of user {}", usage.getUserId(), e);
+            }
+        }
+    }
+
+    void reconcile(UserUsage usage) {
+        long bytes = 0;
+        long objects = 0;
+        for (StorageObject object : storageBackend.list(HomeFolderService.folderOf(usage.getUserId()), true)) {
+            if (!object.name().endsWith("/")) {
+                bytes += object.size();
+                objects++;
+            }
+        }
+
+        if (userUsageRepository.reconcile(usage.getUserId(), usage.getVersion(), bytes, objects, abandonedBefore()) == 0) {
+            log.debug("Usage of user {} changed while reconciling, leaving it for the next run", usage.getUserId());
+        } else if (bytes != usage.getUsedBytes() || objects != usage.getObjectCount()) {
+            log.info("Corrected storage usage of user {} from {} bytes in {} files to {} bytes in {} files",
+                    usage.getUserId(), usage.getUsedBytes(), usage.getObjectCount(), bytes, objects);
+        }
+    }
+
+    // reservations left by a node that died mid-upload would otherwise hold the quota forever
+    private Instant abandonedBefore() {
+        return Instant.now().minusMillis(reservationTimeoutMillis);
+    }
+}
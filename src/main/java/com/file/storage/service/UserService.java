@@ -1,17 +1,26 @@
 package com.file.storage.service;
 
+import com.file.storage.dto.UsageResponse;
 import com.file.storage.dto.UserResponse;
 import com.file.storage.exceptions.UnauthorizedUserException;
+import com.file.storage.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 @Service
+@RequiredArgsConstructor
 public class UserService {
+    private final UserRepository userRepository;
+    private final UsageService usageService;
 
     public UserResponse getMe(UserDetails userDetails) {
         if (userDetails == null) {
             throw new UnauthorizedUserException();
         }
-        return new UserResponse(userDetails.getUsername());
+        UsageResponse usage = userRepository.findByUsername(userDetails.getUsername())
+                .map(user -> usageService.getUsage(user.getId()))
+                .orElse(null);
+        return new UserResponse(userDetails.getUsername(), usage);
     }
 }
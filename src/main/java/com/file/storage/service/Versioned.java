@@ -0,0 +1,10 @@
+package com.file.storage.service;
+
+import com.file.storage.dto.ResourceVersion;
+
+import java.util.function.Supplier;
+
+// the body is only built once the caller knows the client's copy is stale
+public record Versioned<T>(ResourceVersion version,
+                           Supplier<T> body) {
+}
@@ -0,0 +1,211 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+@Slf4j
+@Component
+public class ZipArchiveCache {
+    static final String CACHE_PREFIX = ".zip-cache/";
+
+    private final StorageBackend storageBackend;
+    private final Executor executor;
+    private final long maxBytes;
+    private final long maxArchiveBytes;
+    private final int level;
+
+    // archives this instance knows about in least recently used order, so hits and evictions need no storage call;
+    // an archive evicted by another instance is found missing on open and dropped
+    private final Map<String, Long> archives = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public ZipArchiveCache(StorageBackend storageBackend,
+                           ZipCompressionPolicy compressionPolicy,
+                           @Qualifier("archiveCacheTaskExecutor") Executor executor,
+                           @Value("${storage.zip.cache.max-bytes}") long maxBytes,
+                           @Value("${storage.zip.cache.max-archive-bytes}") long maxArchiveBytes) {
+        this.storageBackend = storageBackend;
+        this.executor = executor;
+        this.maxBytes = maxBytes;
+        this.maxArchiveBytes = Math.min(maxArchiveBytes, maxBytes);
+        this.level = compressionPolicy.level();
+    }
+
+    // archives sit under the owner's folder name so that under sharding they are stored next to the owner's files,
+    // outside the owner's folder so that they never show up in its listings
+    public String key(String prefix, String fingerprint) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((prefix + '\0' + fingerprint + '\0' + level).getBytes(StandardCharsets.UTF_8));
+            return CACHE_PREFIX + prefix.substring(0, prefix.indexOf('/') + 1) + HexFormat.of().formatHex(hash) + ".zip";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // one listing at startup picks up the archives of earlier runs; with sharding it only covers the default shard
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (maxBytes <= 0) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                List<StorageObject> found = new ArrayList<>();
+                storageBackend.list(CACHE_PREFIX, true).forEach(found::add);
+                found.sort(Comparator.comparing(StorageObject::lastModified));
+                for (StorageObject object : found) {
+                    if (!object.directory()) {
+                        add(object.name(), object.size());
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Failed to load cached archives", e);
+            }
+        });
+    }
+
+    // null when the archive is not cached
+    public InputStream open(String key) {
+        synchronized (this) {
+            if (archives.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            return storageBackend.get(key);
+        } catch (RuntimeException e) {
+            log.debug("Cached archive {} is gone", key, e);
+            synchronized (this) {
+                Long size = archives.remove(key);
+                if (size != null) {
+                    totalBytes -= size;
+                }
+            }
+            return null;
+        }
+    }
+
+    public Recorder record(String key, OutputStream outputStream) throws IOException {
+        return new Recorder(key, outputStream, maxBytes > 0 ? Files.createTempFile("zip-cache-", ".zip") : null);
+    }
+
+    private void store(String key, Path file) {
+        try {
+            long size = Files.size(file);
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                storageBackend.put(key, inputStream, size);
+            }
+            add(key, size);
+        } catch (Exception e) {
+            log.warn("Failed to cache archive {}", key, e);
+        } finally {
+            delete(file);
+        }
+    }
+
+    private void add(String key, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = archives.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> oldest = archives.entrySet().iterator();
+            while (totalBytes > maxBytes && oldest.hasNext()) {
+                Map.Entry<String, Long> archive = oldest.next();
+                evicted.add(archive.getKey());
+                totalBytes -= archive.getValue();
+                oldest.remove();
+            }
+        }
+        if (!evicted.isEmpty()) {
+            storageBackend.deleteBatch(evicted);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", file, e);
+        }
+    }
+
+    public class Recorder extends FilterOutputStream {
+        private final String key;
+        private OutputStream copy;
+        private Path file;
+        private long written;
+
+        private Recorder(String key, OutputStream outputStream, Path file) throws IOException {
+            super(outputStream);
+            this.key = key;
+            this.file = file;
+            this.copy = file != null ? Files.newOutputStream(file) : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                written += len;
+                if (written > maxArchiveBytes) {
+                    discard();
+                } else {
+                    copy.write(b, off, len);
+                }
+            }
+        }
+
+        public void complete() throws IOException {
+            flush();
+            if (copy != null) {
+                copy.close();
+                copy = null;
+                Path archive = file;
+                file = null;
+                executor.execute(() -> store(key, archive));
+            }
+        }
+
+        public void discard() {
+            if (copy != null) {
+                try {
+                    copy.close();
+                } catch (IOException ignored) {
+                }
+                copy = null;
+                delete(file);
+                file = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.file.storage.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+@Component
+public class ZipCompressionPolicy {
+    private static final Set<String> INCOMPRESSIBLE_EXTENSIONS = Set.of(
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "heif", "avif",
+            "mp4", "m4v", "mov", "mkv", "avi", "webm", "wmv",
+            "mp3", "m4a", "aac", "ogg", "opus", "flac",
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst", "lz4",
+            "jar", "apk", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub",
+            "pdf", "woff", "woff2"
+    );
+    private static final int PROBE_SIZE = 4096;
+    private static final int MIN_PROBE_SIZE = 512;
+    private static final double ENTROPY_THRESHOLD = 7.5;
+
+    private final int level;
+
+    public ZipCompressionPolicy(@Value("${storage.zip.deflate-level}") int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("storage.zip.deflate-level must be between 0 and 9, got " + level);
+        }
+        this.level = level;
+    }
+
+    public int level() {
+        return level;
+    }
+
+    public boolean shouldCompress(String name, byte[] data) {
+        if (level == Deflater.NO_COMPRESSION) {
+            return false;
+        }
+        if (INCOMPRESSIBLE_EXTENSIONS.contains(extension(name))) {
+            return false;
+        }
+        return data == null || data.length < MIN_PROBE_SIZE || entropy(data) < ENTROPY_THRESHOLD;
+    }
+
+    private static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        int slash = name.lastIndexOf('/');
+        return dot > slash ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    static double entropy(byte[] data) {
+        int length = Math.min(data.length, PROBE_SIZE);
+        int[] counts = new int[256];
+        for (int i = 0; i < length; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+
+        double entropy = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                double p = (double) count / length;
+                entropy -= p * (Math.log(p) / Math.log(2));
+            }
+        }
+        return entropy;
+    }
+}
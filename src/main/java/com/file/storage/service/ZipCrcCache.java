@@ -0,0 +1,132 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.ZipCrcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Component
+public class ZipCrcCache {
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final ZipCrcRepository crcRepository;
+    private final Executor executor;
+    private final Map<String, Long> crcs;
+    private final Map<String, Long> unsaved = new ConcurrentHashMap<>();
+    private final AtomicBoolean saving = new AtomicBoolean();
+
+    // the local map saves a round trip, Redis lets a resumed download on another node skip the CRC pass
+    public ZipCrcCache(ZipCrcRepository crcRepository,
+                       @Qualifier("archiveCacheTaskExecutor") Executor executor,
+                       @Value("${storage.zip.crc-cache-size}") int maxEntries) {
+        this.crcRepository = crcRepository;
+        this.executor = executor;
+        this.crcs = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public Long get(ArchiveEntry entry) {
+        return getAll(List.of(entry)).get(entry);
+    }
+
+    // entries missing locally are looked up in Redis with one MGET per batch, not one GET each
+    public Map<ArchiveEntry, Long> getAll(List<ArchiveEntry> entries) {
+        Map<ArchiveEntry, Long> found = new HashMap<>();
+        List<ArchiveEntry> missing = new ArrayList<>();
+        for (ArchiveEntry entry : entries) {
+            Long crc = crcs.get(key(entry));
+            if (crc != null) {
+                found.put(entry, crc);
+            } else {
+                missing.add(entry);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += MAX_BATCH_SIZE) {
+            List<ArchiveEntry> batch = missing.subList(from, Math.min(missing.size(), from + MAX_BATCH_SIZE));
+            List<String> keys = batch.stream().map(ZipCrcCache::key).toList();
+            List<Long> stored;
+            try {
+                stored = crcRepository.findAll(keys);
+            } catch (RuntimeException e) {
+                log.warn("Failed to read {} CRCs from Redis, they will be computed again", keys.size(), e);
+                return found;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                Long crc = stored.get(i);
+                if (crc != null) {
+                    crcs.put(keys.get(i), crc);
+                    found.put(batch.get(i), crc);
+                }
+            }
+        }
+        return found;
+    }
+
+    // the download does not wait for Redis, new CRCs are written in pipelined batches in the background
+    public void put(ArchiveEntry entry, long crc) {
+        String key = key(entry);
+        if (crcs.put(key, crc) != null) {
+            return;
+        }
+
+        unsaved.put(key, crc);
+        if (saving.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::save);
+            } catch (RuntimeException e) {
+                saving.set(false);
+                log.warn("Failed to schedule saving CRCs in Redis", e);
+            }
+        }
+    }
+
+    private void save() {
+        while (true) {
+            Map<String, Long> batch = new HashMap<>();
+            for (String key : unsaved.keySet()) {
+                if (batch.size() == MAX_BATCH_SIZE) {
+                    break;
+                }
+                Long crc = unsaved.remove(key);
+                if (crc != null) {
+                    batch.put(key, crc);
+                }
+            }
+            if (batch.isEmpty()) {
+                saving.set(false);
+                // a put may have seen the flag still set after the last drain
+                if (unsaved.isEmpty() || !saving.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+
+            try {
+                crcRepository.saveAll(batch);
+            } catch (RuntimeException e) {
+                log.warn("Failed to store {} CRCs in Redis", batch.size(), e);
+            }
+        }
+    }
+
+    private static String key(ArchiveEntry entry) {
+        return entry.objectName() + '\0' + entry.etag();
+    }
+}
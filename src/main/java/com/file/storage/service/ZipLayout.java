@@ -0,0 +1,205 @@
+package com.file.storage.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+public class ZipLayout {
+    private final String prefix;
+    private final List<Member> members;
+    private final long centralOffset;
+    private final long centralSize;
+    private final long length;
+    private final String eTag;
+    private final long lastModified;
+
+    private ZipLayout(String prefix, List<Member> members, long centralOffset, long centralSize, long length,
+                      String eTag, long lastModified) {
+        this.prefix = prefix;
+        this.members = members;
+        this.centralOffset = centralOffset;
+        this.centralSize = centralSize;
+        this.length = length;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    // every member is STORED with its CRC in the local header, streaming unzippers reject STORED entries
+    // followed by a data descriptor, and a range near the end must not have to read objects for their CRCs
+    public static ZipLayout of(String prefix, List<ArchiveEntry> entries, Map<ArchiveEntry, Long> crcs) {
+        List<Member> members = new ArrayList<>(entries.size());
+        MessageDigest digest = sha256();
+        long lastModified = -1;
+        long offset = 0;
+        long centralSize = 0;
+
+        for (ArchiveEntry entry : entries) {
+            Long crc = crcs.get(entry);
+            if (crc == null) {
+                throw new IllegalArgumentException("No CRC for '" + entry.objectName() + "'");
+            }
+            ZipStreamWriter.LocalEntry localEntry = ZipStreamWriter.LocalEntry.of(
+                    entry.entryName(), entry.lastModified(), ZipStreamWriter.METHOD_STORED, entry.size(), crc);
+            byte[] localHeader = ZipStreamWriter.localHeader(localEntry);
+            Member member = new Member(entry, localEntry, localHeader, offset);
+            members.add(member);
+            offset = member.end();
+            centralSize += member.centralHeaderLength();
+
+            digest.update((entry.entryName() + '\0' + entry.size() + '\0' + entry.etag() + '\0'
+                    + entry.lastModified().toEpochMilli() + '\n').getBytes(StandardCharsets.UTF_8));
+            lastModified = Math.max(lastModified, entry.lastModified().toEpochMilli());
+        }
+
+        long length = offset + centralSize + ZipStreamWriter.endLength(members.size(), centralSize, offset);
+
+        return new ZipLayout(prefix, members, offset, centralSize, length,
+                "zip-" + HexFormat.of().formatHex(digest.digest()), lastModified);
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public String eTag() {
+        return eTag;
+    }
+
+    public long lastModified() {
+        return lastModified;
+    }
+
+    public List<Member> members() {
+        return members;
+    }
+
+    public void write(OutputStream out, long start, long end, MemberSource source, byte[] buffer) throws IOException {
+        RangeCursor cursor = new RangeCursor(out, start, end);
+
+        for (Member member : members) {
+            if (member.headerOffset() > end) {
+                break;
+            }
+            if (member.end() <= start) {
+                continue;
+            }
+
+            cursor.write(member.localHeader(), member.headerOffset());
+            writeData(cursor, member, source, buffer);
+        }
+
+        if (cursor.overlaps(centralOffset, length - centralOffset)) {
+            long position = centralOffset;
+            for (Member member : members) {
+                if (cursor.overlaps(position, member.centralHeaderLength())) {
+                    cursor.write(ZipStreamWriter.centralHeader(member.centralRecord()), position);
+                }
+                position += member.centralHeaderLength();
+            }
+            cursor.write(ZipStreamWriter.end(members.size(), centralSize, centralOffset), position);
+        }
+        out.flush();
+    }
+
+    private void writeData(RangeCursor cursor, Member member, MemberSource source, byte[] buffer) throws IOException {
+        long size = member.entry().size();
+        if (!cursor.overlaps(member.dataOffset(), size)) {
+            return;
+        }
+
+        long from = Math.max(cursor.start, member.dataOffset()) - member.dataOffset();
+        long to = Math.min(cursor.end + 1, member.dataOffset() + size) - member.dataOffset();
+        boolean whole = from == 0 && to == size;
+        CRC32 crc = new CRC32();
+        long copied = 0;
+
+        try (InputStream inputStream = source.open(member.entry(), from, to - from)) {
+            int read;
+            while (copied < to - from
+                    && (read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, to - from - copied))) != -1) {
+                cursor.out.write(buffer, 0, read);
+                if (whole) {
+                    crc.update(buffer, 0, read);
+                }
+                copied += read;
+            }
+        }
+        if (copied != to - from) {
+            throw new ZipException("Object '" + member.entry().objectName() + "' is shorter than listed");
+        }
+        if (whole && crc.getValue() != member.localEntry().crc()) {
+            throw new ZipException("CRC mismatch for '" + member.entry().objectName() + "', it changed while zipping");
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public interface MemberSource {
+
+        InputStream open(ArchiveEntry entry, long offset, long length) throws IOException;
+    }
+
+    public record Member(ArchiveEntry entry, ZipStreamWriter.LocalEntry localEntry, byte[] localHeader, long headerOffset) {
+
+        long dataOffset() {
+            return headerOffset + localHeader.length;
+        }
+
+        int centralHeaderLength() {
+            return ZipStreamWriter.centralHeader(centralRecord()).length;
+        }
+
+        long end() {
+            return dataOffset() + entry.size();
+        }
+
+        ZipStreamWriter.CentralRecord centralRecord() {
+            return new ZipStreamWriter.CentralRecord(localEntry, localEntry.crc(), entry.size(), entry.size(),
+                    headerOffset);
+        }
+    }
+
+    private static final class RangeCursor {
+        private final OutputStream out;
+        private final long start;
+        private final long end;
+
+        private RangeCursor(OutputStream out, long start, long end) {
+            this.out = out;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean overlaps(long offset, long length) {
+            return length > 0 && offset <= end && offset + length > start;
+        }
+
+        void write(byte[] bytes, long offset) throws IOException {
+            if (!overlaps(offset, bytes.length)) {
+                return;
+            }
+            int from = (int) (Math.max(start, offset) - offset);
+            int to = (int) (Math.min(end + 1, offset + bytes.length) - offset);
+            out.write(bytes, from, to - from);
+        }
+    }
+}
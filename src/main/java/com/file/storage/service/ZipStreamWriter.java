@@ -0,0 +1,337 @@
+package com.file.storage.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+public class ZipStreamWriter {
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATED = 8;
+
+    static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final long DEFLATE_OVERHEAD_MARGIN = 1L << 24;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+    private static final int FLAG_UTF8 = 0x800;
+
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int EXTENDED_TIMESTAMP_ID = 0x5455;
+    private static final int EXTENDED_TIMESTAMP_LENGTH = 9;
+    private static final int LOCAL_ZIP64_EXTRA_LENGTH = 20;
+
+    private final OutputStream out;
+    private final Deflater deflater;
+    private final Deflater storingDeflater;
+    private final byte[] deflateBuffer;
+    private final CRC32 crc = new CRC32();
+    private final List<CentralRecord> records = new ArrayList<>();
+    private long offset;
+
+    public ZipStreamWriter(OutputStream out, int level, int bufferSize) {
+        this.out = out;
+        this.deflater = new Deflater(level, true);
+        this.storingDeflater = new Deflater(Deflater.NO_COMPRESSION, true);
+        this.deflateBuffer = new byte[bufferSize];
+    }
+
+    public long bytesWritten() {
+        return offset;
+    }
+
+    public void writeStored(String name, Instant lastModified, byte[] data) throws IOException {
+        crc.reset();
+        crc.update(data);
+
+        LocalEntry entry = LocalEntry.of(name, lastModified, METHOD_STORED, data.length, crc.getValue());
+        long headerOffset = offset;
+        write(localHeader(entry));
+        write(data, 0, data.length);
+
+        records.add(new CentralRecord(entry, crc.getValue(), data.length, data.length, headerOffset));
+    }
+
+    // streaming unzippers only accept a data descriptor after deflated data, so an incompressible entry is STORED
+    // only when its CRC is already known and can go into the local header; otherwise it is deflated at level 0
+    public long writeStreamed(String name, Instant lastModified, long declaredSize, boolean compress, Long knownCrc,
+                              InputStream inputStream, byte[] buffer) throws IOException {
+        if (compress || knownCrc == null) {
+            return writeDeflated(name, lastModified, declaredSize, compress ? deflater : storingDeflater,
+                    inputStream, buffer);
+        }
+
+        LocalEntry entry = LocalEntry.of(name, lastModified, METHOD_STORED, declaredSize, knownCrc);
+        long headerOffset = offset;
+        write(localHeader(entry));
+
+        crc.reset();
+        long size = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            crc.update(buffer, 0, read);
+            size += read;
+            write(buffer, 0, read);
+        }
+        if (size != declaredSize || crc.getValue() != knownCrc) {
+            throw new ZipException("Entry '" + name + "' changed while archiving: expected "
+                    + declaredSize + " bytes, got " + size);
+        }
+
+        records.add(new CentralRecord(entry, knownCrc, size, size, headerOffset));
+        return knownCrc;
+    }
+
+    private long writeDeflated(String name, Instant lastModified, long declaredSize, Deflater deflater,
+                               InputStream inputStream, byte[] buffer) throws IOException {
+        LocalEntry entry = LocalEntry.of(name, lastModified, METHOD_DEFLATED, declaredSize, -1);
+        long headerOffset = offset;
+        write(localHeader(entry));
+
+        crc.reset();
+        long dataOffset = offset;
+        long size = 0;
+        int read;
+
+        deflater.reset();
+        while ((read = inputStream.read(buffer)) != -1) {
+            crc.update(buffer, 0, read);
+            size += read;
+            deflater.setInput(buffer, 0, read);
+            while (!deflater.needsInput()) {
+                drainDeflater(deflater);
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            drainDeflater(deflater);
+        }
+
+        long compressedSize = offset - dataOffset;
+        if (!entry.zip64() && (size >= ZIP64_LIMIT || compressedSize >= ZIP64_LIMIT)) {
+            throw new ZipException("Entry '" + name + "' exceeds 4 GiB but was announced as " + declaredSize + " bytes");
+        }
+        write(dataDescriptor(crc.getValue(), compressedSize, size, entry.zip64()));
+
+        records.add(new CentralRecord(entry, crc.getValue(), compressedSize, size, headerOffset));
+        return crc.getValue();
+    }
+
+    public void finish() throws IOException {
+        deflater.end();
+        storingDeflater.end();
+        long centralOffset = offset;
+        for (CentralRecord record : records) {
+            write(centralHeader(record));
+        }
+        write(end(records.size(), offset - centralOffset, centralOffset));
+        out.flush();
+    }
+
+    private void drainDeflater(Deflater deflater) throws IOException {
+        int length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.NO_FLUSH);
+        if (length > 0) {
+            write(deflateBuffer, 0, length);
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    private void write(byte[] bytes, int from, int length) throws IOException {
+        out.write(bytes, from, length);
+        offset += length;
+    }
+
+    static byte[] localHeader(LocalEntry entry) {
+        boolean descriptor = entry.crc() < 0;
+        long size = entry.method() == METHOD_STORED ? entry.size() : 0;
+        int extraLength = EXTENDED_TIMESTAMP_LENGTH + (entry.zip64() ? LOCAL_ZIP64_EXTRA_LENGTH : 0);
+
+        ByteBuffer buffer = allocate(30 + entry.name().length + extraLength);
+        buffer.putInt(LOCAL_HEADER_SIGNATURE)
+                .putShort((short) versionNeeded(entry.method(), entry.zip64()))
+                .putShort((short) (FLAG_UTF8 | (descriptor ? FLAG_DATA_DESCRIPTOR : 0)))
+                .putShort((short) entry.method())
+                .putInt((int) entry.dosTime())
+                .putInt(descriptor ? 0 : (int) entry.crc());
+        if (entry.zip64()) {
+            buffer.putInt((int) ZIP64_LIMIT).putInt((int) ZIP64_LIMIT);
+        } else {
+            buffer.putInt((int) size).putInt((int) size);
+        }
+        buffer.putShort((short) entry.name().length)
+                .putShort((short) extraLength)
+                .put(entry.name());
+        putExtendedTimestamp(buffer, entry.unixTime());
+        if (entry.zip64()) {
+            buffer.putShort((short) ZIP64_EXTRA_ID)
+                    .putShort((short) 16)
+                    .putLong(size)
+                    .putLong(size);
+        }
+        return buffer.array();
+    }
+
+    static byte[] dataDescriptor(long crc, long compressedSize, long size, boolean zip64) {
+        ByteBuffer buffer = allocate(dataDescriptorLength(zip64));
+        buffer.putInt(DATA_DESCRIPTOR_SIGNATURE).putInt((int) crc);
+        if (zip64) {
+            buffer.putLong(compressedSize).putLong(size);
+        } else {
+            buffer.putInt((int) compressedSize).putInt((int) size);
+        }
+        return buffer.array();
+    }
+
+    static byte[] centralHeader(CentralRecord record) {
+        LocalEntry entry = record.entry();
+        boolean zip64Size = record.size() >= ZIP64_LIMIT;
+        boolean zip64CompressedSize = record.compressedSize() >= ZIP64_LIMIT;
+        boolean zip64Offset = record.headerOffset() >= ZIP64_LIMIT;
+        int zip64Length = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+        int extraLength = EXTENDED_TIMESTAMP_LENGTH + (zip64Length > 0 ? 4 + zip64Length : 0);
+        boolean descriptor = entry.crc() < 0;
+
+        ByteBuffer buffer = allocate(46 + entry.name().length + extraLength);
+        buffer.putInt(CENTRAL_HEADER_SIGNATURE)
+                .putShort((short) 45)
+                .putShort((short) versionNeeded(entry.method(), entry.zip64() || zip64Length > 0))
+                .putShort((short) (FLAG_UTF8 | (descriptor ? FLAG_DATA_DESCRIPTOR : 0)))
+                .putShort((short) entry.method())
+                .putInt((int) entry.dosTime())
+                .putInt((int) record.crc())
+                .putInt((int) (zip64CompressedSize ? ZIP64_LIMIT : record.compressedSize()))
+                .putInt((int) (zip64Size ? ZIP64_LIMIT : record.size()))
+                .putShort((short) entry.name().length)
+                .putShort((short) extraLength)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putInt(0)
+                .putInt((int) (zip64Offset ? ZIP64_LIMIT : record.headerOffset()))
+                .put(entry.name());
+        putExtendedTimestamp(buffer, entry.unixTime());
+        if (zip64Length > 0) {
+            buffer.putShort((short) ZIP64_EXTRA_ID).putShort((short) zip64Length);
+            if (zip64Size) {
+                buffer.putLong(record.size());
+            }
+            if (zip64CompressedSize) {
+                buffer.putLong(record.compressedSize());
+            }
+            if (zip64Offset) {
+                buffer.putLong(record.headerOffset());
+            }
+        }
+        return buffer.array();
+    }
+
+    static byte[] end(long entries, long centralSize, long centralOffset) {
+        boolean zip64 = entries >= 0xFFFF || centralSize >= ZIP64_LIMIT || centralOffset >= ZIP64_LIMIT;
+        ByteBuffer buffer = allocate(endLength(entries, centralSize, centralOffset));
+
+        if (zip64) {
+            long zip64EndOffset = centralOffset + centralSize;
+            buffer.putInt(ZIP64_END_SIGNATURE)
+                    .putLong(44)
+                    .putShort((short) 45)
+                    .putShort((short) 45)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(entries)
+                    .putLong(entries)
+                    .putLong(centralSize)
+                    .putLong(centralOffset);
+            buffer.putInt(ZIP64_LOCATOR_SIGNATURE)
+                    .putInt(0)
+                    .putLong(zip64EndOffset)
+                    .putInt(1);
+        }
+        buffer.putInt(END_SIGNATURE)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) Math.min(entries, 0xFFFF))
+                .putShort((short) Math.min(entries, 0xFFFF))
+                .putInt((int) Math.min(centralSize, ZIP64_LIMIT))
+                .putInt((int) Math.min(centralOffset, ZIP64_LIMIT))
+                .putShort((short) 0);
+        return buffer.array();
+    }
+
+    static int dataDescriptorLength(boolean zip64) {
+        return zip64 ? 24 : 16;
+    }
+
+    static int endLength(long entries, long centralSize, long centralOffset) {
+        boolean zip64 = entries >= 0xFFFF || centralSize >= ZIP64_LIMIT || centralOffset >= ZIP64_LIMIT;
+        return 22 + (zip64 ? 56 + 20 : 0);
+    }
+
+    private static int versionNeeded(int method, boolean zip64) {
+        if (zip64) {
+            return 45;
+        }
+        return method == METHOD_DEFLATED ? 20 : 10;
+    }
+
+    private static void putExtendedTimestamp(ByteBuffer buffer, long unixTime) {
+        buffer.putShort((short) EXTENDED_TIMESTAMP_ID)
+                .putShort((short) 5)
+                .put((byte) 1)
+                .putInt((int) unixTime);
+    }
+
+    private static ByteBuffer allocate(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    record LocalEntry(byte[] name, int method, long size, long crc, long dosTime, long unixTime, boolean zip64) {
+
+        static LocalEntry of(String name, Instant lastModified, int method, long size, long crc) {
+            long threshold = method == METHOD_STORED ? ZIP64_LIMIT : ZIP64_LIMIT - DEFLATE_OVERHEAD_MARGIN;
+            return new LocalEntry(
+                    name.getBytes(StandardCharsets.UTF_8),
+                    method,
+                    size,
+                    crc,
+                    dosTime(lastModified),
+                    Math.max(0, Math.min(lastModified.getEpochSecond(), Integer.MAX_VALUE)),
+                    size >= threshold
+            );
+        }
+
+        private static long dosTime(Instant instant) {
+            LocalDateTime time = LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+            if (time.getYear() < 1980) {
+                return (1 << 21) | (1 << 16);
+            }
+            return (long) (time.getYear() - 1980) << 25
+                    | (long) time.getMonthValue() << 21
+                    | (long) time.getDayOfMonth() << 16
+                    | (long) time.getHour() << 11
+                    | (long) time.getMinute() << 5
+                    | (long) time.getSecond() >> 1;
+        }
+    }
+
+    record CentralRecord(LocalEntry entry, long crc, long compressedSize, long size, long headerOffset) {
+    }
+}
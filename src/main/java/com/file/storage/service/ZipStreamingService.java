@@ -0,0 +1,374 @@
+package com.file.storage.service;
+
+import com.file.storage.config.RequestCompletionFilter;
+import com.file.storage.exceptions.StorageBusyException;
+import com.file.storage.repository.AdaptiveLimiter;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+@Slf4j
+@Service
+public class ZipStreamingService {
+    private static final int CRC_BATCH_SIZE = 256;
+
+    private final StorageBackend storageBackend;
+    private final ObjectPrefetcher objectPrefetcher;
+    private final ZipCompressionPolicy compressionPolicy;
+    private final ZipCrcCache crcCache;
+    private final ZipArchiveCache archiveCache;
+    private final Semaphore permits;
+    private final int bufferSize;
+    private final long transferWaitMillis;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final Counter completed;
+    private final Counter cancelled;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Counter cached;
+    private final Counter bytes;
+    private final Counter storedEntries;
+    private final Counter deflatedEntries;
+
+    public ZipStreamingService(StorageBackend storageBackend,
+                               ObjectPrefetcher objectPrefetcher,
+                               ZipCompressionPolicy compressionPolicy,
+                               ZipCrcCache crcCache,
+                               ZipArchiveCache archiveCache,
+                               MeterRegistry meterRegistry,
+                               @Value("${storage.zip.max-concurrent}") int maxConcurrent,
+                               @Value("${storage.zip.buffer-size}") int bufferSize,
+                               @Value("${storage.zip.transfer-wait-ms}") long transferWaitMillis) {
+        this.storageBackend = storageBackend;
+        this.objectPrefetcher = objectPrefetcher;
+        this.compressionPolicy = compressionPolicy;
+        this.crcCache = crcCache;
+        this.archiveCache = archiveCache;
+        this.permits = new Semaphore(maxConcurrent);
+        this.bufferSize = bufferSize;
+        this.transferWaitMillis = transferWaitMillis;
+
+        Gauge.builder("storage.zip.active", active, AtomicInteger::get)
+                .description("Folder downloads currently being streamed")
+                .register(meterRegistry);
+        this.completed = downloads(meterRegistry, "completed");
+        this.cancelled = downloads(meterRegistry, "cancelled");
+        this.failed = downloads(meterRegistry, "failed");
+        this.rejected = downloads(meterRegistry, "rejected");
+        this.cached = downloads(meterRegistry, "cached");
+        this.bytes = Counter.builder("storage.zip.bytes")
+                .description("Uncompressed bytes written into folder archives")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.storedEntries = entries(meterRegistry, "stored");
+        this.deflatedEntries = entries(meterRegistry, "deflated");
+    }
+
+    private static Counter entries(MeterRegistry meterRegistry, String method) {
+        return Counter.builder("storage.zip.entries")
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+
+    private static Counter downloads(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("storage.zip.downloads")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public StreamingResponseBody stream(String prefix, String fingerprint) {
+        return stream(prefix, storageBackend.list(prefix, true), fingerprint);
+    }
+
+    // callers that already listed the folder for its fingerprint pass that listing in
+    public StreamingResponseBody stream(String prefix, Iterable<StorageObject> objects, String fingerprint) {
+        String key = archiveCache.key(prefix, fingerprint);
+        // a cached archive is still a long transfer, so it is admitted like a fresh one
+        return admit(prefix, outputStream -> {
+            InputStream archive = archiveCache.open(key);
+            if (archive != null) {
+                cached.increment();
+                try (archive) {
+                    archive.transferTo(outputStream);
+                }
+                return;
+            }
+
+            ZipArchiveCache.Recorder recorder = archiveCache.record(key, outputStream);
+            try {
+                writeZip(entries(objects, prefix, prefix).iterator(), recorder);
+                recorder.complete();
+            } finally {
+                recorder.discard();
+            }
+        });
+    }
+
+    public StreamingResponseBody stream(List<String> paths) {
+        return admit(paths.size() + " selected paths", outputStream -> writeZip(listSelection(paths), outputStream));
+    }
+
+    public ZipLayout layout(String prefix) {
+        List<ArchiveEntry> entries = new ArrayList<>();
+        listEntries(prefix).forEachRemaining(entries::add);
+        return ZipLayout.of(prefix, entries, crcs(entries));
+    }
+
+    // objects without a cached CRC are read once here, which costs as much as a download and is admitted like one
+    private Map<ArchiveEntry, Long> crcs(List<ArchiveEntry> entries) {
+        Map<ArchiveEntry, Long> crcs = new HashMap<>(crcCache.getAll(entries));
+        List<ArchiveEntry> missing = new ArrayList<>();
+        for (ArchiveEntry entry : entries) {
+            if (entry.size() == 0) {
+                crcs.put(entry, 0L);
+            } else if (!crcs.containsKey(entry)) {
+                missing.add(entry);
+            }
+        }
+        if (missing.isEmpty()) {
+            return crcs;
+        }
+
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new StorageBusyException();
+        }
+        try (AdaptiveLimiter.Queueing ignored = AdaptiveLimiter.queueFor(transferWaitMillis)) {
+            byte[] buffer = new byte[bufferSize];
+            for (ArchiveEntry entry : missing) {
+                long crc = computeCrc(entry, buffer);
+                crcCache.put(entry, crc);
+                crcs.put(entry, crc);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read objects of the archive", e);
+        } finally {
+            permits.release();
+        }
+        return crcs;
+    }
+
+    private long computeCrc(ArchiveEntry entry, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream inputStream = storageBackend.get(entry.objectName(), entry.etag(), 0, entry.size())) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    public StreamingResponseBody streamRange(ZipLayout layout, long start, long end) {
+        return admit(layout.prefix(), outputStream -> {
+            BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, bufferSize);
+            layout.write(bufferedOutputStream, start, end, this::openMember, new byte[bufferSize]);
+            bytes.increment(end - start + 1);
+        });
+    }
+
+    private StreamingResponseBody admit(String prefix, StreamingResponseBody body) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new StorageBusyException();
+        }
+
+        // the body may never run if the request times out or the client leaves while it is queued
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.compareAndSet(true, false)) {
+                permits.release();
+            }
+        };
+        RequestCompletionFilter.onCompletion(release);
+
+        return outputStream -> {
+            active.incrementAndGet();
+            try (AdaptiveLimiter.Queueing ignored = AdaptiveLimiter.queueFor(transferWaitMillis)) {
+                body.writeTo(outputStream);
+                completed.increment();
+            } catch (IOException e) {
+                cancelled.increment();
+                log.debug("Zip download of '{}' aborted by client: {}", prefix, e.getMessage());
+                throw e;
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.error("Zip download of '{}' failed", prefix, e);
+                throw e;
+            } finally {
+                active.decrementAndGet();
+                release.run();
+            }
+        };
+    }
+
+    private void writeZip(Iterator<ArchiveEntry> entries, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        ZipStreamWriter writer = new ZipStreamWriter(
+                new BufferedOutputStream(outputStream, bufferSize), compressionPolicy.level(), bufferSize);
+
+        Map<ArchiveEntry, Long> crcs = new ConcurrentHashMap<>();
+        try (ObjectPrefetcher.Pipeline pipeline = objectPrefetcher.open(withCrcs(entries, crcs))) {
+            ObjectPrefetcher.FetchedObject fetched;
+            while ((fetched = pipeline.next()) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    fetched.close();
+                    throw new InterruptedIOException("Zip download interrupted");
+                }
+
+                try (InputStream inputStream = fetched.inputStream()) {
+                    ArchiveEntry entry = fetched.entry();
+                    Long knownCrc = crcs.remove(entry);
+                    boolean compress = compressionPolicy.shouldCompress(entry.entryName(), fetched.data());
+
+                    if (fetched.data() != null && !compress) {
+                        writer.writeStored(entry.entryName(), entry.lastModified(), fetched.data());
+                    } else {
+                        long crc = writer.writeStreamed(entry.entryName(), entry.lastModified(), entry.size(),
+                                compress, compress ? null : knownCrc, inputStream, buffer);
+                        if (knownCrc == null) {
+                            crcCache.put(entry, crc);
+                        }
+                    }
+                    (compress ? deflatedEntries : storedEntries).increment();
+                    bytes.increment(entry.size());
+                }
+            }
+        }
+
+        writer.finish();
+    }
+
+    // the CRCs of the next batch are looked up together as the prefetcher pulls entries, not one round trip each
+    private Iterator<ArchiveEntry> withCrcs(Iterator<ArchiveEntry> entries, Map<ArchiveEntry, Long> crcs) {
+        return new Iterator<>() {
+            private Iterator<ArchiveEntry> batch = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                return batch.hasNext() || entries.hasNext();
+            }
+
+            @Override
+            public ArchiveEntry next() {
+                if (!batch.hasNext()) {
+                    List<ArchiveEntry> next = new ArrayList<>(CRC_BATCH_SIZE);
+                    while (next.size() < CRC_BATCH_SIZE && entries.hasNext()) {
+                        next.add(entries.next());
+                    }
+                    crcs.putAll(crcCache.getAll(next));
+                    batch = next.iterator();
+                }
+                return batch.next();
+            }
+        };
+    }
+
+    private InputStream openMember(ArchiveEntry entry, long offset, long length) {
+        return storageBackend.get(entry.objectName(), entry.etag(), offset, length);
+    }
+
+    private Iterator<ArchiveEntry> listEntries(String prefix) {
+        return entries(prefix, prefix).iterator();
+    }
+
+    private Iterator<ArchiveEntry> listSelection(List<String> paths) {
+        Iterator<String> remaining = paths.iterator();
+        Set<String> names = new HashSet<>();
+
+        return new Iterator<>() {
+            private Iterator<ArchiveEntry> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && remaining.hasNext()) {
+                    String path = remaining.next();
+                    current = entries(path, baseOf(path)).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public ArchiveEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ArchiveEntry entry = current.next();
+                return names.add(entry.entryName()) ? entry : rename(entry, names);
+            }
+        };
+    }
+
+    private Stream<ArchiveEntry> entries(String path, String base) {
+        return entries(storageBackend.list(path, path.endsWith("/")), path, base);
+    }
+
+    private static Stream<ArchiveEntry> entries(Iterable<StorageObject> objects, String path, String base) {
+        boolean directory = path.endsWith("/");
+
+        return StreamSupport.stream(objects.spliterator(), false)
+                .filter(object -> !object.directory() && (directory
+                        ? object.name().length() > path.length()
+                        : object.name().equals(path)))
+                .map(object -> new ArchiveEntry(
+                        object.name(),
+                        object.name().substring(base.length()),
+                        object.size(),
+                        object.etag(),
+                        object.lastModified()
+                ));
+    }
+
+    // a selected path keeps its own name in the archive, except the home folder whose contents go to the top
+    private static String baseOf(String path) {
+        String trimmed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        String parent = trimmed.substring(0, trimmed.lastIndexOf('/') + 1);
+        return parent.isEmpty() ? path : parent;
+    }
+
+    private static ArchiveEntry rename(ArchiveEntry entry, Set<String> names) {
+        String name = entry.entryName();
+        int dot = name.lastIndexOf('.');
+        if (dot <= name.lastIndexOf('/') + 1) {
+            dot = name.length();
+        }
+
+        String candidate;
+        int copy = 1;
+        do {
+            candidate = name.substring(0, dot) + " (" + copy++ + ")" + name.substring(dot);
+        } while (!names.add(candidate));
+
+        return new ArchiveEntry(entry.objectName(), candidate, entry.size(), entry.etag(), entry.lastModified());
+    }
+}
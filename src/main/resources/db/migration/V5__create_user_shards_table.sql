@@ -0,0 +1,12 @@
+CREATE TABLE user_shards (
+                       user_id BIGINT PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+                       shard VARCHAR(64) NOT NULL,
+                       target_shard VARCHAR(64),
+                       updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX user_shards_shard_idx ON user_shards (shard);
+
+-- Все существующие пользователи остаются в исходном бакете
+INSERT INTO user_shards (user_id, shard)
+SELECT id, 'default' FROM users;
@@ -0,0 +1,14 @@
+CREATE TABLE user_usage (
+                       user_id BIGINT PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+                       used_bytes BIGINT NOT NULL DEFAULT 0,
+                       object_count BIGINT NOT NULL DEFAULT 0,
+                       quota_bytes BIGINT,
+                       version BIGINT NOT NULL DEFAULT 0,
+                       reconciled_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX user_usage_reconciled_at_idx ON user_usage (reconciled_at NULLS FIRST);
+
+-- Счётчики существующих пользователей заполнит первая сверка с хранилищем
+INSERT INTO user_usage (user_id)
+SELECT id FROM users;
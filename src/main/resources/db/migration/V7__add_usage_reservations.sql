@@ -0,0 +1,4 @@
+ALTER TABLE user_usage
+    ADD COLUMN reserved_bytes BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN reserved_objects BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN reserved_at TIMESTAMP WITH TIME ZONE;
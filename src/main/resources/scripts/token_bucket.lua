@@ -0,0 +1,29 @@
+-- KEYS[1] bucket, ARGV: capacity, refill per second, tokens to take, allow debt (1/0)
+-- Returns 0 when the tokens were taken, otherwise the milliseconds to wait.
+-- With debt allowed the tokens are always taken and the result is how long the caller should pause.
+local capacity = tonumber(ARGV[1])
+local rate = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+local debt = ARGV[4] == '1'
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(bucket[1]) or capacity
+local ts = tonumber(bucket[2]) or now
+tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000)
+
+local wait = 0
+if tokens >= requested then
+    tokens = tokens - requested
+elseif debt then
+    tokens = tokens - requested
+    wait = math.ceil(-tokens * 1000 / rate)
+else
+    wait = math.ceil((requested - tokens) * 1000 / rate)
+end
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+redis.call('PEXPIRE', KEYS[1], math.ceil((capacity - math.min(tokens, 0)) * 1000 / rate) + 1000)
+return wait
@@ -0,0 +1,484 @@
+package com.file.storage.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// In-process stand-in for MinIO with enough of the S3 API for MinioClient: bucket checks, ListObjectsV2,
+// Head/Get with ranges and If-Match, Put, Copy, single and bulk Delete, and multipart uploads.
+// Signatures are not verified. Latency can be injected per operation.
+public class S3StandIn implements AutoCloseable {
+    private static final String NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter XML_DATE =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+    private static final Pattern KEY = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+    private final NavigableMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final Map<String, Duration> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration jitter = Duration.ZERO;
+
+    private S3StandIn(HttpServer server) {
+        this.server = server;
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static S3StandIn start() {
+        try {
+            S3StandIn standIn = new S3StandIn(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024));
+            standIn.server.start();
+            return standIn;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start S3 stand-in", e);
+        }
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    // applied to every request that has no operation specific latency
+    public S3StandIn latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    // operation is one of list, head, get, put, copy, delete, multipart, bucket
+    public S3StandIn latency(String operation, Duration latency) {
+        latencies.put(operation, latency);
+        return this;
+    }
+
+    // uniformly distributed extra delay on top of the latency
+    public S3StandIn jitter(Duration jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    public long requests(String operation) {
+        LongAdder counter = requests.get(operation);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public int objectCount() {
+        return objects.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+
+            int slash = path.indexOf('/', 1);
+            String bucket = slash < 0 ? path.substring(1) : path.substring(1, slash);
+            String key = slash < 0 ? "" : path.substring(slash + 1);
+
+            String operation = operation(exchange.getRequestMethod(), key, query, exchange);
+            requests.computeIfAbsent(operation, k -> new LongAdder()).increment();
+            pause(operation);
+
+            if (bucket.isEmpty()) {
+                error(exchange, 400, "InvalidRequest", "Bucket is required");
+            } else if (key.isEmpty()) {
+                handleBucket(exchange, bucket, query, body);
+            } else if (!buckets.contains(bucket)) {
+                error(exchange, 404, "NoSuchBucket", "The specified bucket does not exist");
+            } else {
+                handleObject(exchange, bucket, key, query, body);
+            }
+        } catch (RuntimeException e) {
+            error(exchange, 500, "InternalError", String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String operation(String method, String key, Map<String, String> query, HttpExchange exchange) {
+        if (query.containsKey("uploads") || query.containsKey("uploadId")) {
+            return "multipart";
+        }
+        if (key.isEmpty()) {
+            if (method.equals("GET") && query.containsKey("list-type")) {
+                return "list";
+            }
+            return method.equals("POST") && query.containsKey("delete") ? "delete" : "bucket";
+        }
+        return switch (method) {
+            case "HEAD" -> "head";
+            case "GET" -> "get";
+            case "PUT" -> exchange.getRequestHeaders().containsKey("x-amz-copy-source") ? "copy" : "put";
+            case "DELETE" -> "delete";
+            default -> method.toLowerCase(Locale.ROOT);
+        };
+    }
+
+    private void pause(String operation) {
+        long millis = latencies.getOrDefault(operation, latency).toMillis();
+        long jitterMillis = jitter.toMillis();
+        if (jitterMillis > 0) {
+            millis += ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+        }
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String bucket, Map<String, String> query, byte[] body)
+            throws IOException {
+        String method = exchange.getRequestMethod();
+        if (method.equals("PUT")) {
+            buckets.add(bucket);
+            send(exchange, 200, new byte[0]);
+            return;
+        }
+        if (!buckets.contains(bucket)) {
+            error(exchange, 404, "NoSuchBucket", "The specified bucket does not exist");
+            return;
+        }
+
+        if (method.equals("HEAD")) {
+            send(exchange, 200, new byte[0]);
+        } else if (method.equals("GET") && query.containsKey("location")) {
+            xml(exchange, 200, "<LocationConstraint xmlns=\"" + NAMESPACE + "\">us-east-1</LocationConstraint>");
+        } else if (method.equals("GET") && "2".equals(query.get("list-type"))) {
+            list(exchange, bucket, query);
+        } else if (method.equals("POST") && query.containsKey("delete")) {
+            Matcher matcher = KEY.matcher(new String(body, StandardCharsets.UTF_8));
+            while (matcher.find()) {
+                objects.remove(bucket + "/" + unescape(matcher.group(1)));
+            }
+            xml(exchange, 200, "<DeleteResult xmlns=\"" + NAMESPACE + "\"></DeleteResult>");
+        } else {
+            error(exchange, 501, "NotImplemented", method + " on a bucket is not supported");
+        }
+    }
+
+    private void list(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.getOrDefault("delimiter", "");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        String token = query.get("continuation-token");
+        String after = token != null
+                ? new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                : query.getOrDefault("start-after", "");
+
+        String base = bucket + "/";
+        String from = base + (after.compareTo(prefix) > 0 ? after : prefix);
+        StringBuilder contents = new StringBuilder();
+        int count = 0;
+        String last = null;
+        boolean truncated = false;
+
+        for (Map.Entry<String, StoredObject> entry : objects.tailMap(from, true).entrySet()) {
+            String name = entry.getKey();
+            if (!name.startsWith(base + prefix)) {
+                break;
+            }
+            String key = name.substring(base.length());
+            if (key.equals(after) || (!after.isEmpty() && after.endsWith(delimiter) && !delimiter.isEmpty()
+                    && key.startsWith(after))) {
+                continue;
+            }
+
+            int split = delimiter.isEmpty() ? -1 : key.indexOf(delimiter, prefix.length());
+            String entryName = split < 0 ? key : key.substring(0, split + delimiter.length());
+            if (entryName.equals(last)) {
+                continue;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+
+            if (split < 0) {
+                StoredObject object = entry.getValue();
+                contents.append("<Contents><Key>").append(escape(key)).append("</Key>")
+                        .append("<LastModified>").append(XML_DATE.format(object.lastModified())).append("</LastModified>")
+                        .append("<ETag>&quot;").append(object.etag()).append("&quot;</ETag>")
+                        .append("<Size>").append(object.data().length).append("</Size>")
+                        .append("<StorageClass>STANDARD</StorageClass></Contents>");
+            } else {
+                contents.append("<CommonPrefixes><Prefix>").append(escape(entryName)).append("</Prefix></CommonPrefixes>");
+            }
+            last = entryName;
+            count++;
+        }
+
+        StringBuilder result = new StringBuilder("<ListBucketResult xmlns=\"" + NAMESPACE + "\">")
+                .append("<Name>").append(escape(bucket)).append("</Name>")
+                .append("<Prefix>").append(escape(prefix)).append("</Prefix>")
+                .append("<KeyCount>").append(count).append("</KeyCount>")
+                .append("<MaxKeys>").append(maxKeys).append("</MaxKeys>")
+                .append("<Delimiter>").append(escape(delimiter)).append("</Delimiter>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (truncated) {
+            result.append("<NextContinuationToken>")
+                    .append(Base64.getUrlEncoder().encodeToString(last.getBytes(StandardCharsets.UTF_8)))
+                    .append("</NextContinuationToken>");
+        }
+        xml(exchange, 200, result.append(contents).append("</ListBucketResult>").toString());
+    }
+
+    private void handleObject(HttpExchange exchange, String bucket, String key, Map<String, String> query, byte[] body)
+            throws IOException {
+        String name = bucket + "/" + key;
+        String method = exchange.getRequestMethod();
+
+        if (query.containsKey("uploads") || query.containsKey("uploadId")) {
+            multipart(exchange, bucket, key, query, body);
+            return;
+        }
+
+        switch (method) {
+            case "HEAD", "GET" -> read(exchange, name, method.equals("HEAD"));
+            case "PUT" -> {
+                String source = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+                if (source == null) {
+                    StoredObject object = StoredObject.of(body);
+                    objects.put(name, object);
+                    exchange.getResponseHeaders().set("ETag", "\"" + object.etag() + "\"");
+                    send(exchange, 200, new byte[0]);
+                    return;
+                }
+                source = URLDecoder.decode(source, StandardCharsets.UTF_8);
+                int version = source.indexOf("?versionId=");
+                source = source.substring(source.startsWith("/") ? 1 : 0, version < 0 ? source.length() : version);
+                StoredObject original = objects.get(source);
+                if (original == null) {
+                    error(exchange, 404, "NoSuchKey", "The specified key does not exist");
+                    return;
+                }
+                StoredObject copy = new StoredObject(original.data(), original.etag(), Instant.now());
+                objects.put(name, copy);
+                xml(exchange, 200, "<CopyObjectResult xmlns=\"" + NAMESPACE + "\">"
+                        + "<LastModified>" + XML_DATE.format(copy.lastModified()) + "</LastModified>"
+                        + "<ETag>&quot;" + copy.etag() + "&quot;</ETag></CopyObjectResult>");
+            }
+            case "DELETE" -> {
+                objects.remove(name);
+                send(exchange, 204, new byte[0]);
+            }
+            default -> error(exchange, 501, "NotImplemented", method + " on an object is not supported");
+        }
+    }
+
+    private void read(HttpExchange exchange, String name, boolean head) throws IOException {
+        StoredObject object = objects.get(name);
+        if (object == null) {
+            error(exchange, 404, "NoSuchKey", "The specified key does not exist");
+            return;
+        }
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.replace("\"", "").equals(object.etag())) {
+            error(exchange, 412, "PreconditionFailed", "At least one of the pre-conditions you specified did not hold");
+            return;
+        }
+
+        byte[] data = object.data();
+        int from = 0;
+        int to = data.length;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null) {
+            Matcher matcher = RANGE.matcher(range);
+            if (matcher.matches()) {
+                from = (int) Math.min(Long.parseLong(matcher.group(1)), data.length);
+                if (!matcher.group(2).isEmpty()) {
+                    to = (int) Math.min(Long.parseLong(matcher.group(2)) + 1, data.length);
+                }
+                status = 206;
+                exchange.getResponseHeaders().set("Content-Range",
+                        "bytes " + from + "-" + (to - 1) + "/" + data.length);
+            }
+        }
+
+        exchange.getResponseHeaders().set("ETag", "\"" + object.etag() + "\"");
+        exchange.getResponseHeaders().set("Last-Modified", HTTP_DATE.format(object.lastModified()));
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        if (head) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(data.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, to - from == 0 ? -1 : to - from);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(data, from, to - from);
+        }
+    }
+
+    private void multipart(HttpExchange exchange, String bucket, String key, Map<String, String> query, byte[] body)
+            throws IOException {
+        String method = exchange.getRequestMethod();
+        if (method.equals("POST") && query.containsKey("uploads")) {
+            String uploadId = UUID.randomUUID().toString();
+            uploads.put(uploadId, new Upload(bucket + "/" + key));
+            xml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + NAMESPACE + "\">"
+                    + "<Bucket>" + escape(bucket) + "</Bucket><Key>" + escape(key) + "</Key>"
+                    + "<UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+            return;
+        }
+
+        Upload upload = uploads.get(query.get("uploadId"));
+        if (upload == null) {
+            error(exchange, 404, "NoSuchUpload", "The specified multipart upload does not exist");
+            return;
+        }
+        switch (method) {
+            case "PUT" -> {
+                StoredObject part = StoredObject.of(body);
+                upload.parts().put(Integer.parseInt(query.get("partNumber")), part);
+                exchange.getResponseHeaders().set("ETag", "\"" + part.etag() + "\"");
+                send(exchange, 200, new byte[0]);
+            }
+            case "POST" -> {
+                uploads.remove(query.get("uploadId"));
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                MessageDigest digest = md5();
+                int parts = 0;
+                Matcher matcher = PART_NUMBER.matcher(new String(body, StandardCharsets.UTF_8));
+                while (matcher.find()) {
+                    StoredObject part = upload.parts().get(Integer.parseInt(matcher.group(1)));
+                    if (part == null) {
+                        error(exchange, 400, "InvalidPart", "One or more of the specified parts could not be found");
+                        return;
+                    }
+                    data.write(part.data());
+                    digest.update(HexFormat.of().parseHex(part.etag()));
+                    parts++;
+                }
+                String etag = HexFormat.of().formatHex(digest.digest()) + "-" + parts;
+                objects.put(upload.name(), new StoredObject(data.toByteArray(), etag, Instant.now()));
+                xml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + NAMESPACE + "\">"
+                        + "<Location>" + url() + "/" + escape(bucket + "/" + key) + "</Location>"
+                        + "<Bucket>" + escape(bucket) + "</Bucket><Key>" + escape(key) + "</Key>"
+                        + "<ETag>&quot;" + etag + "&quot;</ETag></CompleteMultipartUploadResult>");
+            }
+            case "DELETE" -> {
+                uploads.remove(query.get("uploadId"));
+                send(exchange, 204, new byte[0]);
+            }
+            default -> error(exchange, 501, "NotImplemented", method + " on an upload is not supported");
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void error(HttpExchange exchange, int status, String code, String message) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        xml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + escape(message) + "</Message>"
+                + "<Resource>" + escape(exchange.getRequestURI().getPath()) + "</Resource>"
+                + "<RequestId>" + UUID.randomUUID() + "</RequestId></Error>");
+    }
+
+    private static void xml(HttpExchange exchange, int status, String xml) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        send(exchange, status, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("'", "&apos;");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredObject(byte[] data, String etag, Instant lastModified) {
+
+        static StoredObject of(byte[] data) {
+            return new StoredObject(data, HexFormat.of().formatHex(md5().digest(data)), Instant.now());
+        }
+    }
+
+    private record Upload(String name, NavigableMap<Integer, StoredObject> parts) {
+
+        Upload(String name) {
+            this(name, new ConcurrentSkipListMap<>());
+        }
+    }
+}
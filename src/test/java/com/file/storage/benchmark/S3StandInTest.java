@@ -0,0 +1,137 @@
+package com.file.storage.benchmark;
+
+import com.file.storage.repository.MinioRepository;
+import com.file.storage.repository.ReadHedger;
+import com.file.storage.repository.StorageLimiters;
+import com.file.storage.repository.StorageObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("unit")
+class S3StandInTest {
+
+    private final S3StandIn s3 = S3StandIn.start();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final MinioClient minioClient = MinioClient.builder()
+            .endpoint(s3.url())
+            .credentials("minioadmin", "minioadmin")
+            .build();
+    private MinioRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReadHedger readHedger = new ReadHedger(executor, meterRegistry, 1, 10, 10, 5_000, false, 10, 0.95, 10);
+        StorageLimiters limiters = new StorageLimiters(meterRegistry, false, 1, 1, 1, 1, 0, 1, 2.0, 0.9);
+        repository = new MinioRepository(minioClient, readHedger, limiters.forEndpoint("default"), "user-files");
+        repository.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3.close();
+        executor.shutdownNow();
+    }
+
+    private void put(String object, String content) {
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        repository.put(object, new ByteArrayInputStream(data), data.length);
+    }
+
+    private static List<String> names(Iterable<StorageObject> objects) {
+        List<String> names = new ArrayList<>();
+        objects.forEach(object -> names.add(object.name()));
+        return names;
+    }
+
+    @Test
+    void shouldStoreStatAndReadRanges() throws Exception {
+        put("user-1-files/docs/a.txt", "hello world");
+
+        StorageObject stat = repository.stat("user-1-files/docs/a.txt").orElseThrow();
+        assertEquals(11, stat.size());
+        assertNotNull(stat.lastModified());
+        assertTrue(repository.stat("user-1-files/docs/none.txt").isEmpty());
+
+        try (InputStream inputStream = repository.get("user-1-files/docs/a.txt", stat.etag(), 6, 5)) {
+            assertEquals("world", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertThrows(RuntimeException.class, () -> repository.get("user-1-files/docs/a.txt", "other", 0, -1).close());
+    }
+
+    @Test
+    void shouldListWithDelimiterAcrossPages() {
+        put("user-1-files/", "");
+        for (int i = 0; i < 1500; i++) {
+            put("user-1-files/files/f-" + String.format("%04d", i), "x");
+        }
+        put("user-1-files/docs/a.txt", "a");
+        put("user-1-files/docs/sub/b.txt", "b");
+        put("user-1-files/z.txt", "z");
+
+        assertEquals(List.of("user-1-files/", "user-1-files/z.txt", "user-1-files/docs/", "user-1-files/files/"),
+                names(repository.list("user-1-files/", false)));
+        assertEquals(1500, names(repository.list("user-1-files/files/", true)).size());
+        assertEquals(List.of("user-1-files/docs/a.txt", "user-1-files/docs/sub/b.txt"),
+                names(repository.list("user-1-files/docs/", true)));
+    }
+
+    @Test
+    void shouldCopyMoveAndDelete() {
+        put("user-1-files/a.txt", "a");
+        put("user-1-files/b.txt", "b");
+
+        repository.copy("user-1-files/a.txt", "user-1-files/c.txt");
+        repository.move("user-1-files/b.txt", "user-1-files/d.txt");
+        assertEquals(List.of("user-1-files/a.txt", "user-1-files/c.txt", "user-1-files/d.txt"),
+                names(repository.list("user-1-files/", true)));
+
+        repository.deleteBatch(List.of("user-1-files/a.txt", "user-1-files/c.txt"));
+        repository.delete("user-1-files/d.txt");
+        assertEquals(0, s3.objectCount());
+    }
+
+    @Test
+    void shouldAssembleMultipartUploads() throws Exception {
+        byte[] data = new byte[11 << 20];
+        new Random(1).nextBytes(data);
+
+        minioClient.putObject(PutObjectArgs.builder()
+                .bucket("user-files")
+                .object("user-1-files/big.bin")
+                .stream(new ByteArrayInputStream(data), data.length, 5 << 20)
+                .build());
+
+        assertEquals(5, s3.requests("multipart")); // initiate, three parts, complete
+        try (InputStream inputStream = repository.get("user-1-files/big.bin")) {
+            assertArrayEquals(data, inputStream.readAllBytes());
+        }
+        assertTrue(repository.stat("user-1-files/big.bin").orElseThrow().etag().endsWith("-3"));
+    }
+
+    @Test
+    void shouldInjectLatency() {
+        s3.latency(Duration.ZERO).latency("head", Duration.ofMillis(200));
+
+        long started = System.nanoTime();
+        repository.stat("user-1-files/none");
+        assertTrue(System.nanoTime() - started >= Duration.ofMillis(200).toNanos());
+    }
+}
@@ -0,0 +1,220 @@
+package com.file.storage.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+@Tag("benchmark")
+class StorageLoadBenchmark {
+
+    private static final int USERS = Integer.getInteger("load.users", 16);
+    private static final int ITERATIONS = Integer.getInteger("load.iterations", 20);
+    private static final int FILE_SIZE = Integer.getInteger("load.file-size", 256 * 1024);
+    private static final List<String> OPERATIONS = List.of("sign-in", "upload", "list", "download", "zip");
+
+    private static final S3StandIn s3 = S3StandIn.start()
+            .latency(Duration.ofMillis(Long.getLong("load.s3-latency-ms", 5)))
+            .jitter(Duration.ofMillis(Long.getLong("load.s3-jitter-ms", 5)));
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:14.6");
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7")
+            .withExposedPorts(6379);
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+        registry.add("minio.url", s3::url);
+        registry.add("management.server.port", () -> 0);
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("storage.rate-limit.enabled", () -> false);
+        registry.add("storage.zip.max-concurrent", () -> USERS);
+    }
+
+    @AfterAll
+    static void stopStorage() {
+        s3.close();
+    }
+
+    @LocalServerPort
+    private int port;
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    @Test
+    void signInListUploadDownloadAndZipAtFixedConcurrency() throws Exception {
+        OPERATIONS.forEach(operation -> recorders.put(operation, new Recorder()));
+
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(USERS)) {
+            List<Future<?>> users = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                String username = "load-" + i + "-" + started;
+                users.add(executor.submit(() -> {
+                    runUser(username);
+                    return null;
+                }));
+            }
+            for (Future<?> user : users) {
+                user.get();
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf("%d users x %d iterations, %d KiB files, S3 latency %d+%d ms, %.1f s total:%n",
+                USERS, ITERATIONS, FILE_SIZE / 1024, Long.getLong("load.s3-latency-ms", 5),
+                Long.getLong("load.s3-jitter-ms", 5), seconds);
+        System.out.printf("  %-9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (String operation : OPERATIONS) {
+            Recorder recorder = recorders.get(operation);
+            long[] latencies = recorder.sorted();
+            System.out.printf("  %-9s %7d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    operation, latencies.length, recorder.errors.get(), latencies.length / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                    percentile(latencies, 1.0));
+        }
+        System.out.printf("  S3 requests: list=%d head=%d get=%d put=%d%n",
+                s3.requests("list"), s3.requests("head"), s3.requests("get"), s3.requests("put"));
+
+        for (String operation : OPERATIONS) {
+            assertEquals(0, recorders.get(operation).errors.get(), operation + " failed");
+        }
+    }
+
+    private void runUser(String username) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String credentials = "{\"username\":\"" + username + "\",\"password\":\"password123\"}";
+        send(client, null, json("/api/auth/sign-up", credentials));
+
+        byte[] content = new byte[FILE_SIZE];
+        new Random(username.hashCode()).nextBytes(content);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String file = "file-" + i + ".bin";
+            send(client, "sign-in", json("/api/auth/sign-in", credentials));
+            send(client, "upload", upload("/api/resource?path=load/", file, content));
+            send(client, "list", get("/api/directory?path=load/"));
+            send(client, "download", get("/api/resource/download?path=" + encode("load/" + file)));
+            send(client, "zip", get("/api/resource/download?path=load/"));
+        }
+    }
+
+    private void send(HttpClient client, String operation, HttpRequest request) throws Exception {
+        long started = System.nanoTime();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        if (operation == null) {
+            if (response.statusCode() >= 300) {
+                throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+            }
+            return;
+        }
+        Recorder recorder = recorders.get(operation);
+        if (response.statusCode() >= 300) {
+            recorder.errors.incrementAndGet();
+        }
+        recorder.record(System.nanoTime() - started);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest json(String path, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest upload(String path, String fileName, byte[] content) {
+        String boundary = "load-" + System.nanoTime();
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"object\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, content, tail)))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + port + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static class Recorder {
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[1024];
+        private int size;
+
+        synchronized void record(long nanos) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.file.storage.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Tag("benchmark")
+class VirtualThreadThroughputBenchmark {
+
+    private static final int STORAGE_LATENCY_MILLIS = 1000;
+    private static final int CONCURRENT_CONNECTIONS = 1000;
+    private static final int REQUESTS = 4000;
+
+    private HttpServer storage;
+    private MinioClient minioClient;
+
+    @BeforeEach
+    void startStorage() throws IOException {
+        storage = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        storage.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        storage.createContext("/", exchange -> {
+            try {
+                Thread.sleep(STORAGE_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "payload".getBytes();
+            exchange.getResponseHeaders().add("ETag", "\"etag\"");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        storage.start();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(CONCURRENT_CONNECTIONS);
+        dispatcher.setMaxRequestsPerHost(CONCURRENT_CONNECTIONS);
+        minioClient = MinioClient.builder()
+                .endpoint("http://127.0.0.1:" + storage.getAddress().getPort())
+                .credentials("minioadmin", "minioadmin")
+                .region("us-east-1")
+                .httpClient(new OkHttpClient.Builder()
+                        .dispatcher(dispatcher)
+                        .connectionPool(new ConnectionPool(CONCURRENT_CONNECTIONS, 5, TimeUnit.MINUTES))
+                        .build())
+                .build();
+    }
+
+    @AfterEach
+    void stopStorage() {
+        storage.stop(0);
+    }
+
+    @Test
+    void compareConnectorThreadModels() throws Exception {
+        double platform = measure(false);
+        double virtual = measure(true);
+
+        System.out.printf("Blocking storage calls with %d ms latency, %d concurrent connections:%n",
+                STORAGE_LATENCY_MILLIS, CONCURRENT_CONNECTIONS);
+        System.out.printf("  platform threads (200): %8.1f req/s%n", platform);
+        System.out.printf("  virtual threads:        %8.1f req/s%n", virtual);
+    }
+
+    private double measure(boolean virtualThreads) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("tomcat").toString());
+        Connector connector = new Connector();
+        connector.setPort(0);
+        connector.setProperty("maxThreads", "200");
+        connector.setProperty("acceptCount", String.valueOf(CONCURRENT_CONNECTIONS));
+        if (virtualThreads) {
+            connector.getProtocolHandler().setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+        }
+        tomcat.setConnector(connector);
+
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "download", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                try (InputStream inputStream = minioClient.getObject(GetObjectArgs.builder()
+                        .bucket("user-files")
+                        .object(request.getParameter("path"))
+                        .build())) {
+                    inputStream.transferTo(response.getOutputStream());
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+        context.addServletMappingDecoded("/api/resource/download", "download");
+        tomcat.start();
+
+        try (HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build()) {
+            URI uri = URI.create("http://127.0.0.1:" + connector.getLocalPort() + "/api/resource/download?path=file.bin");
+            Semaphore inFlight = new Semaphore(CONCURRENT_CONNECTIONS);
+            AtomicInteger succeeded = new AtomicInteger();
+            List<CompletableFuture<?>> responses = new ArrayList<>(REQUESTS);
+
+            long started = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                inFlight.acquire();
+                responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> {
+                            if (error == null && response.statusCode() == 200) {
+                                succeeded.incrementAndGet();
+                            }
+                            inFlight.release();
+                        }));
+            }
+            CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            assertEquals(REQUESTS, succeeded.get());
+            return REQUESTS / seconds;
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.file.storage.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.file.storage.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class RequestTimingFilterTest {
+
+    private final RequestTimingFilter filter = new RequestTimingFilter(true, 1000);
+
+    @Test
+    void shouldAddServerTimingBeforeTheBodyIsWritten() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/directory");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            RequestTimings.record("postgres", TimeUnit.MILLISECONDS.toNanos(2));
+            RequestTimings.record("storage", TimeUnit.MILLISECONDS.toNanos(5));
+            RequestTimings.record("storage", TimeUnit.MILLISECONDS.toNanos(7));
+            res.getOutputStream().write(1);
+            res.flushBuffer();
+            RequestTimings.record("redis", TimeUnit.MILLISECONDS.toNanos(1));
+        });
+
+        String header = response.getHeader("Server-Timing");
+        assertNotNull(header);
+        assertTrue(header.startsWith("postgres;dur=2.0;desc=\"1 calls\", storage;dur=12.0;desc=\"2 calls\", total;dur="),
+                header);
+        assertFalse(header.contains("redis"));
+    }
+
+    @Test
+    void shouldNotAttributeCallsOutsideARequest() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/resource"), response, (req, res) -> {
+        });
+        RequestTimings.record("postgres", 1);
+
+        assertTrue(response.getHeader("Server-Timing").startsWith("total;dur="));
+        assertNull(new MockHttpServletResponse().getHeader("Server-Timing"));
+    }
+
+    @Test
+    void shouldSkipNonApiRequests() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/index.html"), response, (req, res) -> {
+        });
+
+        assertNull(response.getHeader("Server-Timing"));
+    }
+
+    @Test
+    void shouldTimeProxiedRepositories() throws Exception {
+        UserRepository delegate = mock(UserRepository.class);
+        when(delegate.findByUsername("user")).thenReturn(Optional.empty());
+        when(delegate.findByUsername("boom")).thenThrow(new IllegalStateException());
+        UserRepository repository = (UserRepository) RequestTimingPostProcessor.timed(delegate, "postgres");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/user/me"), response, (req, res) -> {
+            assertTrue(repository.findByUsername("user").isEmpty());
+            assertThrows(IllegalStateException.class, () -> repository.findByUsername("boom"));
+            assertEquals(repository, repository);
+        });
+
+        assertTrue(response.getHeader("Server-Timing").contains("postgres;dur="));
+        assertTrue(response.getHeader("Server-Timing").contains("desc=\"2 calls\""));
+    }
+
+    @Test
+    void shouldLogSlowAsyncRequestsWhenTheyComplete() throws Exception {
+        Logger logger = (Logger) LoggerFactory.getLogger(RequestTimingFilter.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resource/download");
+            request.setAsyncSupported(true);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            new RequestCompletionFilter().doFilter(request, response, (req, res) ->
+                    new RequestTimingFilter(true, 0).doFilter(req, res, (innerReq, innerRes) -> innerReq.startAsync()));
+            assertTrue(appender.list.isEmpty());
+
+            request.getAsyncContext().complete();
+            assertEquals(1, appender.list.size());
+            assertTrue(appender.list.get(0).getFormattedMessage().contains("uri=/api/resource/download"));
+        } finally {
+            logger.detachAppender(appender);
+        }
+    }
+}
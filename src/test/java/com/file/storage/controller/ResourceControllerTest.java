@@ -0,0 +1,80 @@
+package com.file.storage.controller;
+
+import com.file.storage.dto.ResourceInfoResponse;
+import com.file.storage.dto.ResourceVersion;
+import com.file.storage.service.RateLimitService;
+import com.file.storage.service.ResourceService;
+import com.file.storage.service.Versioned;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class ResourceControllerTest {
+
+    private final ResourceService resourceService = mock(ResourceService.class);
+    private final RateLimitService rateLimitService = mock(RateLimitService.class);
+    private final ResourceController controller = new ResourceController(resourceService, rateLimitService);
+    private final UserDetails alice = User.withUsername("alice").password("secret").roles("USER").build();
+
+    @SuppressWarnings("unchecked")
+    private final Supplier<List<ResourceInfoResponse>> listing = mock(Supplier.class);
+
+    @Test
+    void shouldRevalidateDirectoriesByETagOnly() {
+        when(listing.get()).thenReturn(List.of());
+        when(resourceService.getDirectoryInfo("docs/", "alice"))
+                .thenReturn(new Versioned<>(new ResourceVersion("abc", -1), listing));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/directory");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 21 Oct 2099 07:28:00 GMT");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseEntity<?> stale = controller.getDirectory("docs/", alice, new ServletWebRequest(request, response));
+
+        assertNotNull(stale);
+        assertEquals(200, stale.getStatusCode().value());
+        assertNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+        assertEquals("\"abc\"", response.getHeader(HttpHeaders.ETAG));
+
+        request = new MockHttpServletRequest("GET", "/api/directory");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc\"");
+        response = new MockHttpServletResponse();
+        assertNull(controller.getDirectory("docs/", alice, new ServletWebRequest(request, response)));
+        assertEquals(304, response.getStatus());
+        verify(listing, times(1)).get();
+    }
+
+    @Test
+    void shouldWriteFilesOnTheRequestThread() throws Exception {
+        StreamingResponseBody body = outputStream -> outputStream.write("hello".getBytes(StandardCharsets.UTF_8));
+        when(resourceService.downloadResource("docs/a.txt", "alice"))
+                .thenReturn(new Versioned<>(new ResourceVersion("e1", 1000), () -> body));
+        when(rateLimitService.throttle(eq("alice"), any(StreamingResponseBody.class))).thenAnswer(invocation ->
+                invocation.getArgument(1));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resource/download");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(controller.downloadResource("docs/a.txt", false, null, null, alice,
+                new ServletWebRequest(request, response), response));
+
+        assertEquals("hello", response.getContentAsString());
+        assertEquals("attachment; filename=\"a.txt\"", response.getHeader("Content-Disposition"));
+        assertEquals("\"e1\"", response.getHeader(HttpHeaders.ETAG));
+    }
+}
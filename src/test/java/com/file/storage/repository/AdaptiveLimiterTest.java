@@ -0,0 +1,140 @@
+package com.file.storage.repository;
+
+import com.file.storage.exceptions.StorageBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("unit")
+class AdaptiveLimiterTest {
+
+    private static AdaptiveLimiter limiter(int initial) {
+        return new AdaptiveLimiter("default", "metadata", new SimpleMeterRegistry(), initial, 2, 100, 2.0, 0.5, 0);
+    }
+
+    @Test
+    void shouldRejectInsteadOfQueueingOverTheLimit() {
+        AdaptiveLimiter limiter = limiter(2);
+        AdaptiveLimiter.Permit first = limiter.acquire();
+        limiter.acquire();
+
+        assertThrows(StorageBusyException.class, limiter::acquire);
+
+        first.ignore();
+        assertDoesNotThrow(limiter::acquire);
+    }
+
+    @Test
+    void shouldWaitForAPermitInsideAnAdmittedDownload() {
+        AdaptiveLimiter limiter = limiter(2);
+        AdaptiveLimiter.Permit first = limiter.acquire();
+        limiter.acquire();
+        Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            first.ignore();
+        });
+
+        try (AdaptiveLimiter.Queueing ignored = AdaptiveLimiter.queueFor(5_000)) {
+            assertDoesNotThrow(limiter::acquire);
+            try (AdaptiveLimiter.Queueing shorter = AdaptiveLimiter.queueFor(20)) {
+                assertThrows(StorageBusyException.class, limiter::acquire);
+            }
+            assertEquals(5_000, AdaptiveLimiter.queueTimeout());
+        }
+        assertEquals(0, AdaptiveLimiter.queueTimeout());
+    }
+
+    @Test
+    void shouldQueueTransfersForTheLimiterTimeout() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("default", "transfer", new SimpleMeterRegistry(),
+                1, 1, 100, 2.0, 0.5, 5_000);
+        AdaptiveLimiter.Permit first = limiter.acquire();
+        Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            first.ignore();
+        });
+
+        assertDoesNotThrow(limiter::acquire);
+    }
+
+    @Test
+    void shouldReleaseEachPermitOnlyOnce() {
+        AdaptiveLimiter limiter = limiter(2);
+        AdaptiveLimiter.Permit permit = limiter.acquire();
+
+        permit.success(1_000);
+        permit.ignore();
+
+        assertEquals(0, limiter.inflight());
+    }
+
+    @Test
+    void shouldGrowWhileBusyAndLatencyIsStable() {
+        AdaptiveLimiter limiter = limiter(4);
+
+        for (int i = 0; i < 200; i++) {
+            AdaptiveLimiter.Permit a = limiter.acquire();
+            AdaptiveLimiter.Permit b = limiter.acquire();
+            AdaptiveLimiter.Permit c = limiter.acquire();
+            a.success(1_000_000);
+            b.success(1_000_000);
+            c.success(1_000_000);
+        }
+
+        assertTrue(limiter.limit() > 4);
+    }
+
+    @Test
+    void shouldNotGrowWhileIdle() {
+        AdaptiveLimiter limiter = limiter(10);
+
+        for (int i = 0; i < 200; i++) {
+            limiter.acquire().success(1_000_000);
+        }
+
+        assertEquals(10, limiter.limit());
+    }
+
+    @Test
+    void shouldBackOffOnOverloadErrorsButNotOnMissingObjects() throws Exception {
+        AdaptiveLimiter limiter = limiter(40);
+
+        limiter.acquire().failure(new IllegalArgumentException("NoSuchKey"));
+        assertEquals(40, limiter.limit());
+
+        limiter.acquire().failure(new InterruptedIOException("timed out"));
+        assertEquals(20, limiter.limit());
+
+        assertThrows(IOException.class, () -> limiter.call(() -> {
+            Thread.sleep(1);
+            throw new IOException("connection reset");
+        }));
+        assertEquals(10, limiter.limit());
+        assertEquals(0, limiter.inflight());
+    }
+
+    @Test
+    void shouldBackOffWhenLatencyRisesAboveBaseline() {
+        AdaptiveLimiter limiter = limiter(40);
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire().success(1_000_000);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire().success(50_000_000);
+        }
+
+        assertTrue(limiter.limit() < 40);
+    }
+}
@@ -0,0 +1,152 @@
+package com.file.storage.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class CachingStorageBackendTest {
+
+    private final StorageBackend delegate = mock(StorageBackend.class);
+    private final List<List<String>> published = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private final CachingStorageBackend cache = new CachingStorageBackend(delegate, published::add,
+            new SimpleMeterRegistry(), clock::get, 5_000, 100, 10, 3);
+
+    private static StorageObject file(String name) {
+        return new StorageObject(name, 1, "etag", null, false);
+    }
+
+    @Test
+    void shouldServeRepeatedStatsFromCacheUntilTtl() {
+        when(delegate.stat("user-1-files/a.txt")).thenReturn(Optional.of(file("user-1-files/a.txt")));
+
+        cache.stat("user-1-files/a.txt");
+        cache.stat("user-1-files/a.txt");
+        verify(delegate, times(1)).stat("user-1-files/a.txt");
+
+        clock.addAndGet(5_000);
+        cache.stat("user-1-files/a.txt");
+        verify(delegate, times(2)).stat("user-1-files/a.txt");
+    }
+
+    @Test
+    void shouldCacheMissingObjects() {
+        when(delegate.stat("user-1-files/none")).thenReturn(Optional.empty());
+
+        assertFalse(cache.exists("user-1-files/none"));
+        assertFalse(cache.exists("user-1-files/none"));
+
+        verify(delegate, times(1)).stat("user-1-files/none");
+    }
+
+    @Test
+    void shouldInvalidateStatAndParentListingsOnPutAndPublish() {
+        when(delegate.stat("user-1-files/docs/a.txt")).thenReturn(Optional.empty());
+        when(delegate.list("user-1-files/", false)).thenReturn(List.of());
+        when(delegate.list("user-1-files/docs/", true)).thenReturn(List.of());
+        when(delegate.list("user-2-files/", false)).thenReturn(List.of());
+        cache.stat("user-1-files/docs/a.txt");
+        cache.list("user-1-files/", false);
+        cache.list("user-1-files/docs/", true);
+        cache.list("user-2-files/", false);
+
+        cache.put("user-1-files/docs/a.txt", new ByteArrayInputStream(new byte[1]), 1);
+        cache.stat("user-1-files/docs/a.txt");
+        cache.list("user-1-files/", false);
+        cache.list("user-1-files/docs/", true);
+        cache.list("user-2-files/", false);
+
+        verify(delegate, times(2)).stat("user-1-files/docs/a.txt");
+        verify(delegate, times(2)).list("user-1-files/", false);
+        verify(delegate, times(2)).list("user-1-files/docs/", true);
+        verify(delegate, times(1)).list("user-2-files/", false);
+        assertEquals(List.of(List.of("user-1-files/docs/a.txt")), published);
+    }
+
+    @Test
+    void shouldInvalidateAndPublishObjectsWrittenAroundTheCache() {
+        when(delegate.stat("user-1-files/a.txt")).thenReturn(Optional.empty());
+        assertFalse(cache.exists("user-1-files/a.txt"));
+
+        when(delegate.stat("user-1-files/a.txt")).thenReturn(Optional.of(file("user-1-files/a.txt")));
+        cache.changed(List.of("user-1-files/a.txt"));
+
+        assertTrue(cache.exists("user-1-files/a.txt"));
+        assertEquals(List.of(List.of("user-1-files/a.txt")), published);
+    }
+
+    @Test
+    void shouldInvalidateWholeSubtreeOnDirectoryMove() {
+        when(delegate.stat(any())).thenReturn(Optional.empty());
+        when(delegate.list(any(), anyBoolean())).thenReturn(List.of());
+        cache.stat("user-1-files/docs/a.txt");
+        cache.list("user-1-files/docs/sub/", false);
+
+        cache.move("user-1-files/docs/", "user-1-files/archive/docs/");
+        cache.stat("user-1-files/docs/a.txt");
+        cache.list("user-1-files/docs/sub/", false);
+
+        verify(delegate, times(2)).stat("user-1-files/docs/a.txt");
+        verify(delegate, times(2)).list("user-1-files/docs/sub/", false);
+    }
+
+    @Test
+    void shouldApplyRemoteInvalidationsWithoutRepublishing() {
+        when(delegate.stat("user-1-files/a.txt")).thenReturn(Optional.empty());
+        cache.stat("user-1-files/a.txt");
+
+        cache.invalidateRemote(List.of("user-1-files/a.txt"));
+        cache.stat("user-1-files/a.txt");
+
+        verify(delegate, times(2)).stat("user-1-files/a.txt");
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void shouldNotCacheStatThatRacedWithInvalidation() {
+        when(delegate.stat("user-1-files/a.txt")).thenAnswer(invocation -> {
+            cache.invalidateRemote(List.of("user-1-files/a.txt"));
+            return Optional.empty();
+        }).thenReturn(Optional.of(file("user-1-files/a.txt")));
+
+        assertTrue(cache.stat("user-1-files/a.txt").isEmpty());
+        assertTrue(cache.stat("user-1-files/a.txt").isPresent());
+    }
+
+    @Test
+    void shouldStreamOversizedListingsWithoutCaching() {
+        List<StorageObject> objects = List.of(file("p/1"), file("p/2"), file("p/3"), file("p/4"));
+        when(delegate.list("p/", true)).thenReturn(objects);
+
+        List<StorageObject> first = new ArrayList<>();
+        cache.list("p/", true).forEach(first::add);
+        cache.list("p/", true).forEach(object -> {
+        });
+
+        assertEquals(objects, first);
+        verify(delegate, times(2)).list("p/", true);
+    }
+
+    @Test
+    void shouldNotCacheContentReads() {
+        when(delegate.get(any(), any(), anyLong(), anyLong())).thenReturn(new ByteArrayInputStream(new byte[0]));
+
+        cache.get("user-1-files/a.txt", "etag", 0, -1);
+        cache.get("user-1-files/a.txt", "etag", 0, -1);
+
+        verify(delegate, times(2)).get("user-1-files/a.txt", "etag", 0, -1);
+    }
+}
@@ -0,0 +1,52 @@
+package com.file.storage.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("unit")
+class ConsistentHashRingTest {
+
+    @Test
+    void shouldSpreadUsersByWeight() {
+        ConsistentHashRing ring = new ConsistentHashRing(Map.of("a", 1, "b", 1, "c", 2), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int user = 0; user < 40_000; user++) {
+            counts.merge(ring.locate("user-" + user), 1, Integer::sum);
+        }
+
+        assertEquals(10_000, counts.get("a"), 2_000);
+        assertEquals(10_000, counts.get("b"), 2_000);
+        assertEquals(20_000, counts.get("c"), 3_000);
+    }
+
+    @Test
+    void shouldOnlyMoveUsersOntoNewShard() {
+        Map<String, Integer> weights = new LinkedHashMap<>(Map.of("a", 1, "b", 1));
+        ConsistentHashRing before = new ConsistentHashRing(weights, 128);
+        weights.put("c", 1);
+        ConsistentHashRing after = new ConsistentHashRing(weights, 128);
+
+        int moved = 0;
+        for (int user = 0; user < 10_000; user++) {
+            String from = before.locate("user-" + user);
+            String to = after.locate("user-" + user);
+            if (!from.equals(to)) {
+                assertEquals("c", to);
+                moved++;
+            }
+        }
+        assertEquals(3_333, moved, 800);
+    }
+
+    @Test
+    void shouldRejectRingWithoutCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(Map.of("a", 0), 128));
+    }
+}
@@ -0,0 +1,103 @@
+package com.file.storage.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("unit")
+class LocalStorageBackendTest {
+
+    @TempDir
+    Path root;
+
+    private LocalStorageBackend backend() {
+        return new LocalStorageBackend(root);
+    }
+
+    private static void put(StorageBackend backend, String object, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        backend.put(object, new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    private static String read(InputStream inputStream) throws Exception {
+        try (inputStream) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> names(Iterable<StorageObject> objects) {
+        List<String> names = new ArrayList<>();
+        objects.forEach(object -> names.add(object.name() + (object.directory() ? " (dir)" : "")));
+        return names;
+    }
+
+    @Test
+    void shouldReadWholeObjectsAndRanges() throws Exception {
+        LocalStorageBackend backend = backend();
+        put(backend, "user-1-files/a.txt", "hello world");
+
+        assertEquals("hello world", read(backend.get("user-1-files/a.txt")));
+        assertEquals("lo wo", read(backend.get("user-1-files/a.txt", null, 3, 5)));
+        assertEquals("world", read(backend.get("user-1-files/a.txt", null, 6, 100)));
+
+        StorageObject stat = backend.stat("user-1-files/a.txt").orElseThrow();
+        assertEquals(11, stat.size());
+        assertEquals("hello world", read(backend.get("user-1-files/a.txt", stat.etag())));
+        assertThrows(IllegalStateException.class, () -> backend.get("user-1-files/a.txt", "stale"));
+    }
+
+    @Test
+    void shouldListInKeyOrder() {
+        LocalStorageBackend backend = backend();
+        put(backend, "user-1-files/docs/b.txt", "b");
+        put(backend, "user-1-files/docs.txt", "d");
+        put(backend, "user-1-files/docs/a.txt", "a");
+        backend.put("user-1-files/empty/", new ByteArrayInputStream(new byte[0]), 0);
+
+        assertEquals(List.of("user-1-files/", "user-1-files/docs.txt", "user-1-files/docs/",
+                        "user-1-files/docs/a.txt", "user-1-files/docs/b.txt", "user-1-files/empty/"),
+                names(backend.list("user-1-files/", true)));
+        assertEquals(List.of("user-1-files/", "user-1-files/docs.txt", "user-1-files/docs/ (dir)",
+                        "user-1-files/empty/ (dir)"),
+                names(backend.list("user-1-files/", false)));
+        assertEquals(List.of("user-1-files/docs.txt", "user-1-files/docs/ (dir)"),
+                names(backend.list("user-1-files/doc", false)));
+        assertEquals(List.of(), names(backend.list("user-2-files/", true)));
+    }
+
+    @Test
+    void shouldMoveAndDeleteDirectories() throws Exception {
+        LocalStorageBackend backend = backend();
+        put(backend, "user-1-files/docs/a.txt", "a");
+        put(backend, "user-1-files/docs/sub/b.txt", "b");
+
+        backend.move("user-1-files/docs/", "user-1-files/archive/docs/");
+
+        assertFalse(backend.exists("user-1-files/docs/"));
+        assertEquals("b", read(backend.get("user-1-files/archive/docs/sub/b.txt")));
+
+        backend.deleteBatch(List.of("user-1-files/archive/docs/", "user-1-files/archive/docs/a.txt"));
+
+        assertFalse(backend.exists("user-1-files/archive/docs/"));
+        assertTrue(backend.exists("user-1-files/archive/"));
+    }
+
+    @Test
+    void shouldRejectNamesOutsideRoot() {
+        LocalStorageBackend backend = backend();
+
+        assertThrows(IllegalArgumentException.class, () -> backend.stat("../outside.txt"));
+        assertThrows(IllegalArgumentException.class, () -> backend.stat("/outside.txt"));
+        assertThrows(IllegalArgumentException.class, () -> backend.stat("user-1-files/../user-2-files/a.txt"));
+        assertThrows(IllegalArgumentException.class, () -> backend.stat("user-1-files/./a.txt"));
+    }
+}
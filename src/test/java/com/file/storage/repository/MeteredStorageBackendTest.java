@@ -0,0 +1,89 @@
+package com.file.storage.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class MeteredStorageBackendTest {
+
+    private final StorageBackend delegate = mock(StorageBackend.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MeteredStorageBackend backend = new MeteredStorageBackend(delegate, "shard-a", registry);
+
+    @Test
+    void shouldTimeOperationsByEndpointAndOutcome() {
+        when(delegate.stat("a.txt")).thenReturn(Optional.empty());
+        doThrow(new RuntimeException(new SocketTimeoutException())).when(delegate).copy("a.txt", "b.txt");
+
+        backend.stat("a.txt");
+        backend.exists("a.txt");
+        assertThrows(RuntimeException.class, () -> backend.copy("a.txt", "b.txt"));
+
+        assertEquals(2, registry.get("storage.operation")
+                .tags("operation", "stat", "endpoint", "shard-a", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("storage.operation")
+                .tags("operation", "copy", "endpoint", "shard-a", "outcome", "error").timer().count());
+        assertEquals(1, registry.get("storage.operation.errors")
+                .tags("operation", "copy", "exception", "SocketTimeoutException").counter().count());
+    }
+
+    @Test
+    void shouldCountTransferredBytes() throws Exception {
+        when(delegate.get("a.txt", "etag", 0, 5)).thenReturn(new ByteArrayInputStream(new byte[5]));
+        doAnswer(invocation -> invocation.<InputStream>getArgument(1).readAllBytes())
+                .when(delegate).put(eq("b.txt"), any(), anyLong());
+
+        try (InputStream inputStream = backend.get("a.txt", "etag", 0, 5)) {
+            inputStream.readAllBytes();
+        }
+        backend.put("b.txt", new ByteArrayInputStream(new byte[3]), 3);
+
+        assertEquals(5, registry.get("storage.operation.bytes").tags("operation", "get").counter().count());
+        assertEquals(3, registry.get("storage.operation.bytes").tags("operation", "put").counter().count());
+    }
+
+    @Test
+    void shouldTimeListingWhenIterationStarts() {
+        when(delegate.list("user-1-files/", false)).thenReturn(List.of());
+
+        Iterable<StorageObject> objects = backend.list("user-1-files/", false);
+        assertNull(registry.find("storage.operation").tags("operation", "list").timer());
+
+        objects.forEach(object -> fail());
+        assertEquals(1, registry.get("storage.operation").tags("operation", "list").timer().count());
+    }
+
+    @Test
+    void shouldTimeEveryListingPage() {
+        List<StorageObject> listing = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            listing.add(StorageObject.directory("user-1-files/" + i + "/"));
+        }
+        when(delegate.list("user-1-files/", false)).thenReturn(listing);
+
+        Iterator<StorageObject> iterator = backend.list("user-1-files/", false).iterator();
+        int count = 0;
+        while (iterator.hasNext() && iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+
+        assertEquals(2500, count);
+        assertEquals(3, registry.get("storage.operation").tags("operation", "list").timer().count());
+    }
+}
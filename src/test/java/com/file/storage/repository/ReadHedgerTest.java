@@ -0,0 +1,184 @@
+package com.file.storage.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("unit")
+class ReadHedgerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ReadHedger hedger(boolean hedging, long timeoutMillis) {
+        return new ReadHedger(executor, new SimpleMeterRegistry(), 3, 1, 5, timeoutMillis, hedging, 5, 0.95, 10);
+    }
+
+    private static void warmUp(ReadHedger hedger) throws Exception {
+        for (int i = 0; i < 40; i++) {
+            hedger.read("getObject", () -> "warm-up");
+        }
+    }
+
+    @Test
+    void shouldRetryTransientFailures() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = hedger(false, 1000).read("statObject", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IOException("connection reset");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void shouldNotRetryPermanentFailures() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> hedger(false, 1000).read("statObject", () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("bad request");
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void shouldTimeOutSlowReads() {
+        assertThrows(IOException.class, () -> hedger(false, 20).read("statObject", () -> {
+            Thread.sleep(500);
+            return "late";
+        }));
+    }
+
+    @Test
+    void shouldHedgeSlowReadAndCloseTheLoser() throws Exception {
+        ReadHedger hedger = hedger(true, 2000);
+        warmUp(hedger);
+
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean slowClosed = new AtomicBoolean();
+        InputStream fast = new ByteArrayInputStream(new byte[]{2});
+
+        InputStream result = hedger.read("getObject", () -> {
+            if (calls.incrementAndGet() == 1) {
+                Thread.sleep(300);
+                return new ByteArrayInputStream(new byte[]{1}) {
+                    @Override
+                    public void close() {
+                        slowClosed.set(true);
+                    }
+                };
+            }
+            return fast;
+        });
+
+        assertSame(fast, result);
+        assertEquals(2, calls.get());
+        Thread.sleep(500);
+        assertTrue(slowClosed.get());
+    }
+
+    @Test
+    void shouldReturnTheHedgeWhenThePrimaryFails() throws Exception {
+        ReadHedger hedger = hedger(true, 2000);
+        warmUp(hedger);
+
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean hedgeClosed = new AtomicBoolean();
+        InputStream hedge = new ByteArrayInputStream(new byte[]{2}) {
+            @Override
+            public void close() {
+                hedgeClosed.set(true);
+            }
+        };
+
+        InputStream result = hedger.read("getObject", () -> {
+            if (calls.incrementAndGet() == 1) {
+                Thread.sleep(100);
+                throw new IllegalStateException("bad request");
+            }
+            Thread.sleep(200);
+            return hedge;
+        });
+
+        assertSame(hedge, result);
+        assertEquals(2, calls.get());
+        Thread.sleep(100);
+        assertFalse(hedgeClosed.get());
+    }
+
+    @Test
+    void shouldNotCountQueueTimeTowardsTheHedgeDelay() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            ReadHedger hedger = new ReadHedger(single, new SimpleMeterRegistry(), 1, 1, 5, 2000, true, 5, 0.95, 10);
+            warmUp(hedger);
+
+            CountDownLatch busy = new CountDownLatch(1);
+            single.execute(() -> {
+                busy.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignored) {
+                }
+            });
+            busy.await();
+
+            AtomicInteger calls = new AtomicInteger();
+            assertEquals("ok", hedger.read("getObject", () -> {
+                calls.incrementAndGet();
+                return "ok";
+            }));
+            assertEquals(1, calls.get());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldKeepHedgesWithinTheBudget() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReadHedger hedger = new ReadHedger(executor, meterRegistry, 1, 1, 5, 2000, true, 5, 0.95, 10);
+        warmUp(hedger);
+
+        CompletableFuture<?> first = CompletableFuture.runAsync(() -> slowRead(hedger));
+        CompletableFuture<?> second = CompletableFuture.runAsync(() -> slowRead(hedger));
+        CompletableFuture.allOf(first, second).join();
+
+        assertEquals(1, meterRegistry.counter("storage.minio.hedge.requests", "operation", "getObject").count());
+        assertEquals(1, meterRegistry.counter("storage.minio.hedge.skipped", "operation", "getObject").count());
+    }
+
+    private static void slowRead(ReadHedger hedger) {
+        try {
+            hedger.read("getObject", () -> {
+                Thread.sleep(300);
+                return "slow";
+            });
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
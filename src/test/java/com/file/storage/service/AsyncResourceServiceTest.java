@@ -0,0 +1,159 @@
+package com.file.storage.service;
+
+import com.file.storage.dto.ResourceInfoResponse;
+import com.file.storage.dto.ResourceType;
+import com.file.storage.dto.ResourceVersion;
+import com.file.storage.exceptions.ResourceAlreadyExistsException;
+import com.file.storage.exceptions.ResourceNotFoundException;
+import com.file.storage.repository.MinioAsyncRepository;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.TokenBucketRepository;
+import io.minio.ObjectWriteResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.InvalidPathException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class AsyncResourceServiceTest {
+
+    private final ResourceService resourceService = mock(ResourceService.class);
+    private final MinioAsyncRepository minioAsyncRepository = mock(MinioAsyncRepository.class);
+    private final RateLimitService rateLimitService = new RateLimitService(
+            mock(TokenBucketRepository.class), new SimpleMeterRegistry(), false, 1, 1, 1, 1, 1, 1);
+    private final StorageBackend storageBackend = mock(StorageBackend.class);
+    private final UsageService usageService = mock(UsageService.class);
+    private final AsyncResourceService asyncResourceService = service(rateLimitService, Runnable::run);
+
+    private AsyncResourceService service(RateLimitService rateLimitService, Executor executor) {
+        return new AsyncResourceService(resourceService, minioAsyncRepository, storageBackend, rateLimitService,
+                usageService, executor, 2);
+    }
+
+    @Test
+    void shouldServeReadsThroughTheBlockingStackOffTheRequestThread() {
+        List<ResourceInfoResponse> listing = List.of(new ResourceInfoResponse("docs/", "a.txt", 42L, ResourceType.FILE));
+        when(resourceService.getDirectoryInfo("docs", "alice"))
+                .thenReturn(new Versioned<>(new ResourceVersion("v", -1), () -> listing));
+        List<Runnable> tasks = new ArrayList<>();
+
+        CompletableFuture<List<ResourceInfoResponse>> result = service(rateLimitService, tasks::add)
+                .getDirectoryInfo("docs", "alice");
+
+        verifyNoInteractions(resourceService);
+        tasks.forEach(Runnable::run);
+        assertEquals(listing, result.join());
+    }
+
+    @Test
+    void shouldFailMissingDirectory() {
+        when(resourceService.getDirectoryInfo("missing", "alice")).thenThrow(new ResourceNotFoundException());
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> asyncResourceService.getDirectoryInfo("missing", "alice").join());
+        assertInstanceOf(ResourceNotFoundException.class, e.getCause());
+    }
+
+    @Test
+    void shouldRejectUploadOverExistingFile() {
+        when(resourceService.validateDirectoryPath("docs", "alice")).thenReturn("user-1-files/docs/");
+        when(storageBackend.exists(anyString())).thenReturn(true);
+
+        CompletionException e = assertThrows(CompletionException.class, () -> asyncResourceService
+                .uploadResource("docs", List.of(new MockMultipartFile("object", "a.txt", null, new byte[1])), "alice")
+                .join());
+        assertInstanceOf(ResourceAlreadyExistsException.class, e.getCause());
+        verify(minioAsyncRepository, never()).putObject(anyString(), any(), anyLong(), anyInt());
+        verify(usageService).reserve(1, 1, 1);
+        verify(usageService).complete(1, 1, 1, 0, 0);
+    }
+
+    @Test
+    void shouldRejectUploadNamesLeavingTheFolder() {
+        when(resourceService.validateDirectoryPath("docs", "alice")).thenReturn("user-1-files/docs/");
+
+        assertThrows(InvalidPathException.class, () -> asyncResourceService.uploadResource("docs",
+                List.of(new MockMultipartFile("object", "../user-2-files/x", null, new byte[1])), "alice"));
+        verifyNoInteractions(minioAsyncRepository, usageService);
+    }
+
+    @Test
+    void shouldStartUploadsOnlyAfterParentDirectoriesExist() {
+        when(resourceService.validateDirectoryPath("docs", "alice")).thenReturn("user-1-files/docs/");
+        CompletableFuture<ObjectWriteResponse> marker = new CompletableFuture<>();
+        when(minioAsyncRepository.putObject(endsWith("/"), any(), anyLong(), anyInt())).thenReturn(marker);
+        when(minioAsyncRepository.putObject(endsWith(".txt"), any(), anyLong(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<List<ResourceInfoResponse>> upload = asyncResourceService
+                .uploadResource("docs", List.of(new MockMultipartFile("object", "a.txt", null, new byte[1])), "alice");
+
+        verify(storageBackend, never()).exists("user-1-files/docs/a.txt");
+        verify(minioAsyncRepository, never()).putObject(endsWith(".txt"), any(), anyLong(), anyInt());
+
+        marker.complete(null);
+
+        assertEquals(1, upload.join().size());
+        verify(minioAsyncRepository).putObject(eq("user-1-files/docs/a.txt"), any(), eq(1L), eq(-1));
+        verify(storageBackend).changed(List.of("user-1-files/"));
+        verify(storageBackend).changed(List.of("user-1-files/docs/"));
+        verify(storageBackend).changed(List.of("user-1-files/docs/a.txt"));
+        verify(resourceService).afterUpload("user-1-files/docs/a.txt");
+    }
+
+    @Test
+    void shouldBoundConcurrentUploads() {
+        when(resourceService.validateDirectoryPath("docs", "alice")).thenReturn("user-1-files/docs/");
+        when(storageBackend.exists(endsWith("/"))).thenReturn(true);
+        Map<String, CompletableFuture<ObjectWriteResponse>> puts = new ConcurrentHashMap<>();
+        when(minioAsyncRepository.putObject(anyString(), any(), anyLong(), anyInt())).thenAnswer(invocation ->
+                puts.computeIfAbsent(invocation.getArgument(0), name -> new CompletableFuture<>()));
+
+        CompletableFuture<List<ResourceInfoResponse>> upload = asyncResourceService.uploadResource("docs", List.of(
+                new MockMultipartFile("object", "a.txt", null, new byte[1]),
+                new MockMultipartFile("object", "b.txt", null, new byte[1]),
+                new MockMultipartFile("object", "c.txt", null, new byte[1])), "alice");
+
+        assertEquals(Set.of("user-1-files/docs/a.txt", "user-1-files/docs/b.txt"), puts.keySet());
+
+        puts.get("user-1-files/docs/a.txt").complete(null);
+
+        assertTrue(puts.containsKey("user-1-files/docs/c.txt"));
+        puts.values().forEach(put -> put.complete(null));
+        assertEquals(3, upload.join().size());
+    }
+
+    @Test
+    void shouldScheduleThrottledUploadsInsteadOfSleeping() {
+        TokenBucketRepository tokenBucketRepository = mock(TokenBucketRepository.class);
+        when(tokenBucketRepository.take(anyString(), anyLong(), anyLong(), anyLong(), anyBoolean())).thenReturn(100L);
+        RateLimitService throttled = new RateLimitService(tokenBucketRepository, new SimpleMeterRegistry(),
+                true, 1, 1, 1, 1, 1, 1);
+        when(resourceService.validateDirectoryPath("docs", "alice")).thenReturn("user-1-files/docs/");
+        when(storageBackend.exists(endsWith("/"))).thenReturn(true);
+        when(minioAsyncRepository.putObject(anyString(), any(), anyLong(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<List<ResourceInfoResponse>> upload = service(throttled, Runnable::run).uploadResource("docs",
+                List.of(new MockMultipartFile("object", "a.txt", null, new byte[10])), "alice");
+
+        assertFalse(upload.isDone());
+        verify(minioAsyncRepository, never()).putObject(anyString(), any(), anyLong(), anyInt());
+        assertEquals(1, upload.join().size());
+        verify(tokenBucketRepository).take("rate:{alice}:bytes", 1, 1, 10, true);
+    }
+}
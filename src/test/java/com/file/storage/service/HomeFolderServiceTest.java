@@ -0,0 +1,76 @@
+package com.file.storage.service;
+
+import com.file.storage.model.User;
+import com.file.storage.repository.LocalStorageBackend;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class HomeFolderServiceTest {
+
+    @TempDir
+    Path root;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        return user;
+    }
+
+    @Test
+    void shouldCreateHomeFolderOnlyOnce() {
+        StorageBackend storageBackend = spy(new LocalStorageBackend(root));
+        HomeFolderService service = new HomeFolderService(storageBackend, userRepository, executor, false, 10, 2);
+
+        assertEquals("user-5-files/", service.ensure(5));
+        assertEquals("user-5-files/", service.ensure(5));
+
+        assertTrue(storageBackend.exists("user-5-files/"));
+        verify(storageBackend, times(1)).put(eq("user-5-files/"), any(), eq(0L));
+    }
+
+    @Test
+    void shouldReconcileEveryPageOfUsers() {
+        StorageBackend storageBackend = new LocalStorageBackend(root);
+        when(userRepository.findAll(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(0);
+            List<User> users = LongStream.range(pageable.getOffset(), Math.min(pageable.getOffset() + 10, 25))
+                    .mapToObj(HomeFolderServiceTest::user)
+                    .toList();
+            return new PageImpl<>(users, pageable, 25);
+        });
+        HomeFolderService service = new HomeFolderService(storageBackend, userRepository, executor, true, 10, 3);
+
+        service.reconcile();
+
+        for (long id = 0; id < 25; id++) {
+            assertTrue(storageBackend.exists("user-" + id + "-files/"));
+        }
+        verify(userRepository, times(3)).findAll(any(Pageable.class));
+    }
+}
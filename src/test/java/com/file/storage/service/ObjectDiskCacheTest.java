@@ -0,0 +1,119 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.StorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class ObjectDiskCacheTest {
+
+    private final StorageBackend storageBackend = mock(StorageBackend.class);
+    private final Path directory = createDirectory();
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("object-cache");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private ObjectDiskCache cache(long maxBytes) {
+        when(storageBackend.get(anyString(), anyString())).thenAnswer(invocation ->
+                new ByteArrayInputStream(("content of " + invocation.getArgument(0)).getBytes(StandardCharsets.UTF_8)));
+        return new ObjectDiskCache(storageBackend, new SimpleMeterRegistry(), directory.toString(), maxBytes, maxBytes, 16);
+    }
+
+    private static String read(ObjectDiskCache cache, String object, String etag) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.transfer(object, etag, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromDisk() throws Exception {
+        ObjectDiskCache cache = cache(1024);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("content of a.txt", read(cache, "a.txt", "v1"));
+        }
+
+        verify(storageBackend, times(2)).get("a.txt", "v1");
+        assertEquals("content of a.txt", read(cache, "a.txt", "v2"));
+        verify(storageBackend).get("a.txt", "v2");
+    }
+
+    @Test
+    void shouldDropEvictedObjects() throws Exception {
+        ObjectDiskCache cache = cache(1024);
+        read(cache, "dir/a.txt", "v1");
+        read(cache, "dir/a.txt", "v1");
+
+        cache.evict("dir/");
+        read(cache, "dir/a.txt", "v1");
+
+        verify(storageBackend, times(3)).get("dir/a.txt", "v1");
+        try (Stream<Path> files = Files.list(directory.resolve("objects"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void shouldStayWithinSizeLimit() throws Exception {
+        ObjectDiskCache cache = cache(40);
+        for (String object : new String[]{"a.txt", "b.txt", "c.txt"}) {
+            read(cache, object, "v1");
+            read(cache, object, "v1");
+        }
+
+        read(cache, "c.txt", "v1");
+        read(cache, "a.txt", "v1");
+
+        verify(storageBackend, times(2)).get("c.txt", "v1");
+        verify(storageBackend, times(3)).get("a.txt", "v1");
+    }
+
+    @Test
+    void shouldOnlyClearItsOwnFilesOnStartup() throws Exception {
+        ObjectDiskCache cache = cache(1024);
+        read(cache, "a.txt", "v1");
+        read(cache, "a.txt", "v1");
+        Path objects = directory.resolve("objects");
+        Files.writeString(directory.resolve("unrelated.txt"), "keep");
+        Files.writeString(objects.resolve("notes.txt"), "keep");
+        Files.writeString(objects.resolve("fill-1.tmp"), "stale");
+
+        cache(1024);
+
+        assertTrue(Files.exists(directory.resolve("unrelated.txt")));
+        assertTrue(Files.exists(objects.resolve("notes.txt")));
+        try (Stream<Path> files = Files.list(objects)) {
+            assertEquals(List.of("notes.txt"), files.map(file -> file.getFileName().toString()).toList());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.StorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Tag("unit")
+class ObjectPrefetcherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final StorageBackend storageBackend = mock(StorageBackend.class);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldReturnObjectsInListingOrder() throws Exception {
+        when(storageBackend.get(anyString())).thenAnswer(invocation -> {
+            String name = invocation.getArgument(0);
+            Thread.sleep(Math.floorMod(name.hashCode(), 3) * 10L);
+            return new ByteArrayInputStream(name.getBytes(StandardCharsets.UTF_8));
+        });
+        ObjectPrefetcher prefetcher = new ObjectPrefetcher(storageBackend, executor, 3, 1024);
+
+        List<ArchiveEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(new ArchiveEntry("dir/file-" + i, "file-" + i, 10, "etag", Instant.EPOCH));
+        }
+
+        List<String> contents = new ArrayList<>();
+        try (ObjectPrefetcher.Pipeline pipeline = prefetcher.open(entries.iterator())) {
+            ObjectPrefetcher.FetchedObject fetched;
+            while ((fetched = pipeline.next()) != null) {
+                contents.add(new String(fetched.inputStream().readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        assertEquals(10, contents.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("dir/file-" + i, contents.get(i));
+        }
+    }
+
+    @Test
+    void shouldPropagateFetchFailures() {
+        when(storageBackend.get(anyString())).thenThrow(new RuntimeException("boom"));
+        ObjectPrefetcher prefetcher = new ObjectPrefetcher(storageBackend, executor, 2, 1024);
+
+        List<ArchiveEntry> entries = List.of(new ArchiveEntry("a", "a", 1, "etag", Instant.EPOCH));
+
+        try (ObjectPrefetcher.Pipeline pipeline = prefetcher.open(entries.iterator())) {
+            assertThrows(RuntimeException.class, pipeline::next);
+        }
+    }
+}
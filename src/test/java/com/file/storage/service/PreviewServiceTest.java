@@ -0,0 +1,109 @@
+package com.file.storage.service;
+
+import com.file.storage.exceptions.PreviewNotSupportedException;
+import com.file.storage.exceptions.StorageBusyException;
+import com.file.storage.repository.StorageBackend;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class PreviewServiceTest {
+
+    private final StorageBackend storageBackend = mock(StorageBackend.class);
+    private final PreviewService previewService =
+            new PreviewService(storageBackend, Runnable::run, List.of(128, 256), 1 << 20, 10_000_000, false, 1, 0);
+
+    @Test
+    void shouldGenerateAndStoreScaledPreview() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_ARGB), "png", png);
+        when(storageBackend.get("user-1-files/cat.png", "abc"))
+                .thenReturn(new ByteArrayInputStream(png.toByteArray()));
+
+        byte[] preview = previewService.getPreview("user-1-files/cat.png", "abc", png.size(), 256);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(preview));
+        assertEquals(256, image.getWidth());
+        assertEquals(128, image.getHeight());
+        verify(storageBackend).put(eq(".previews/user-1-files/cat.png/256-abc.jpg"), any(),
+                eq((long) preview.length));
+    }
+
+    @Test
+    void shouldRejectImagesDeclaringTooManyPixelsWithoutDecodingThem() throws Exception {
+        byte[] png = pngHeader(50_000, 50_000);
+        when(storageBackend.get("user-1-files/bomb.png", "abc")).thenReturn(new ByteArrayInputStream(png));
+
+        assertThrows(PreviewNotSupportedException.class,
+                () -> previewService.getPreview("user-1-files/bomb.png", "abc", png.length, 128));
+        verify(storageBackend, never()).put(anyString(), any(), anyLong());
+
+        PreviewService strict = new PreviewService(storageBackend, Runnable::run, List.of(128), 1 << 20, 10_000, false, 1, 0);
+        ByteArrayOutputStream real = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB), "png", real);
+        when(storageBackend.get("user-1-files/big.png", "abc")).thenReturn(new ByteArrayInputStream(real.toByteArray()));
+        assertThrows(PreviewNotSupportedException.class,
+                () -> strict.getPreview("user-1-files/big.png", "abc", real.size(), 128));
+    }
+
+    // signature and IHDR only, which is all a reader needs to report the dimensions
+    private static byte[] pngHeader(int width, int height) {
+        ByteBuffer chunk = ByteBuffer.allocate(17);
+        chunk.put("IHDR".getBytes(StandardCharsets.US_ASCII)).putInt(width).putInt(height)
+                .put((byte) 8).put((byte) 6).put((byte) 0).put((byte) 0).put((byte) 0);
+        CRC32 crc = new CRC32();
+        crc.update(chunk.array());
+
+        ByteBuffer png = ByteBuffer.allocate(8 + 4 + 17 + 4);
+        png.put(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'})
+                .putInt(13).put(chunk.array()).putInt((int) crc.getValue());
+        return png.array();
+    }
+
+    @Test
+    void shouldDropUploadPreviewsWhenTheQueueIsFull() {
+        PreviewService busy = new PreviewService(storageBackend, task -> {
+            throw new TaskRejectedException("queue full");
+        }, List.of(128), 1 << 20, 10_000_000, true, 1, 0);
+
+        assertDoesNotThrow(() -> busy.generateAfterUpload("user-1-files/cat.png"));
+        verifyNoInteractions(storageBackend);
+    }
+
+    @Test
+    void shouldRefuseToGenerateWhenAllDecodersAreBusy() {
+        PreviewService busy = new PreviewService(storageBackend, Runnable::run, List.of(128), 1 << 20, 10_000_000,
+                false, 0, 0);
+
+        assertThrows(StorageBusyException.class, () -> busy.getPreview("user-1-files/cat.png", "abc", 10, 128));
+        verify(storageBackend, never()).get(anyString(), anyString());
+    }
+
+    @Test
+    void shouldRejectNonImages() {
+        assertThrows(PreviewNotSupportedException.class,
+                () -> previewService.getPreview("user-1-files/notes.txt", "abc", 10, 128));
+        verify(storageBackend, never()).get(anyString(), anyString());
+    }
+
+    @Test
+    void shouldRoundSizeUpToConfiguredStep() {
+        assertEquals(128, previewService.normalizeSize(10));
+        assertEquals(256, previewService.normalizeSize(129));
+        assertEquals(256, previewService.normalizeSize(5000));
+    }
+}
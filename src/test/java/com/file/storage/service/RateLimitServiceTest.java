@@ -0,0 +1,92 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.TokenBucketRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class RateLimitServiceTest {
+
+    private final TokenBucketRepository tokenBucketRepository = mock(TokenBucketRepository.class);
+    private final RateLimitService rateLimitService = new RateLimitService(
+            tokenBucketRepository, new SimpleMeterRegistry(), true, 10, 20, 1000, 4000, 100, 2);
+
+    @Test
+    void shouldReportWaitWhenRequestBucketIsEmpty() {
+        when(tokenBucketRepository.take("rate:{alice}:requests", 20, 10, 1, false)).thenReturn(0L, 250L);
+
+        assertEquals(0, rateLimitService.acquireRequest("alice"));
+        assertEquals(250, rateLimitService.acquireRequest("alice"));
+    }
+
+    @Test
+    void shouldLetRequestsThroughWhenRedisIsDown() {
+        when(tokenBucketRepository.take(anyString(), anyLong(), anyLong(), anyLong(), anyBoolean()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertEquals(0, rateLimitService.acquireRequest("alice"));
+    }
+
+    @Test
+    void shouldChargeDownloadedBytesInChunks() throws Exception {
+        StreamingResponseBody body = out -> {
+            for (int i = 0; i < 25; i++) {
+                out.write(new byte[10]);
+            }
+        };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        rateLimitService.throttle("alice", body).writeTo(out);
+
+        assertEquals(250, out.size());
+        verify(tokenBucketRepository, times(2)).take("rate:{alice}:bytes", 4000, 1000, 100, true);
+        verify(tokenBucketRepository).take("rate:{alice}:bytes", 4000, 1000, 50, true);
+    }
+
+    @Test
+    void shouldPauseUploadsWhenBucketIsInDebt() throws Exception {
+        when(tokenBucketRepository.take(eq("rate:{alice}:bytes"), anyLong(), anyLong(), anyLong(), eq(true)))
+                .thenReturn(60L);
+
+        long started = System.nanoTime();
+        try (InputStream in = rateLimitService.throttle("alice", new ByteArrayInputStream(new byte[150]))) {
+            assertEquals(150, in.readAllBytes().length);
+        }
+
+        assertTrue(System.nanoTime() - started >= 60_000_000L);
+        verify(tokenBucketRepository).take("rate:{alice}:bytes", 4000, 1000, 150, true);
+    }
+
+    @Test
+    void shouldCapConcurrentTransfersPerUser() {
+        assertTrue(rateLimitService.acquireTransfer("alice"));
+        assertTrue(rateLimitService.acquireTransfer("alice"));
+        assertFalse(rateLimitService.acquireTransfer("alice"));
+        assertTrue(rateLimitService.acquireTransfer("bob"));
+
+        rateLimitService.releaseTransfer("alice");
+        assertTrue(rateLimitService.acquireTransfer("alice"));
+    }
+
+    @Test
+    void shouldNotTouchRedisWhenDisabled() throws Exception {
+        RateLimitService disabled = new RateLimitService(
+                tokenBucketRepository, new SimpleMeterRegistry(), false, 10, 20, 1000, 4000, 100, 2);
+
+        assertEquals(0, disabled.acquireRequest("alice"));
+        InputStream in = new ByteArrayInputStream(new byte[1000]);
+        assertSame(in, disabled.throttle("alice", in));
+        verifyNoInteractions(tokenBucketRepository);
+    }
+}
@@ -0,0 +1,146 @@
+package com.file.storage.service;
+
+import com.file.storage.dto.ResourceInfoResponse;
+import com.file.storage.dto.ResourceType;
+import com.file.storage.exceptions.ResourceNotFoundException;
+import com.file.storage.model.User;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageObject;
+import com.file.storage.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.InvalidPathException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class ResourceServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final StorageBackend storageBackend = mock(StorageBackend.class);
+    private final ZipStreamingService zipStreamingService = mock(ZipStreamingService.class);
+    private final HomeFolderService homeFolderService = mock(HomeFolderService.class);
+    private final ResourceService resourceService = new ResourceService(userRepository, storageBackend,
+            zipStreamingService, mock(ObjectDiskCache.class), mock(PreviewService.class), homeFolderService,
+            mock(RateLimitService.class), mock(UsageService.class));
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        when(homeFolderService.ensure(1L)).thenReturn("user-1-files/");
+    }
+
+    private static StorageObject file(String name, String etag, long modified) {
+        return new StorageObject(name, 10, etag, Instant.ofEpochMilli(modified), false);
+    }
+
+    @Test
+    void shouldVersionAndListDirectoryFromOneListing() {
+        List<StorageObject> objects = new ArrayList<>(List.of(
+                new StorageObject("user-1-files/docs/", 0, "marker", Instant.ofEpochMilli(1), false),
+                file("user-1-files/docs/a.txt", "a", 100),
+                StorageObject.directory("user-1-files/docs/sub/")));
+        when(storageBackend.list("user-1-files/docs/", false)).thenAnswer(invocation -> List.copyOf(objects));
+
+        Versioned<List<ResourceInfoResponse>> listing = resourceService.getDirectoryInfo("docs/", "alice");
+
+        assertEquals(-1, listing.version().lastModified());
+        assertEquals(List.of(
+                new ResourceInfoResponse("docs/", "a.txt", 10L, ResourceType.FILE),
+                new ResourceInfoResponse("docs/", "sub/", null, ResourceType.DIRECTORY)
+        ), listing.body().get());
+        verify(userRepository, times(1)).findByUsername("alice");
+        verify(storageBackend, times(1)).list("user-1-files/docs/", false);
+        verify(storageBackend, never()).exists(anyString());
+
+        objects.remove(1);
+        assertNotEquals(listing.version().eTag(), resourceService.getDirectoryInfo("docs/", "alice").version().eTag());
+    }
+
+    @Test
+    void shouldFallBackToExistsOnlyForEmptyListings() {
+        when(storageBackend.list(anyString(), anyBoolean())).thenReturn(List.of());
+        when(storageBackend.exists("user-1-files/empty/")).thenReturn(true);
+
+        assertTrue(resourceService.getDirectoryInfo("empty/", "alice").body().get().isEmpty());
+        assertThrows(ResourceNotFoundException.class, () -> resourceService.getDirectoryInfo("missing/", "alice"));
+    }
+
+    @Test
+    void shouldZipTheListingUsedForTheFolderVersion() {
+        List<StorageObject> objects = List.of(file("user-1-files/docs/a.txt", "a", 100),
+                file("user-1-files/docs/sub/b.txt", "b", 200));
+        when(storageBackend.list("user-1-files/docs/", true)).thenReturn(objects);
+        StreamingResponseBody body = outputStream -> {
+        };
+
+        Versioned<StreamingResponseBody> download = resourceService.downloadResource("docs/", "alice");
+        verifyNoInteractions(zipStreamingService);
+
+        String eTag = download.version().eTag();
+        when(zipStreamingService.stream("user-1-files/docs/", objects, eTag)).thenReturn(body);
+        assertSame(body, download.body().get());
+        assertEquals(-1, download.version().lastModified());
+        verify(storageBackend, times(1)).list(anyString(), anyBoolean());
+        verify(userRepository, times(1)).findByUsername("alice");
+    }
+
+    @Test
+    void shouldVersionFilesFromASingleStat() {
+        when(storageBackend.stat("user-1-files/a.txt")).thenReturn(Optional.of(file("user-1-files/a.txt", "e1", 5000)));
+
+        Versioned<ResourceInfoResponse> resource = resourceService.getResourceInfo("a.txt", "alice");
+
+        assertEquals("e1", resource.version().eTag());
+        assertEquals(5000, resource.version().lastModified());
+        assertEquals(new ResourceInfoResponse("", "a.txt", 10L, ResourceType.FILE), resource.body().get());
+        verify(storageBackend, times(1)).stat(anyString());
+        verify(storageBackend, never()).exists(anyString());
+    }
+
+    @Test
+    void shouldRejectMovingADirectoryIntoItself() {
+        when(storageBackend.exists(anyString())).thenReturn(true);
+        when(storageBackend.exists("user-1-files/a/b/")).thenReturn(false);
+
+        assertThrows(InvalidPathException.class, () -> resourceService.moveResource("a/", "a/b/", "alice"));
+        assertThrows(InvalidPathException.class, () -> resourceService.moveResource("a/", "a/", "alice"));
+        verify(storageBackend, never()).move(anyString(), anyString());
+    }
+
+    @Test
+    void shouldRejectUploadNamesLeavingTheFolder() {
+        UsageService usageService = mock(UsageService.class);
+        ResourceService service = new ResourceService(userRepository, storageBackend, zipStreamingService,
+                mock(ObjectDiskCache.class), mock(PreviewService.class), homeFolderService,
+                mock(RateLimitService.class), usageService);
+
+        assertThrows(InvalidPathException.class, () -> service.uploadResource("docs/",
+                List.of(new MockMultipartFile("object", "../user-2-files/x", null, new byte[1])), "alice"));
+        assertThrows(InvalidPathException.class, () -> service.uploadResource("docs/",
+                List.of(new MockMultipartFile("object", "a/../../x", null, new byte[1])), "alice"));
+        verify(storageBackend, never()).put(anyString(), any(), anyLong());
+        verifyNoInteractions(usageService);
+    }
+
+    @Test
+    void shouldKeepUploadsInsideTheTargetFolder() {
+        assertEquals("user-1-files/docs/sub/a.txt", ResourceService.uploadPath("user-1-files/docs/",
+                new MockMultipartFile("object", "sub//a.txt", null, new byte[1])));
+        assertThrows(InvalidPathException.class, () -> ResourceService.uploadPath("user-1-files/docs/",
+                new MockMultipartFile("object", "sub/", null, new byte[1])));
+    }
+}
@@ -0,0 +1,143 @@
+package com.file.storage.service;
+
+import com.file.storage.config.ShardingProperties;
+import com.file.storage.model.UserShard;
+import com.file.storage.repository.LocalStorageBackend;
+import com.file.storage.repository.ShardRouter;
+import com.file.storage.repository.ShardedStorageBackend;
+import com.file.storage.repository.StorageBackend;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class ShardRebalancerTest {
+
+    @TempDir
+    Path root;
+
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final AtomicReference<ShardRouter.Route> route =
+            new AtomicReference<>(new ShardRouter.Route("default", null));
+
+    private static void put(StorageBackend backend, String object, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        backend.put(object, new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    private static String read(StorageBackend backend, String object) throws Exception {
+        try (InputStream inputStream = backend.get(object)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void shouldMoveUserAndKeepObjectsReadable() throws Exception {
+        Map<String, StorageBackend> shards = new LinkedHashMap<>();
+        shards.put("default", new LocalStorageBackend(root.resolve("default")));
+        shards.put("second", new LocalStorageBackend(root.resolve("second")));
+        ShardedStorageBackend storageBackend = new ShardedStorageBackend(shards, shardRouter);
+
+        when(shardRouter.route(anyString())).thenAnswer(invocation -> route.get());
+        when(shardRouter.route(anyLong())).thenAnswer(invocation -> route.get());
+        doAnswer(invocation -> {
+            route.set(new ShardRouter.Route("default", "second"));
+            put(storageBackend, "user-7-files/during.txt", "written while moving");
+            return null;
+        }).when(shardRouter).beginMigration(7L, "second");
+        doAnswer(invocation -> {
+            assertEquals("written while moving", read(shards.get("second"), "user-7-files/during.txt"));
+            route.set(new ShardRouter.Route("second", null));
+            return null;
+        }).when(shardRouter).completeMigration(7L);
+
+        put(storageBackend, "user-7-files/", "");
+        put(storageBackend, "user-7-files/docs/a.txt", "a");
+        put(storageBackend, ".previews/user-7-files/docs/a.txt/128-etag.jpg", "preview");
+        put(shards.get("second"), "user-7-files/stale.txt", "left over");
+
+        ShardingProperties properties = new ShardingProperties();
+        properties.setAssignmentTtlMs(0);
+        new ShardRebalancer(storageBackend, shardRouter, Runnable::run, properties).migrate(7L, "second");
+
+        verify(shardRouter).completeMigration(7L);
+        assertEquals("a", read(storageBackend, "user-7-files/docs/a.txt"));
+        assertEquals("preview", read(storageBackend, ".previews/user-7-files/docs/a.txt/128-etag.jpg"));
+        assertFalse(storageBackend.exists("user-7-files/stale.txt"));
+        assertFalse(shards.get("default").exists("user-7-files/"));
+        assertFalse(shards.get("default").exists("user-7-files/docs/a.txt"));
+    }
+
+    @Test
+    void shouldRejectMoveOntoCurrentShard() {
+        ShardedStorageBackend storageBackend = new ShardedStorageBackend(
+                Map.of("default", new LocalStorageBackend(root)), shardRouter);
+        when(shardRouter.route(anyLong())).thenReturn(new ShardRouter.Route("default", null));
+
+        ShardRebalancer rebalancer = new ShardRebalancer(storageBackend, shardRouter, Runnable::run,
+                new ShardingProperties());
+
+        assertThrows(IllegalArgumentException.class, () -> rebalancer.migrate(7L, "default"));
+        assertThrows(IllegalArgumentException.class, () -> rebalancer.migrate(7L, "missing"));
+    }
+
+    @Test
+    void shouldResumeMigrationLeftByARestart() throws Exception {
+        Map<String, StorageBackend> shards = new LinkedHashMap<>();
+        shards.put("default", new LocalStorageBackend(root.resolve("default")));
+        shards.put("second", new LocalStorageBackend(root.resolve("second")));
+        shards.put("third", new LocalStorageBackend(root.resolve("third")));
+        ShardedStorageBackend storageBackend = new ShardedStorageBackend(shards, shardRouter);
+
+        UserShard assignment = new UserShard(7L, "default");
+        assignment.setTargetShard("second");
+        when(shardRouter.migrating()).thenReturn(List.of(assignment));
+        route.set(new ShardRouter.Route("default", "second"));
+        when(shardRouter.route(anyString())).thenAnswer(invocation -> route.get());
+        when(shardRouter.route(anyLong())).thenAnswer(invocation -> route.get());
+        put(shards.get("default"), "user-7-files/a.txt", "a");
+
+        ShardingProperties properties = new ShardingProperties();
+        properties.setAssignmentTtlMs(0);
+        ShardRebalancer rebalancer = new ShardRebalancer(storageBackend, shardRouter, Runnable::run, properties);
+
+        assertEquals(ShardRebalancer.State.INTERRUPTED, rebalancer.migrations().get(0).state());
+        assertThrows(IllegalStateException.class, () -> rebalancer.migrate(7L, "third"));
+
+        rebalancer.migrate(7L, "second");
+
+        verify(shardRouter, never()).beginMigration(anyLong(), anyString());
+        verify(shardRouter).completeMigration(7L);
+        assertEquals("a", read(shards.get("second"), "user-7-files/a.txt"));
+        assertFalse(shards.get("default").exists("user-7-files/a.txt"));
+    }
+
+    @Test
+    void shouldAbortMigrationLeftByARestart() {
+        ShardedStorageBackend storageBackend = new ShardedStorageBackend(
+                Map.of("default", new LocalStorageBackend(root)), shardRouter);
+        UserShard assignment = new UserShard(7L, "default");
+        assignment.setTargetShard("second");
+        when(shardRouter.migrating()).thenReturn(List.of(assignment));
+
+        ShardRebalancer rebalancer = new ShardRebalancer(storageBackend, shardRouter, Runnable::run,
+                new ShardingProperties());
+        rebalancer.abort(7L);
+
+        verify(shardRouter).abortMigration(7L);
+        assertThrows(IllegalArgumentException.class, () -> rebalancer.abort(8L));
+    }
+}
@@ -0,0 +1,77 @@
+package com.file.storage.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.InvalidPathException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("unit")
+class StoragePathTest {
+
+    private static final String HOME = "user-1-files/";
+
+    private static String file(String path) {
+        return StoragePath.resolve(HOME, path, false).object();
+    }
+
+    private static String directory(String path) {
+        return StoragePath.resolve(HOME, path, true).object();
+    }
+
+    @Test
+    void shouldResolveFilesInsideHomeFolder() {
+        assertEquals("user-1-files/docs/a.txt", file("docs/a.txt"));
+        assertEquals("user-1-files/docs/a.txt", file("//docs///a.txt  "));
+        assertEquals("user-1-files/docs/a.txt", file("user-2-files/docs/a.txt"));
+        assertEquals("user-1-files/docs/", file("docs/"));
+        assertEquals("user-1-files/", file("/"));
+        assertEquals("user-1-files/user-x-files/a", file("user-x-files/a"));
+    }
+
+    @Test
+    void shouldResolveDirectoriesWithTrailingSlash() {
+        assertEquals("user-1-files/docs/", directory("docs"));
+        assertEquals("user-1-files/docs/", directory("docs//"));
+        assertEquals("user-1-files/", directory(""));
+        assertEquals("user-1-files/", directory("user-1-files/"));
+    }
+
+    @Test
+    void shouldRejectRelativeSegments() {
+        assertThrows(InvalidPathException.class, () -> file("../user-2-files/a.txt"));
+        assertThrows(InvalidPathException.class, () -> file("docs/../../a.txt"));
+        assertThrows(InvalidPathException.class, () -> file("docs/.."));
+        assertThrows(InvalidPathException.class, () -> directory("./docs"));
+
+        assertEquals("user-1-files/..a/.b/c../...", file("..a/.b/c../..."));
+    }
+
+    @Test
+    void shouldSplitNameAndParentWithoutHomeFolder() {
+        StoragePath file = StoragePath.of("user-1-files/docs/photos/a.jpg");
+        assertEquals("a.jpg", file.name());
+        assertEquals("docs/photos/", file.parent());
+        assertEquals("docs/photos/a.jpg", file.relative());
+
+        StoragePath directory = StoragePath.of("user-1-files/docs/photos/");
+        assertTrue(directory.isDirectory());
+        assertEquals("photos/", directory.name());
+        assertEquals("docs/", directory.parent());
+
+        StoragePath top = StoragePath.of("user-1-files/docs/");
+        assertEquals("docs/", top.name());
+        assertEquals("", top.parent());
+
+        assertThrows(InvalidPathException.class, () -> StoragePath.of(HOME).name());
+        assertEquals("", StoragePath.of(HOME).parent());
+    }
+
+    @Test
+    void shouldTakeLastSegment() {
+        assertEquals("photos", StoragePath.lastSegment("docs/photos//"));
+        assertEquals("docs", StoragePath.lastSegment("docs"));
+        assertEquals("", StoragePath.lastSegment("/"));
+    }
+}
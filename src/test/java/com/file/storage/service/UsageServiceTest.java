@@ -0,0 +1,138 @@
+package com.file.storage.service;
+
+import com.file.storage.exceptions.QuotaExceededException;
+import com.file.storage.model.UserUsage;
+import com.file.storage.repository.LocalStorageBackend;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.UserUsageRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class UsageServiceTest {
+
+    @TempDir
+    Path root;
+
+    private final UserUsageRepository userUsageRepository = mock(UserUsageRepository.class);
+
+    private UsageService service(StorageBackend storageBackend) {
+        return new UsageService(userUsageRepository, storageBackend, 1000, 60_000, 86_400_000, 3_600_000);
+    }
+
+    private static UserUsage usage(long userId, long usedBytes, long objectCount, long version) {
+        UserUsage usage = new UserUsage();
+        usage.setUserId(userId);
+        usage.setUsedBytes(usedBytes);
+        usage.setObjectCount(objectCount);
+        usage.setVersion(version);
+        return usage;
+    }
+
+    @Test
+    void shouldRejectReservationOverQuota() {
+        UserUsage usage = usage(1, 900, 3, 3);
+        usage.setReconciledAt(Instant.now());
+        when(userUsageRepository.reserve(1, 500, 1, 1000)).thenReturn(0);
+        when(userUsageRepository.findById(1L)).thenReturn(Optional.of(usage));
+
+        assertThrows(QuotaExceededException.class, () -> service(mock(StorageBackend.class)).reserve(1, 500, 1));
+        verify(userUsageRepository, never()).createIfAbsent(anyLong());
+        verify(userUsageRepository, never()).reconcile(anyLong(), anyLong(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void shouldCreateUsageRowOnFirstReservation() {
+        when(userUsageRepository.reserve(1, 500, 1, 1000)).thenReturn(0, 1);
+        when(userUsageRepository.findById(1L)).thenReturn(Optional.empty(), Optional.of(usage(1, 0, 0, 0)));
+        when(userUsageRepository.reconcile(eq(1L), eq(0L), eq(0L), eq(0L), any())).thenReturn(1);
+
+        service(new LocalStorageBackend(root)).reserve(1, 500, 1);
+
+        verify(userUsageRepository).createIfAbsent(1);
+        verify(userUsageRepository, times(2)).reserve(1, 500, 1, 1000);
+    }
+
+    @Test
+    void shouldCountStoredFilesBeforeTheFirstReservation() {
+        StorageBackend storageBackend = new LocalStorageBackend(root);
+        storageBackend.put("user-1-files/a.txt", new ByteArrayInputStream(new byte[800]), 800);
+        when(userUsageRepository.reserve(1, 500, 1, 1000)).thenReturn(0);
+        when(userUsageRepository.findById(1L)).thenReturn(Optional.of(usage(1, 0, 0, 4)));
+        when(userUsageRepository.reconcile(eq(1L), eq(4L), eq(800L), eq(1L), any())).thenReturn(1);
+
+        assertThrows(QuotaExceededException.class, () -> service(storageBackend).reserve(1, 500, 1));
+        verify(userUsageRepository).reconcile(eq(1L), eq(4L), eq(800L), eq(1L), any());
+        verify(userUsageRepository, times(2)).reserve(1, 500, 1, 1000);
+    }
+
+    @Test
+    void shouldReportDefaultQuotaForUsersWithoutUsage() {
+        when(userUsageRepository.findById(1L)).thenReturn(Optional.empty());
+
+        UsageService service = service(mock(StorageBackend.class));
+
+        assertEquals(0, service.getUsage(1).usedBytes());
+        assertEquals(1000, service.remaining(1));
+    }
+
+    @Test
+    void shouldReconcileFilesAndIgnoreFolderMarkers() {
+        StorageBackend storageBackend = new LocalStorageBackend(root);
+        storageBackend.put("user-1-files/docs/", new ByteArrayInputStream(new byte[0]), 0);
+        storageBackend.put("user-1-files/docs/a.txt", new ByteArrayInputStream(new byte[10]), 10);
+        storageBackend.put("user-1-files/b.txt", new ByteArrayInputStream(new byte[5]), 5);
+        storageBackend.put("user-2-files/c.txt", new ByteArrayInputStream(new byte[7]), 7);
+        when(userUsageRepository.reconcile(eq(1L), eq(3L), eq(15L), eq(2L), any())).thenReturn(1);
+
+        service(storageBackend).reconcile(usage(1, 100, 9, 3));
+
+        verify(userUsageRepository).reconcile(eq(1L), eq(3L), eq(15L), eq(2L), any());
+    }
+
+    @Test
+    void shouldKeepReservationsOutOfTheRemainingQuota() {
+        UserUsage usage = usage(1, 300, 3, 0);
+        usage.setReservedBytes(200);
+        usage.setReservedObjects(1);
+        when(userUsageRepository.findById(1L)).thenReturn(Optional.of(usage));
+
+        UsageService service = service(mock(StorageBackend.class));
+
+        assertEquals(500, service.remaining(1));
+        assertEquals(300, service.getUsage(1).usedBytes());
+    }
+
+    @Test
+    void shouldMoveCompletedUploadsOutOfTheReservation() {
+        UsageService service = service(mock(StorageBackend.class));
+
+        service.complete(1, 500, 2, 200, 1);
+        service.complete(1, 0, 0, 0, 0);
+
+        verify(userUsageRepository, times(1)).complete(1, 500, 2, 200, 1);
+        verify(userUsageRepository, times(1)).complete(anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void shouldSizeReconcileBatchesToFinishAPassWithinThePeriod() {
+        when(userUsageRepository.count()).thenReturn(200_000L);
+        when(userUsageRepository.findReconcilable(any(), any())).thenReturn(List.of());
+
+        service(mock(StorageBackend.class)).reconcile();
+
+        verify(userUsageRepository).findReconcilable(any(), eq(PageRequest.of(0, 139)));
+    }
+}
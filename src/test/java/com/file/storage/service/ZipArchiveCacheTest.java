@@ -0,0 +1,60 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.StorageBackend;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class ZipArchiveCacheTest {
+
+    private final StorageBackend storageBackend = mock(StorageBackend.class);
+    private final ZipArchiveCache cache =
+            new ZipArchiveCache(storageBackend, new ZipCompressionPolicy(6), Runnable::run, 10, 10);
+
+    private void store(String key, int size) throws Exception {
+        ZipArchiveCache.Recorder recorder = cache.record(key, new ByteArrayOutputStream());
+        recorder.write(new byte[size]);
+        recorder.complete();
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedArchiveWithoutListing() throws Exception {
+        when(storageBackend.get(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(new byte[0]));
+        store("a", 4);
+        store("b", 4);
+        cache.open("a").close();
+
+        store("c", 4);
+
+        verify(storageBackend).deleteBatch(List.of("b"));
+        verify(storageBackend, never()).list(anyString(), anyBoolean());
+        assertNull(cache.open("b"));
+        assertNotNull(cache.open("a"));
+    }
+
+    @Test
+    void shouldForgetArchivesRemovedElsewhere() throws Exception {
+        store("a", 4);
+        when(storageBackend.get("a")).thenThrow(new RuntimeException("NoSuchKey"));
+
+        assertNull(cache.open("a"));
+        assertNull(cache.open("a"));
+        verify(storageBackend, times(1)).get("a");
+    }
+
+    @Test
+    void shouldKeepArchivesNextToTheirOwnersFiles() {
+        String key = cache.key("user-7-files/docs/", "fingerprint");
+
+        assertTrue(key.startsWith(ZipArchiveCache.CACHE_PREFIX + "user-7-files/"));
+        assertNotEquals(key, cache.key("user-7-files/docs/", "other"));
+    }
+}
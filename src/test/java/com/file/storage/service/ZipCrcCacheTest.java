@@ -0,0 +1,93 @@
+package com.file.storage.service;
+
+import com.file.storage.repository.ZipCrcRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class ZipCrcCacheTest {
+
+    private static final ArchiveEntry ENTRY =
+            new ArchiveEntry("user-1-files/a.jpg", "a.jpg", 10, "etag-1", Instant.EPOCH);
+
+    private static ZipCrcRepository redis(Map<String, Long> redis) {
+        ZipCrcRepository crcRepository = mock(ZipCrcRepository.class);
+        when(crcRepository.findAll(anyList())).thenAnswer(invocation ->
+                invocation.<List<String>>getArgument(0).stream().map(redis::get).toList());
+        doAnswer(invocation -> {
+            redis.putAll(invocation.getArgument(0));
+            return null;
+        }).when(crcRepository).saveAll(anyMap());
+        return crcRepository;
+    }
+
+    @Test
+    void shouldShareCrcsBetweenNodesThroughRedis() {
+        Map<String, Long> redis = new HashMap<>();
+        ZipCrcRepository crcRepository = redis(redis);
+
+        ZipCrcCache first = new ZipCrcCache(crcRepository, Runnable::run, 16);
+        ZipCrcCache second = new ZipCrcCache(crcRepository, Runnable::run, 16);
+        first.put(ENTRY, 1234L);
+
+        assertEquals(1234L, second.get(ENTRY));
+        assertEquals(1234L, second.get(ENTRY));
+        assertNull(second.get(new ArchiveEntry("user-1-files/a.jpg", "a.jpg", 10, "etag-2", Instant.EPOCH)));
+        verify(crcRepository, times(2)).findAll(anyList());
+    }
+
+    @Test
+    void shouldLookUpMissingCrcsInOneBatch() {
+        Map<String, Long> redis = new HashMap<>();
+        ZipCrcRepository crcRepository = redis(redis);
+        List<ArchiveEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(new ArchiveEntry("user-1-files/" + i, Integer.toString(i), 10, "etag", Instant.EPOCH));
+        }
+        new ZipCrcCache(crcRepository, Runnable::run, 16).put(entries.get(3), 3L);
+
+        ZipCrcCache cache = new ZipCrcCache(crcRepository, Runnable::run, 16);
+        cache.put(entries.get(5), 5L);
+
+        assertEquals(Map.of(entries.get(3), 3L, entries.get(5), 5L), cache.getAll(entries));
+        verify(crcRepository).findAll(argThat(keys -> keys.size() == 9));
+    }
+
+    @Test
+    void shouldSaveCrcsWithoutBlockingTheCaller() {
+        Map<String, Long> redis = new HashMap<>();
+        List<Runnable> tasks = new ArrayList<>();
+        ZipCrcCache cache = new ZipCrcCache(redis(redis), tasks::add, 16);
+
+        cache.put(ENTRY, 1L);
+        cache.put(new ArchiveEntry("user-1-files/b.jpg", "b.jpg", 10, "etag-1", Instant.EPOCH), 2L);
+
+        assertTrue(redis.isEmpty());
+        assertEquals(1, tasks.size());
+        tasks.getFirst().run();
+        assertEquals(2, redis.size());
+    }
+
+    @Test
+    void shouldFallBackToLocalCrcsWhenRedisIsDown() {
+        ZipCrcRepository crcRepository = mock(ZipCrcRepository.class);
+        when(crcRepository.findAll(anyList())).thenThrow(new RedisConnectionFailureException("down"));
+        doThrow(new RedisConnectionFailureException("down")).when(crcRepository).saveAll(anyMap());
+        ZipCrcCache cache = new ZipCrcCache(crcRepository, Runnable::run, 16);
+
+        assertNull(cache.get(ENTRY));
+        cache.put(ENTRY, 99L);
+        assertEquals(99L, cache.get(ENTRY));
+    }
+}
@@ -0,0 +1,136 @@
+package com.file.storage.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("unit")
+class ZipLayoutTest {
+
+    private static final Instant MODIFIED = Instant.parse("2024-05-01T10:15:30Z");
+
+    private final Map<String, byte[]> objects = new HashMap<>();
+    private final ZipLayout.MemberSource source = (entry, offset, length) ->
+            new ByteArrayInputStream(objects.get(entry.objectName()), (int) offset, (int) length);
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private ZipLayout layout() {
+        byte[] random = new byte[20_000];
+        new Random(42).nextBytes(random);
+        objects.put("user-1-files/docs/a.txt", "hello".repeat(100).getBytes(StandardCharsets.UTF_8));
+        objects.put("user-1-files/docs/empty.txt", new byte[0]);
+        objects.put("user-1-files/docs/media/b.bin", random);
+
+        List<ArchiveEntry> entries = objects.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> new ArchiveEntry(e.getKey(), e.getKey().substring("user-1-files/docs/".length()),
+                        e.getValue().length, "etag-" + e.getKey().hashCode(), MODIFIED))
+                .toList();
+        Map<ArchiveEntry, Long> crcs = new HashMap<>();
+        entries.forEach(entry -> crcs.put(entry, crc(objects.get(entry.objectName()))));
+        return ZipLayout.of("user-1-files/docs/", entries, crcs);
+    }
+
+    @Test
+    void shouldWriteArchiveOfPredictedLength() throws Exception {
+        ZipLayout layout = layout();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        layout.write(out, 0, layout.length() - 1, source, new byte[1024]);
+
+        assertEquals(layout.length(), out.size());
+
+        Path file = Files.createTempFile("layout", ".zip");
+        try {
+            Files.write(file, out.toByteArray());
+            try (ZipFile zip = new ZipFile(file.toFile())) {
+                assertEquals(3, zip.size());
+                for (Map.Entry<String, byte[]> object : objects.entrySet()) {
+                    String name = object.getKey().substring("user-1-files/docs/".length());
+                    assertArrayEquals(object.getValue(), zip.getInputStream(zip.getEntry(name)).readAllBytes());
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void shouldProduceIdenticalBytesWhenResumedFromAnyOffset() throws Exception {
+        ZipLayout layout = layout();
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        layout.write(full, 0, layout.length() - 1, source, new byte[1024]);
+
+        for (long split : List.of(1L, 30L, 600L, 10_000L, layout.length() - 40, layout.length() - 1)) {
+            ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+            layout.write(resumed, 0, split - 1, source, new byte[1024]);
+            layout.write(resumed, split, layout.length() - 1, source, new byte[1024]);
+
+            assertArrayEquals(full.toByteArray(), resumed.toByteArray(), "split at " + split);
+        }
+    }
+
+    @Test
+    void shouldBeReadableByStreamingUnzippers() throws Exception {
+        ZipLayout layout = layout();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        layout.write(out, 0, layout.length() - 1, source, new byte[1024]);
+
+        int count = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                assertEquals(ZipEntry.STORED, entry.getMethod());
+                assertArrayEquals(objects.get("user-1-files/docs/" + entry.getName()), zip.readAllBytes());
+                count++;
+            }
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    void shouldRefuseLayoutWithoutCrcs() {
+        ArchiveEntry entry = new ArchiveEntry("user-1-files/docs/a.txt", "a.txt", 1, "etag", MODIFIED);
+
+        assertThrows(IllegalArgumentException.class, () -> ZipLayout.of("user-1-files/docs/", List.of(entry), Map.of()));
+    }
+
+    @Test
+    void shouldRejectObjectsThatChangedSinceTheLayout() {
+        ZipLayout layout = layout();
+        objects.get("user-1-files/docs/a.txt")[0] = 'j';
+
+        assertThrows(ZipException.class,
+                () -> layout.write(new ByteArrayOutputStream(), 0, layout.length() - 1, source, new byte[1024]));
+    }
+
+    @Test
+    void eTagShouldDependOnListedObjects() {
+        ZipLayout first = layout();
+        assertEquals(first.eTag(), layout().eTag());
+
+        objects.put("user-1-files/docs/c.txt", new byte[1]);
+        assertNotEquals(first.eTag(), layout().eTag());
+    }
+}
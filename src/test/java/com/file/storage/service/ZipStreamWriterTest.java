@@ -0,0 +1,118 @@
+package com.file.storage.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("unit")
+class ZipStreamWriterTest {
+
+    private static final Instant MODIFIED = Instant.parse("2024-05-01T10:15:30Z");
+
+    @Test
+    void shouldWriteArchiveReadableByZipFile() throws Exception {
+        byte[] text = "hello hello hello hello hello".repeat(100).getBytes(StandardCharsets.UTF_8);
+        byte[] random = new byte[10_000];
+        new Random(42).nextBytes(random);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipStreamWriter writer = new ZipStreamWriter(out, 6, 1024);
+        writer.writeStored("small.bin", MODIFIED, random);
+        writer.writeStreamed("docs/text.txt", MODIFIED, text.length, true, null, new ByteArrayInputStream(text), new byte[512]);
+        writer.writeStreamed("media/photo.jpg", MODIFIED, random.length, false, crc(random),
+                new ByteArrayInputStream(random), new byte[512]);
+        writer.finish();
+        assertEquals(out.size(), writer.bytesWritten());
+
+        Path file = Files.createTempFile("writer", ".zip");
+        try {
+            Files.write(file, out.toByteArray());
+            try (ZipFile zip = new ZipFile(file.toFile())) {
+                assertEquals(3, zip.size());
+                assertArrayEquals(random, zip.getInputStream(zip.getEntry("small.bin")).readAllBytes());
+                assertArrayEquals(text, zip.getInputStream(zip.getEntry("docs/text.txt")).readAllBytes());
+                assertArrayEquals(random, zip.getInputStream(zip.getEntry("media/photo.jpg")).readAllBytes());
+
+                assertEquals(ZipEntry.STORED, zip.getEntry("small.bin").getMethod());
+                assertEquals(ZipEntry.DEFLATED, zip.getEntry("docs/text.txt").getMethod());
+                assertEquals(ZipEntry.STORED, zip.getEntry("media/photo.jpg").getMethod());
+                assertEquals(MODIFIED, zip.getEntry("docs/text.txt").getLastModifiedTime().toInstant());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void shouldRejectStoredEntryWhoseSizeChanged() {
+        ZipStreamWriter writer = new ZipStreamWriter(new ByteArrayOutputStream(), 6, 1024);
+
+        assertThrows(ZipException.class, () -> writer.writeStreamed("a.jpg", MODIFIED, 10, false, crc(new byte[10]),
+                new ByteArrayInputStream(new byte[5]), new byte[16]));
+        assertThrows(ZipException.class, () -> writer.writeStreamed("b.jpg", MODIFIED, 5, false, crc(new byte[5]),
+                new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}), new byte[16]));
+    }
+
+    @Test
+    void incompressibleStreamedEntriesShouldBeReadableByStreamingReaders() throws Exception {
+        byte[] known = new byte[700_000];
+        byte[] unknown = new byte[600_000];
+        new Random(1).nextBytes(known);
+        new Random(2).nextBytes(unknown);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipStreamWriter writer = new ZipStreamWriter(out, 6, 1024);
+        assertEquals(crc(known), writer.writeStreamed("known.jpg", MODIFIED, known.length, false, crc(known),
+                new ByteArrayInputStream(known), new byte[8192]));
+        assertEquals(crc(unknown), writer.writeStreamed("unknown.mp4", MODIFIED, unknown.length, false, null,
+                new ByteArrayInputStream(unknown), new byte[8192]));
+        writer.finish();
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertEquals("known.jpg", entry.getName());
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            assertArrayEquals(known, zip.readAllBytes());
+
+            entry = zip.getNextEntry();
+            assertEquals("unknown.mp4", entry.getName());
+            assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+            assertArrayEquals(unknown, zip.readAllBytes());
+            assertNull(zip.getNextEntry());
+        }
+        // level 0 deflate only adds block headers
+        assertTrue(out.size() < known.length + unknown.length + 1024);
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    @Test
+    void compressionPolicyShouldStoreIncompressibleContent() {
+        ZipCompressionPolicy policy = new ZipCompressionPolicy(6);
+        byte[] random = new byte[4096];
+        new Random(7).nextBytes(random);
+
+        assertFalse(policy.shouldCompress("video.MP4", null));
+        assertFalse(policy.shouldCompress("blob.bin", random));
+        assertTrue(policy.shouldCompress("notes.txt", "aaaa".repeat(1000).getBytes(StandardCharsets.UTF_8)));
+        assertFalse(new ZipCompressionPolicy(0).shouldCompress("notes.txt", null));
+    }
+}
@@ -0,0 +1,197 @@
+package com.file.storage.service;
+
+import com.file.storage.config.RequestCompletionFilter;
+import com.file.storage.exceptions.StorageBusyException;
+import com.file.storage.repository.StorageBackend;
+import com.file.storage.repository.StorageObject;
+import com.file.storage.repository.ZipCrcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Tag("unit")
+class ZipStreamingServiceTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final StorageBackend storageBackend = mock(StorageBackend.class);
+    private final ZipCrcRepository crcRepository = mock(ZipCrcRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        when(crcRepository.findAll(anyList())).thenAnswer(invocation ->
+                Collections.nCopies(invocation.<List<String>>getArgument(0).size(), null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ZipStreamingService service() {
+        ZipCompressionPolicy compressionPolicy = new ZipCompressionPolicy(6);
+        return new ZipStreamingService(storageBackend,
+                new ObjectPrefetcher(storageBackend, executor, 2, 1024), compressionPolicy,
+                new ZipCrcCache(crcRepository, Runnable::run, 16),
+                new ZipArchiveCache(storageBackend, compressionPolicy, Runnable::run, 1 << 20, 1 << 20),
+                new SimpleMeterRegistry(), 1, 1024, 1000);
+    }
+
+    private static StorageObject item(String name) {
+        return new StorageObject(name, name.length(), "etag", Instant.parse("2024-05-01T10:15:30Z"), false);
+    }
+
+    @Test
+    void shouldCombineSelectedPathsIntoOneArchive() throws Exception {
+        List<StorageObject> docs = List.of(item("user-1-files/docs/a.txt"), item("user-1-files/docs/a.txt.bak"));
+        List<StorageObject> old = List.of(item("user-1-files/old/a.txt"));
+        List<StorageObject> photos = List.of(item("user-1-files/photos/"), item("user-1-files/photos/b.jpg"));
+        when(storageBackend.list("user-1-files/docs/a.txt", false)).thenReturn(docs);
+        when(storageBackend.list("user-1-files/old/a.txt", false)).thenReturn(old);
+        when(storageBackend.list("user-1-files/photos/", true)).thenReturn(photos);
+        when(storageBackend.get(anyString())).thenAnswer(invocation ->
+                new ByteArrayInputStream(invocation.<String>getArgument(0).getBytes(StandardCharsets.UTF_8)));
+
+        ZipStreamingService service = service();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.stream(List.of("user-1-files/docs/a.txt", "user-1-files/old/a.txt", "user-1-files/photos/"))
+                .writeTo(out);
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertTrue(new String(zip.readAllBytes(), StandardCharsets.UTF_8).endsWith(entry.getName()
+                        .replace(" (1)", "")));
+            }
+        }
+        assertEquals(List.of("a.txt", "a (1).txt", "photos/b.jpg"), names);
+    }
+
+    @Test
+    void shouldStripTheHomeFolderWhenTheRootIsSelected() throws Exception {
+        List<StorageObject> root = List.of(item("user-1-files/"), item("user-1-files/a.txt"),
+                item("user-1-files/docs/b.txt"));
+        when(storageBackend.list("user-1-files/", true)).thenReturn(root);
+        when(storageBackend.list("user-1-files/docs/b.txt", false)).thenReturn(List.of(item("user-1-files/docs/b.txt")));
+        when(storageBackend.get(anyString())).thenAnswer(invocation ->
+                new ByteArrayInputStream(invocation.<String>getArgument(0).getBytes(StandardCharsets.UTF_8)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service().stream(List.of("user-1-files/", "user-1-files/docs/b.txt")).writeTo(out);
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(List.of("a.txt", "docs/b.txt", "b.txt"), names);
+    }
+
+    @Test
+    void shouldStoreFinishedArchiveAndServeItOnRepeat() throws Exception {
+        List<StorageObject> docs = List.of(item("user-1-files/docs/a.txt"), item("user-1-files/docs/b.txt"));
+        when(storageBackend.list("user-1-files/docs/", true)).thenReturn(docs);
+        when(storageBackend.get(anyString())).thenAnswer(invocation ->
+                new ByteArrayInputStream(invocation.<String>getArgument(0).getBytes(StandardCharsets.UTF_8)));
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        doAnswer(invocation -> {
+            invocation.<InputStream>getArgument(1).transferTo(stored);
+            return null;
+        }).when(storageBackend).put(anyString(), any(), anyLong());
+
+        ZipStreamingService service = service();
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        service.stream("user-1-files/docs/", "fingerprint").writeTo(first);
+
+        assertArrayEquals(first.toByteArray(), stored.toByteArray());
+
+        when(storageBackend.get(startsWith(ZipArchiveCache.CACHE_PREFIX + "user-1-files/")))
+                .thenReturn(new ByteArrayInputStream(stored.toByteArray()));
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        service.stream("user-1-files/docs/", "fingerprint").writeTo(second);
+
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+        verify(storageBackend, times(2)).get(startsWith("user-1-files/docs/"));
+        verify(storageBackend, never()).stat(anyString());
+    }
+
+    @Test
+    void shouldRejectOverLimitAndReleaseWhenTheBodyFinishes() throws Exception {
+        when(storageBackend.list(anyString(), anyBoolean())).thenReturn(List.of());
+        ZipStreamingService service = service();
+
+        StreamingResponseBody first = service.stream(List.of("user-1-files/a/"));
+        assertThrows(StorageBusyException.class, () -> service.stream(List.of("user-1-files/b/")));
+
+        first.writeTo(new ByteArrayOutputStream());
+        first.writeTo(new ByteArrayOutputStream());
+        service.stream(List.of("user-1-files/b/"));
+        assertThrows(StorageBusyException.class, () -> service.stream(List.of("user-1-files/c/")));
+    }
+
+    @Test
+    void shouldReleasePermitWhenTheRequestEndsBeforeTheBodyRuns() throws Exception {
+        when(storageBackend.list(anyString(), anyBoolean())).thenReturn(List.of());
+        ZipStreamingService service = service();
+        RequestCompletionFilter filter = new RequestCompletionFilter();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resource/download");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+            try {
+                service.stream(List.of("user-1-files/a/"));
+                req.startAsync();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        });
+        assertThrows(StorageBusyException.class, () -> service.stream(List.of("user-1-files/b/")));
+
+        // async timeout or client abort: the container completes the request without running the body
+        request.getAsyncContext().complete();
+        StreamingResponseBody next = service.stream(List.of("user-1-files/b/"));
+
+        MockHttpServletRequest failing = new MockHttpServletRequest("GET", "/api/resource/download");
+        next.writeTo(new ByteArrayOutputStream());
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(failing, new MockHttpServletResponse(),
+                (req, res) -> {
+                    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(failing));
+                    try {
+                        service.stream(List.of("user-1-files/c/"));
+                        throw new IllegalStateException("handler failed after admission");
+                    } finally {
+                        RequestContextHolder.resetRequestAttributes();
+                    }
+                }));
+        service.stream(List.of("user-1-files/d/"));
+    }
+}